@@ -0,0 +1,142 @@
+package edu.grinnell.csc207.bench;
+
+import edu.grinnell.csc207.fliptiles.GameBoard;
+import edu.grinnell.csc207.fliptiles.GameLogic;
+import edu.grinnell.csc207.fliptiles.Solution;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the flip-tiles hot paths: single presses, the completion
+ * check, whole move sequences through GameLogic, and the solver.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of moves in one makeMove sequence.
+   */
+  static final int MOVES = 1024;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The width and height of the board.
+   */
+  @Param({"3", "5", "8", "16", "64", "100"})
+  int size;
+
+  /**
+   * The board under test.
+   */
+  GameBoard board;
+
+  /**
+   * Pre-generated move rows.
+   */
+  int[] rows;
+
+  /**
+   * Pre-generated move columns.
+   */
+  int[] cols;
+
+  /**
+   * The next move to play.
+   */
+  int cursor;
+
+  // +-------+-------------------------------------------------------
+  // | Setup |
+  // +-------+
+
+  /**
+   * Build the board and a fixed, seeded sequence of moves.
+   */
+  @Setup
+  public void setup() {
+    board = new GameBoard(size);
+    Random random = new Random(207);
+    rows = new int[MOVES];
+    cols = new int[MOVES];
+    for (int i = 0; i < MOVES; i++) {
+      rows[i] = random.nextInt(size);
+      cols[i] = random.nextInt(size);
+      board.flipTiles(rows[i], cols[i]);
+    } // for
+  } // setup()
+
+  // +------------+--------------------------------------------------
+  // | Benchmarks |
+  // +------------+
+
+  /**
+   * Press one tile.
+   */
+  @Benchmark
+  public void flipTiles() {
+    int i = cursor++ & (MOVES - 1);
+    board.flipTiles(rows[i], cols[i]);
+  } // flipTiles()
+
+  /**
+   * Check whether the board is complete.
+   *
+   * @return whether every tile is on.
+   */
+  @Benchmark
+  public boolean allTilesFlipped() {
+    return board.allTilesFlipped();
+  } // allTilesFlipped()
+
+  /**
+   * Play a full sequence of moves through a fresh GameLogic, checking
+   * for completion after each one as GameUI does.
+   *
+   * @return the final move count.
+   */
+  @Benchmark
+  @OperationsPerInvocation(MOVES)
+  public int makeMoveSequence() {
+    GameLogic game = new GameLogic(size);
+    for (int i = 0; i < MOVES; i++) {
+      game.makeMove(rows[i], cols[i]);
+      if (game.isGameComplete()) {
+        break;
+      } // if
+    } // for
+    return game.getMoveCount();
+  } // makeMoveSequence()
+
+  /**
+   * Solve the current board.
+   *
+   * @return the solution.
+   */
+  @Benchmark
+  public Solution solve() {
+    return board.solve();
+  } // solve()
+} // class GameBenchmark
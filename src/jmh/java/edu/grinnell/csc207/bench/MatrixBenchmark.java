@@ -0,0 +1,204 @@
+package edu.grinnell.csc207.bench;
+
+import edu.grinnell.csc207.util.Matrix;
+import edu.grinnell.csc207.util.MatrixV0;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the core operations of MatrixV0.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatrixBenchmark {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The width and height of the matrix.
+   */
+  @Param({"8", "64", "256", "1024"})
+  int size;
+
+  /**
+   * The matrix under test.
+   */
+  MatrixV0<Integer> matrix;
+
+  /**
+   * An equal copy of the matrix, for equals.
+   */
+  MatrixV0<Integer> copy;
+
+  /**
+   * A full row of values, for insertRow.
+   */
+  Integer[] row;
+
+  /**
+   * A full column of values, for insertCol.
+   */
+  Integer[] col;
+
+  /**
+   * A pen that discards everything, for print.
+   */
+  PrintWriter pen;
+
+  /**
+   * The next cell to read or write.
+   */
+  int cursor;
+
+  // +-------+-------------------------------------------------------
+  // | Setup |
+  // +-------+
+
+  /**
+   * Build the matrices used by the benchmarks.
+   */
+  @Setup
+  public void setup() {
+    matrix = new MatrixV0<Integer>(size, size, 0);
+    copy = new MatrixV0<Integer>(size, size, 0);
+    for (int r = 0; r < size; r++) {
+      for (int c = 0; c < size; c++) {
+        matrix.set(r, c, r * size + c);
+        copy.set(r, c, r * size + c);
+      } // for c
+    } // for r
+    row = new Integer[size];
+    col = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      row[i] = i;
+      col[i] = i;
+    } // for
+    pen = new PrintWriter(OutputStream.nullOutputStream());
+  } // setup()
+
+  // +------------+--------------------------------------------------
+  // | Benchmarks |
+  // +------------+
+
+  /**
+   * Read one cell, walking the matrix in row-major order.
+   *
+   * @return the value read.
+   */
+  @Benchmark
+  public Integer get() {
+    int cell = cursor++ % (size * size);
+    return matrix.get(cell / size, cell % size);
+  } // get()
+
+  /**
+   * Write one cell, walking the matrix in row-major order.
+   */
+  @Benchmark
+  public void set() {
+    int cell = cursor++ % (size * size);
+    matrix.set(cell / size, cell % size, cell);
+  } // set()
+
+  /**
+   * Insert a default row in the middle and delete it again.
+   */
+  @Benchmark
+  public void insertDeleteRow() {
+    matrix.insertRow(size / 2);
+    matrix.deleteRow(size / 2);
+  } // insertDeleteRow()
+
+  /**
+   * Insert a row of values in the middle and delete it again.
+   *
+   * @throws Exception
+   *   If the row has the wrong size (which it does not).
+   */
+  @Benchmark
+  public void insertDeleteRowValues() throws Exception {
+    matrix.insertRow(size / 2, row);
+    matrix.deleteRow(size / 2);
+  } // insertDeleteRowValues()
+
+  /**
+   * Insert a default column in the middle and delete it again.
+   */
+  @Benchmark
+  public void insertDeleteCol() {
+    matrix.insertCol(size / 2);
+    matrix.deleteCol(size / 2);
+  } // insertDeleteCol()
+
+  /**
+   * Insert a column of values in the middle and delete it again.
+   *
+   * @throws Exception
+   *   If the column has the wrong size (which it does not).
+   */
+  @Benchmark
+  public void insertDeleteColValues() throws Exception {
+    matrix.insertCol(size / 2, col);
+    matrix.deleteCol(size / 2);
+  } // insertDeleteColValues()
+
+  /**
+   * Clone the matrix.
+   *
+   * @return the clone.
+   */
+  @Benchmark
+  public Matrix cloneMatrix() {
+    return matrix.clone();
+  } // cloneMatrix()
+
+  /**
+   * Compare the matrix with an equal one.
+   *
+   * @return whether they are equal.
+   */
+  @Benchmark
+  public boolean equalsMatrix() {
+    return matrix.equals(copy);
+  } // equalsMatrix()
+
+  /**
+   * Hash the matrix.
+   *
+   * @return the hash code.
+   */
+  @Benchmark
+  public int hashCodeMatrix() {
+    return matrix.hashCode();
+  } // hashCodeMatrix()
+
+  /**
+   * Print the matrix, with labels, to a pen that discards output.
+   *
+   * @param bh
+   *   Keeps the pen alive.
+   */
+  @Benchmark
+  public void print(Blackhole bh) {
+    Matrix.print(pen, matrix, true);
+    bh.consume(pen);
+  } // print(Blackhole)
+} // class MatrixBenchmark
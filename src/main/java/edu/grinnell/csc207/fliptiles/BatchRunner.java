@@ -0,0 +1,210 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.io.FileOutputStream;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replays scripted games through the real game logic without prompts.
+ * A script is a stream of whitespace-separated tokens:
+ * <pre>
+ * game rows cols rule    starts a game ("classic" picks the original rule)
+ * row col                makes a move in the current game
+ * </pre>
+ * After each game (at the next "game" or at the end of input) one line is
+ * written: the game number, the number of valid moves, the number of invalid
+ * moves, and "complete" or "incomplete".
+ * Input is read through a ByteTokenizer and output is built in a byte buffer
+ * that is written out in large blocks, so a game costs a board allocation and
+ * nothing else.
+ */
+public class BatchRunner {
+    private static final int OUTPUT_SIZE = 1 << 16;
+
+    private final ByteTokenizer in;
+    private final OutputStream out;
+    private final byte[] buffer = new byte[OUTPUT_SIZE];
+    private int length;
+    private int games;
+
+    /**
+     * Creates a runner.
+     *
+     * @param in The script.
+     * @param out Where to write the results.
+     */
+    public BatchRunner(ReadableByteChannel in, OutputStream out) {
+        this.in = new ByteTokenizer(in);
+        this.out = out;
+    }
+
+    /**
+     * Replays every game in the script.
+     *
+     * @return The number of games replayed.
+     * @throws IOException If the script cannot be read or the results written.
+     * @throws IllegalArgumentException If the script is malformed.
+     */
+    public int run() throws IOException {
+        GameLogic game = null;
+        int invalid = 0;
+        int token = in.next();
+        while (token != ByteTokenizer.EOF) {
+            if (token == ByteTokenizer.WORD) {
+                if (!in.wordIs("game")) {
+                    throw malformed("unknown word '" + in.text() + "'");
+                }
+                if (game != null) {
+                    report(game, invalid);
+                }
+                game = newGame();
+                invalid = 0;
+            } else {
+                if (game == null) {
+                    throw malformed("move before the first game");
+                }
+                int row = in.number();
+                if (in.next() != ByteTokenizer.NUMBER) {
+                    throw malformed("expected a column");
+                }
+                if (!game.makeMove(row, in.number())) {
+                    invalid++;
+                }
+            }
+            token = in.next();
+        }
+        if (game != null) {
+            report(game, invalid);
+        }
+        flush();
+        return games;
+    }
+
+    /**
+     * Reads a game header, after the "game" keyword.
+     *
+     * @return The new game.
+     * @throws IOException If the script cannot be read.
+     */
+    private GameLogic newGame() throws IOException {
+        if (in.next() != ByteTokenizer.NUMBER) {
+            throw malformed("expected the number of rows");
+        }
+        int rows = in.number();
+        if (in.next() != ByteTokenizer.NUMBER) {
+            throw malformed("expected the number of columns");
+        }
+        int cols = in.number();
+        if (in.next() != ByteTokenizer.WORD) {
+            throw malformed("expected a flip rule");
+        }
+        FlipRule rule;
+        if (in.wordIs("classic")) {
+            rule = FlipRule.classic(rows);
+        } else {
+            try {
+                rule = FlipRule.named(in.text());
+            } catch (IllegalArgumentException e) {
+                throw malformed(e.getMessage());
+            }
+        }
+        if (rows <= 0 || cols <= 0) {
+            throw malformed("board dimensions must be positive");
+        }
+        return new GameLogic(new GameBoard(rows, cols, rule), 0);
+    }
+
+    /**
+     * Writes the result line for a finished game.
+     *
+     * @param game The game.
+     * @param invalid The number of invalid moves it received.
+     * @throws IOException If the output cannot be written.
+     */
+    private void report(GameLogic game, int invalid) throws IOException {
+        games++;
+        if (length + 64 > buffer.length) {
+            flush();
+        }
+        appendInt(games);
+        buffer[length++] = ' ';
+        appendInt(game.getMoveCount());
+        buffer[length++] = ' ';
+        appendInt(invalid);
+        buffer[length++] = ' ';
+        appendAscii(game.isGameComplete() ? "complete\n" : "incomplete\n");
+    }
+
+    /**
+     * Appends the decimal digits of a non-negative number.
+     *
+     * @param value The number.
+     */
+    private void appendInt(int value) {
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    /**
+     * Appends ASCII text.
+     *
+     * @param text The text.
+     */
+    private void appendAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            buffer[length++] = (byte) text.charAt(i);
+        }
+    }
+
+    /**
+     * Writes out and empties the output buffer.
+     *
+     * @throws IOException If the output cannot be written.
+     */
+    private void flush() throws IOException {
+        out.write(buffer, 0, length);
+        out.flush();
+        length = 0;
+    }
+
+    /**
+     * Describes a problem with the script.
+     *
+     * @param problem What is wrong.
+     * @return An exception to throw.
+     */
+    private IllegalArgumentException malformed(String problem) {
+        return new IllegalArgumentException("line " + in.line() + ": " + problem);
+    }
+
+    /**
+     * Replays a script from a file, or from standard input, to standard output.
+     *
+     * @param args Optionally, the script file.
+     * @throws IOException If the script cannot be read or the results written.
+     */
+    public static void main(String[] args) throws IOException {
+        ReadableByteChannel in = args.length > 0
+                ? FileChannel.open(Path.of(args[0]), StandardOpenOption.READ)
+                : Channels.newChannel(System.in);
+        try (in; OutputStream out = new FileOutputStream(FileDescriptor.out)) {
+            new BatchRunner(in, out).run();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Malformed script: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Draws boards to an output stream, one frame per call. Each frame is built
+ * in a reusable byte buffer and written with a single call, so drawing a
+ * board never costs more than one write and one flush.
+ *
+ * <p>In plain mode every frame is the whole board, as "1 " and "0 " cells,
+ * which suits pipes and logs. In ANSI mode the first frame draws the board
+ * below whatever is already on the screen, followed by a few blank status
+ * lines, and saves the cursor at the board's top left; later frames only
+ * move from there to the tiles that changed since the previous frame and
+ * redraw those. Each ANSI frame then blanks the status lines and leaves the
+ * cursor on the first of them, for the caller's messages and prompts.
+ * Nothing above the board is erased, and nothing below the status lines is
+ * touched after the first frame. Text printed between frames should fit in
+ * the status lines: if it scrolls the screen, the board is redrawn in the
+ * wrong place until reset() is called.
+ */
+public class BoardRenderer {
+    private static final byte ESC = 0x1B;
+
+    /**
+     * The number of status lines reserved below the board in ANSI mode when
+     * none is given.
+     */
+    public static final int DEFAULT_STATUS_LINES = 4;
+
+    private final OutputStream out;
+    private final boolean ansi;
+    private final int statusLines;
+    private byte[] frame = new byte[256];
+    private int length;
+    private long[] previous;
+    private int rows;
+    private int cols;
+
+    /**
+     * Creates a renderer that reserves the default number of status lines.
+     *
+     * @param out Where to write frames.
+     * @param ansi Whether to redraw only changed tiles using ANSI cursor movement.
+     */
+    public BoardRenderer(OutputStream out, boolean ansi) {
+        this(out, ansi, DEFAULT_STATUS_LINES);
+    }
+
+    /**
+     * Creates a renderer.
+     *
+     * @param out Where to write frames.
+     * @param ansi Whether to redraw only changed tiles using ANSI cursor movement.
+     * @param statusLines The number of lines below the board that each ANSI
+     *     frame blanks for messages and prompts (at least 1).
+     */
+    public BoardRenderer(OutputStream out, boolean ansi, int statusLines) {
+        if (statusLines < 1) {
+            throw new IllegalArgumentException("At least one status line is needed.");
+        }
+        this.out = out;
+        this.ansi = ansi;
+        this.statusLines = statusLines;
+    }
+
+    /**
+     * Draws a board.
+     *
+     * @param board The board to draw.
+     * @throws UncheckedIOException If the frame cannot be written.
+     */
+    public void render(GameBoard board) {
+        long[] tiles = board.tiles();
+        length = 0;
+        if (!ansi) {
+            appendBoard(board);
+        } else if (previous == null || rows != board.getRows() || cols != board.getCols()) {
+            rows = board.getRows();
+            cols = board.getCols();
+            previous = new long[tiles.length];
+            appendNewlines(rows + statusLines);
+            appendEscape(rows + statusLines, 'A');
+            appendControl('7');
+            appendEscape(0, 'J');
+            appendBoard(board);
+        } else {
+            appendControl('8');
+            appendMove(appendChanges(tiles), rows);
+            appendStatusLines();
+        }
+        if (ansi) {
+            System.arraycopy(tiles, 0, previous, 0, tiles.length);
+        }
+        try {
+            out.write(frame, 0, length);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forgets the previous frame, so the next one is drawn in full.
+     */
+    public void reset() {
+        previous = null;
+    }
+
+    /**
+     * Appends every tile, row by row.
+     *
+     * @param board The board.
+     */
+    private void appendBoard(GameBoard board) {
+        int boardRows = board.getRows();
+        int boardCols = board.getCols();
+        ensure(boardRows * (boardCols * 2 + 1));
+        long[] tiles = board.tiles();
+        int cell = 0;
+        for (int row = 0; row < boardRows; row++) {
+            for (int col = 0; col < boardCols; col++, cell++) {
+                frame[length++] = (tiles[cell >>> 6] & (1L << cell)) != 0 ? (byte) '1' : (byte) '0';
+                frame[length++] = ' ';
+            }
+            frame[length++] = '\n';
+        }
+    }
+
+    /**
+     * Appends a cursor move and the new value for every tile that differs
+     * from the previous frame. The cursor must start at the board's top left,
+     * and is left on the row of the last change.
+     *
+     * @param tiles The board's packed tiles.
+     * @return The board row the cursor is left on.
+     */
+    private int appendChanges(long[] tiles) {
+        int row = 0;
+        for (int w = 0; w < tiles.length; w++) {
+            long changed = tiles[w] ^ previous[w];
+            while (changed != 0) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(changed);
+                appendMove(row, cell / cols);
+                row = cell / cols;
+                appendEscape((cell % cols) * 2 + 1, 'G');
+                ensure(1);
+                frame[length++] = (tiles[w] & (1L << cell)) != 0 ? (byte) '1' : (byte) '0';
+                changed &= changed - 1;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Appends a move down from one board row to another, in column 1 if
+     * the row changes. Moving down never scrolls the screen.
+     *
+     * @param from The row the cursor is on.
+     * @param to The row to move to, at or below from.
+     */
+    private void appendMove(int from, int to) {
+        if (to > from) {
+            appendEscape(to - from, 'B');
+            appendEscape(1, 'G');
+        }
+    }
+
+    /**
+     * Blanks each status line and returns the cursor to the start of the
+     * first, where it must already be.
+     */
+    private void appendStatusLines() {
+        for (int line = 0; line < statusLines; line++) {
+            if (line > 0) {
+                appendEscape(1, 'B');
+            }
+            appendEscape(2, 'K');
+        }
+        if (statusLines > 1) {
+            appendEscape(statusLines - 1, 'A');
+        }
+    }
+
+    /**
+     * Appends line breaks, which scroll the screen if they run off the
+     * bottom.
+     *
+     * @param count The number of line breaks.
+     */
+    private void appendNewlines(int count) {
+        ensure(count + 1);
+        frame[length++] = '\r';
+        for (int i = 0; i < count; i++) {
+            frame[length++] = '\n';
+        }
+    }
+
+    /**
+     * Appends an escape sequence with no parameters, such as ESC 7 to save
+     * the cursor position or ESC 8 to restore it.
+     *
+     * @param command The character after the escape.
+     */
+    private void appendControl(char command) {
+        ensure(2);
+        frame[length++] = ESC;
+        frame[length++] = (byte) command;
+    }
+
+    /**
+     * Appends a control sequence with one numeric parameter.
+     *
+     * @param param The parameter.
+     * @param command The final character of the sequence.
+     */
+    private void appendEscape(int param, char command) {
+        ensure(16);
+        frame[length++] = ESC;
+        frame[length++] = '[';
+        appendInt(param);
+        frame[length++] = (byte) command;
+    }
+
+    /**
+     * Appends the decimal digits of a non-negative number. The caller must
+     * have reserved room for them.
+     *
+     * @param value The number.
+     */
+    private void appendInt(int value) {
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            frame[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    /**
+     * Makes room for more bytes in the frame buffer.
+     *
+     * @param extra The number of bytes about to be appended.
+     */
+    private void ensure(int extra) {
+        if (length + extra > frame.length) {
+            frame = Arrays.copyOf(frame, Math.max(frame.length * 2, length + extra));
+        }
+    }
+}
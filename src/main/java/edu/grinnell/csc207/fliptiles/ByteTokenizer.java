@@ -0,0 +1,162 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits an ASCII byte stream into whitespace-separated tokens, reading the
+ * channel through a large buffer. Each token is classified as a number or a
+ * word as it is scanned; numbers are parsed in place and words can be compared
+ * without being turned into strings, so scanning allocates nothing.
+ */
+class ByteTokenizer {
+    static final int EOF = 0;
+    static final int NUMBER = 1;
+    static final int WORD = 2;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_WORD = 64;
+
+    private final ReadableByteChannel in;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final byte[] word = new byte[MAX_WORD];
+    private int wordLength;
+    private long number;
+    private int line = 1;
+    private int tokenLine = 1;
+    private boolean exhausted;
+
+    /**
+     * Creates a tokenizer.
+     *
+     * @param in The channel to read.
+     */
+    ByteTokenizer(ReadableByteChannel in) {
+        this.in = in;
+        buffer.flip();
+    }
+
+    /**
+     * Scans the next token.
+     *
+     * @return NUMBER, WORD, or EOF at the end of input.
+     * @throws IOException If the channel cannot be read.
+     */
+    int next() throws IOException {
+        int b = read();
+        while (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+            if (b == '\n') {
+                line++;
+            }
+            b = read();
+        }
+        tokenLine = line;
+        if (b < 0) {
+            return EOF;
+        }
+        boolean negative = b == '-';
+        boolean numeric = negative || (b >= '0' && b <= '9');
+        long value = 0;
+        int length = 0;
+        int digits = 0;
+        while (b >= 0 && b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+            if (length < MAX_WORD) {
+                word[length] = (byte) b;
+            }
+            length++;
+            if (numeric && b >= '0' && b <= '9' && value <= Integer.MAX_VALUE) {
+                value = value * 10 + (b - '0');
+                digits++;
+            } else if (!(negative && length == 1)) {
+                numeric = false;
+            }
+            b = read();
+        }
+        if (b == '\n') {
+            line++;
+        }
+        wordLength = Math.min(length, MAX_WORD);
+        if (numeric && digits > 0 && value <= Integer.MAX_VALUE) {
+            number = negative ? -value : value;
+            return NUMBER;
+        }
+        return WORD;
+    }
+
+    /**
+     * Gets the value of the last token, which must have been a NUMBER.
+     *
+     * @return The number.
+     */
+    int number() {
+        return (int) number;
+    }
+
+    /**
+     * Checks whether the last token, which must have been a WORD, is a
+     * given word, ignoring case.
+     *
+     * @param expected The word, in lower case ASCII.
+     * @return True if they match, otherwise false.
+     */
+    boolean wordIs(String expected) {
+        if (expected.length() != wordLength) {
+            return false;
+        }
+        for (int i = 0; i < wordLength; i++) {
+            int b = word[i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the last token as a string (truncated to 64 characters).
+     *
+     * @return The token.
+     */
+    String text() {
+        return new String(word, 0, wordLength, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Gets the line the last token was on, for error messages.
+     *
+     * @return The one-based line number.
+     */
+    int line() {
+        return tokenLine;
+    }
+
+    /**
+     * Reads one byte, refilling the buffer as needed.
+     *
+     * @return The byte, or -1 at the end of input.
+     * @throws IOException If the channel cannot be read.
+     */
+    private int read() throws IOException {
+        if (!buffer.hasRemaining()) {
+            if (exhausted) {
+                return -1;
+            }
+            buffer.clear();
+            int count;
+            do {
+                count = in.read(buffer);
+            } while (count == 0);
+            buffer.flip();
+            if (count < 0) {
+                exhausted = true;
+                return -1;
+            }
+        }
+        return buffer.get() & 0xFF;
+    }
+}
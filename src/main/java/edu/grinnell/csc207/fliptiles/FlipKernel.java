@@ -0,0 +1,278 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * The compiled flip pattern for one rule on one board shape.
+ * Tiles are numbered row by row (cell = row * cols + col) and packed 64 to a long.
+ * For every cell we precompute the XOR mask that a press applies, stored as the
+ * list of words it touches and the bits to flip in each, so a move is one XOR
+ * per touched word with no bounds checks, wrapping or branching.
+ * Each cell also gets a Zobrist key, and each press the XOR of the keys of
+ * the tiles it flips, so a board's hash can follow its moves in O(1).
+ * Kernels are immutable, and the most recently used ones are kept, so each
+ * (rule, shape) pair is normally compiled only once.
+ */
+public class FlipKernel {
+    /**
+     * The number of compiled kernels kept for reuse.
+     */
+    static final int CACHED_KERNELS = 32;
+
+    private static final long ZOBRIST_SEED = 0x5DEECE66DL;
+
+    private static final LinkedHashMap<Key, FlipKernel> COMPILED =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, FlipKernel> eldest) {
+                    return size() > CACHED_KERNELS;
+                }
+            };
+
+    final FlipRule rule;
+    final int rows;
+    final int cols;
+    final int cells;
+    final int words;
+    final long[] full;
+    final int[] maskOffset;
+    final int[] maskLength;
+    final int[] maskWord;
+    final long[] maskData;
+    final long[] tileKeys;
+    final long[] pressKeys;
+
+    /**
+     * The identity of a compiled kernel.
+     *
+     * @param rule The flip rule.
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     */
+    private record Key(FlipRule rule, int rows, int cols) {
+    }
+
+    /**
+     * Gets the kernel for the classic rule on a square board: the plus
+     * shape for 3x3 (and smaller) boards and the full 3x3 block for larger ones.
+     *
+     * @param size The size of the board.
+     * @return The compiled kernel.
+     */
+    public static FlipKernel forSize(int size) {
+        return of(FlipRule.classic(size), size, size);
+    }
+
+    /**
+     * Gets the kernel for a rule on a rows x cols board, compiling it if it
+     * is not among the recently used ones.
+     *
+     * @param rule The flip rule.
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @return The compiled kernel.
+     */
+    public static FlipKernel of(FlipRule rule, int rows, int cols) {
+        Key key = new Key(rule, rows, cols);
+        synchronized (COMPILED) {
+            FlipKernel kernel = COMPILED.get(key);
+            if (kernel != null) {
+                return kernel;
+            }
+        }
+        FlipKernel kernel = new FlipKernel(rule, rows, cols);
+        synchronized (COMPILED) {
+            FlipKernel raced = COMPILED.putIfAbsent(key, kernel);
+            return raced == null ? kernel : raced;
+        }
+    }
+
+    /**
+     * Compiles the masks for a rule on a rows x cols board.
+     *
+     * @param rule The flip rule.
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     */
+    private FlipKernel(FlipRule rule, int rows, int cols) {
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("Board dimensions must be positive.");
+        }
+        if ((long) rows * cols * rule.stencilSize() > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Board is too large to compile.");
+        }
+        this.rule = rule;
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = rows * cols;
+        this.words = (cells + 63) >>> 6;
+
+        full = new long[words];
+        Arrays.fill(full, -1L);
+        if ((cells & 63) != 0) {
+            full[words - 1] = (1L << (cells & 63)) - 1;
+        }
+
+        int stencil = rule.stencilSize();
+        maskOffset = new int[cells];
+        maskLength = new int[cells];
+        int[] wordIndex = new int[cells * stencil];
+        long[] data = new long[cells * stencil];
+        int[] targets = new int[stencil];
+        int used = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int cell = row * cols + col;
+                int count = 0;
+                for (int i = 0; i < stencil; i++) {
+                    int r = row + rule.rowOffsets[i];
+                    int c = col + rule.colOffsets[i];
+                    if (rule.wraps()) {
+                        r = Math.floorMod(r, rows);
+                        c = Math.floorMod(c, cols);
+                    } else if (r < 0 || r >= rows || c < 0 || c >= cols) {
+                        continue;
+                    }
+                    targets[count++] = r * cols + c;
+                }
+                Arrays.sort(targets, 0, count);
+                maskOffset[cell] = used;
+                for (int i = 0; i < count; i++) {
+                    int w = targets[i] >>> 6;
+                    long bits = 0;
+                    while (i < count && targets[i] >>> 6 == w) {
+                        bits ^= 1L << targets[i];
+                        i++;
+                    }
+                    i--;
+                    if (bits != 0) {
+                        wordIndex[used] = w;
+                        data[used] = bits;
+                        used++;
+                    }
+                }
+                maskLength[cell] = used - maskOffset[cell];
+            }
+        }
+        maskWord = Arrays.copyOf(wordIndex, used);
+        maskData = Arrays.copyOf(data, used);
+
+        tileKeys = new long[cells];
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+        for (int cell = 0; cell < cells; cell++) {
+            tileKeys[cell] = random.nextLong();
+        }
+        pressKeys = new long[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            long key = 0;
+            for (int k = maskOffset[cell]; k < maskOffset[cell] + maskLength[cell]; k++) {
+                long word = maskData[k];
+                int base = maskWord[k] << 6;
+                while (word != 0) {
+                    key ^= tileKeys[base + Long.numberOfTrailingZeros(word)];
+                    word &= word - 1;
+                }
+            }
+            pressKeys[cell] = key;
+        }
+    }
+
+    /**
+     * Gets the flip rule these masks were compiled from.
+     *
+     * @return The rule.
+     */
+    public FlipRule rule() {
+        return rule;
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return The number of rows.
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of columns.
+     *
+     * @return The number of columns.
+     */
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Gets the number of tiles on the board.
+     *
+     * @return The number of tiles.
+     */
+    public int cellCount() {
+        return cells;
+    }
+
+    /**
+     * Gets the number of longs needed to hold one board.
+     *
+     * @return The number of words.
+     */
+    public int wordCount() {
+        return words;
+    }
+
+    /**
+     * Applies the press at a cell to a packed board.
+     *
+     * @param state The packed board to update.
+     * @param cell The index of the pressed cell.
+     */
+    public void press(long[] state, int cell) {
+        int end = maskOffset[cell] + maskLength[cell];
+        for (int k = maskOffset[cell]; k < end; k++) {
+            state[maskWord[k]] ^= maskData[k];
+        }
+    }
+
+    /**
+     * Applies the press at a cell to a packed board and reports how many
+     * more tiles are on afterwards. Each touched word's change is the mask's
+     * popcount less twice the bits it turns off, so no full scan is needed.
+     *
+     * @param state The packed board to update.
+     * @param cell The index of the pressed cell.
+     * @return The change in the number of tiles that are on.
+     */
+    public int pressCounting(long[] state, int cell) {
+        int end = maskOffset[cell] + maskLength[cell];
+        int delta = 0;
+        for (int k = maskOffset[cell]; k < end; k++) {
+            long mask = maskData[k];
+            long word = state[maskWord[k]];
+            delta += Long.bitCount(mask) - 2 * Long.bitCount(word & mask);
+            state[maskWord[k]] = word ^ mask;
+        }
+        return delta;
+    }
+
+    /**
+     * Checks whether a cell's tile is flipped by a press at another cell.
+     *
+     * @param pressed The index of the pressed cell.
+     * @param cell The index of the tile.
+     * @return True if pressing the first cell flips the tile.
+     */
+    public boolean flips(int pressed, int cell) {
+        int end = maskOffset[pressed] + maskLength[pressed];
+        for (int k = maskOffset[pressed]; k < end; k++) {
+            if (maskWord[k] == cell >>> 6) {
+                return (maskData[k] & (1L << cell)) != 0;
+            }
+        }
+        return false;
+    }
+}
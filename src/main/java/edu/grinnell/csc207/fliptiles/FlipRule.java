@@ -0,0 +1,246 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Which tiles a press flips, as a stencil of (row, column) offsets from the
+ * pressed tile. Offsets that land off the board are ignored, unless the rule
+ * wraps, in which case the board is a torus and they come back in on the
+ * opposite edge. On boards small enough that two offsets wrap onto the same
+ * tile, that tile is flipped twice, which leaves it unchanged.
+ *
+ * <p>Rules are immutable and compare by their stencil and wrapping, not their
+ * names. A rule is only a description; FlipKernel compiles it for a board shape.
+ */
+public final class FlipRule {
+    /**
+     * The pressed tile and its four orthogonal neighbours.
+     */
+    public static final FlipRule PLUS = new FlipRule("plus", false, new int[][] {
+        {0, 0}, {-1, 0}, {1, 0}, {0, -1}, {0, 1}}, null);
+
+    /**
+     * The pressed tile and all eight of its neighbours.
+     */
+    public static final FlipRule BLOCK = new FlipRule("block", false, new int[][] {
+        {-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 0}, {0, 1}, {1, -1}, {1, 0}, {1, 1}}, null);
+
+    /**
+     * The pressed tile and its four diagonal neighbours.
+     */
+    public static final FlipRule CROSS = new FlipRule("cross", false, new int[][] {
+        {0, 0}, {-1, -1}, {-1, 1}, {1, -1}, {1, 1}}, null);
+
+    /**
+     * The pressed tile and the eight tiles a knight's move away.
+     */
+    public static final FlipRule KNIGHT = new FlipRule("knight", false, new int[][] {
+        {0, 0}, {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}}, null);
+
+    /**
+     * Ends the name of every wrapping rule, as in "knight-torus".
+     */
+    static final String TORUS_SUFFIX = "-torus";
+
+    /**
+     * The most UTF-8 bytes in a custom rule's name, and the most offsets in
+     * its stencil, so that snapshots and logs can store each count in an
+     * unsigned short.
+     */
+    static final int MAX_CUSTOM_SIZE = 0xFFFF;
+
+    private final String name;
+    private final boolean wraps;
+    private final FlipRule planar;
+    final int[] rowOffsets;
+    final int[] colOffsets;
+
+    /**
+     * Creates a rule.
+     *
+     * @param name The rule's name.
+     * @param wraps Whether the board's edges wrap around.
+     * @param stencil The {row, col} offsets flipped by a press.
+     * @param planar The same rule without wrapping, or null if this is it.
+     */
+    private FlipRule(String name, boolean wraps, int[][] stencil, FlipRule planar) {
+        this.name = name;
+        this.wraps = wraps;
+        this.planar = planar == null ? this : planar;
+        int[][] sorted = stencil.clone();
+        Arrays.sort(sorted, (a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0])
+                : Integer.compare(a[1], b[1]));
+        rowOffsets = new int[sorted.length];
+        colOffsets = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i].length != 2) {
+                throw new IllegalArgumentException("Each offset must be a {row, col} pair.");
+            }
+            if (i > 0 && sorted[i][0] == sorted[i - 1][0] && sorted[i][1] == sorted[i - 1][1]) {
+                throw new IllegalArgumentException("Offsets must be distinct.");
+            }
+            rowOffsets[i] = sorted[i][0];
+            colOffsets[i] = sorted[i][1];
+        }
+    }
+
+    /**
+     * Creates a rule from a custom stencil.
+     *
+     * @param name A name for the rule.
+     * @param stencil The distinct {row, col} offsets a press flips, usually
+     *     including {0, 0} for the pressed tile itself.
+     * @return The rule.
+     * @throws IllegalArgumentException If the stencil is empty or has more
+     *     than 65535 offsets, or the name is longer than 65535 bytes of UTF-8.
+     */
+    public static FlipRule custom(String name, int[][] stencil) {
+        if (stencil.length == 0) {
+            throw new IllegalArgumentException("A rule must flip at least one tile.");
+        }
+        if (stencil.length > MAX_CUSTOM_SIZE) {
+            throw new IllegalArgumentException("A rule may flip at most " + MAX_CUSTOM_SIZE
+                    + " tiles.");
+        }
+        if (name.getBytes(StandardCharsets.UTF_8).length > MAX_CUSTOM_SIZE) {
+            throw new IllegalArgumentException("A rule's name may take at most "
+                    + MAX_CUSTOM_SIZE + " bytes.");
+        }
+        return new FlipRule(name, false, stencil, null);
+    }
+
+    /**
+     * Gets the rule the original game uses for a square board: the plus
+     * shape up to 3x3 and the full block for larger boards.
+     *
+     * @param size The size of the board.
+     * @return The rule.
+     */
+    public static FlipRule classic(int size) {
+        return size > 3 ? BLOCK : PLUS;
+    }
+
+    /**
+     * Looks up a built-in rule by name, as returned by {@link #name()}.
+     *
+     * @param name The name, such as "plus" or "knight-torus".
+     * @return The rule.
+     * @throws IllegalArgumentException If there is no built-in rule with that name.
+     */
+    public static FlipRule named(String name) {
+        boolean torus = name.endsWith(TORUS_SUFFIX);
+        String base = torus ? name.substring(0, name.length() - TORUS_SUFFIX.length()) : name;
+        FlipRule rule;
+        switch (base) {
+            case "plus":
+                rule = PLUS;
+                break;
+            case "block":
+                rule = BLOCK;
+                break;
+            case "cross":
+                rule = CROSS;
+                break;
+            case "knight":
+                rule = KNIGHT;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown flip rule: " + name);
+        }
+        return torus ? rule.toroidal() : rule;
+    }
+
+    /**
+     * Gets the same stencil with the board's edges wrapping around.
+     *
+     * @return The wrapping rule.
+     */
+    public FlipRule toroidal() {
+        if (wraps) {
+            return this;
+        }
+        int[][] stencil = new int[rowOffsets.length][];
+        for (int i = 0; i < stencil.length; i++) {
+            stencil[i] = new int[] {rowOffsets[i], colOffsets[i]};
+        }
+        return new FlipRule(name + TORUS_SUFFIX, true, stencil, this);
+    }
+
+    /**
+     * Gets the same stencil without wrapping, the rule toroidal() was
+     * called on to make this one.
+     *
+     * @return The non-wrapping rule.
+     */
+    FlipRule planar() {
+        return planar;
+    }
+
+    /**
+     * Gets the rule's name.
+     *
+     * @return The name.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Checks whether the board's edges wrap around.
+     *
+     * @return True if the board is a torus, otherwise false.
+     */
+    public boolean wraps() {
+        return wraps;
+    }
+
+    /**
+     * Gets the number of tiles a press flips away from the edges.
+     *
+     * @return The size of the stencil.
+     */
+    public int stencilSize() {
+        return rowOffsets.length;
+    }
+
+    /**
+     * Checks if another object is a rule with the same stencil and wrapping.
+     *
+     * @param other The object to compare.
+     * @return True if the rules flip the same tiles, otherwise false.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof FlipRule)) {
+            return false;
+        }
+        FlipRule rule = (FlipRule) other;
+        return wraps == rule.wraps && Arrays.equals(rowOffsets, rule.rowOffsets)
+                && Arrays.equals(colOffsets, rule.colOffsets);
+    }
+
+    /**
+     * Computes a hash code from the stencil and wrapping.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return (Arrays.hashCode(rowOffsets) * 31 + Arrays.hashCode(colOffsets)) * 2
+                + (wraps ? 1 : 0);
+    }
+
+    /**
+     * Gets the rule's name.
+     *
+     * @return The name.
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1,14 +1,23 @@
 package edu.grinnell.csc207.fliptiles;
 
-import edu.grinnell.csc207.util.MatrixV0;
+import edu.grinnell.csc207.util.BitMatrix;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Represents the game board for GAME
  * Manages tile flipping patterns and checks for game completion.
+ * Tiles are stored as a bitboard (one bit per tile, 64 tiles per long), so
+ * boards up to 8x8 fit in a single word.
  */
 public class GameBoard {
-    private MatrixV0<Boolean> board;
-    private int size;
+    private final FlipKernel kernel;
+    private final long[] tiles;
+    private final int rows;
+    private final int cols;
+    private int lit;
+    private long hash;
+    private ProgressListener listener;
 
     /**
      * Initializes the game board with all tiles set to false (off).
@@ -16,43 +25,68 @@ public class GameBoard {
      * @param size The size of the board (3x3, 4x4, 5x5).
      */
     public GameBoard(int size) {
-        this.size = size;
-        board = new MatrixV0<>(size, size, false);
+        this(FlipKernel.forSize(size));
     }
 
     /**
-     * Flips tiles based on the selected tile's position.
-     * Implements flipping rules for the selected tile.
-     * 
-     * @param row The row of the tile to flip.
-     * @param col The column of the tile to flip.
+     * Initializes a rows x cols board with all tiles off, using the given flip rule.
+     *
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @param rule The flip rule.
      */
-    public void flipTiles(int row, int col) {
-        flipTile(row, col); // Flip the selected tile
-
-        // Flip neighboring tiles based on position
-        if (row > 0) flipTile(row - 1, col);        // Above
-        if (row < size - 1) flipTile(row + 1, col); // Below
-        if (col > 0) flipTile(row, col - 1);        // Left
-        if (col < size - 1) flipTile(row, col + 1); // Right
-
-        // Flip corners or edges depending on rules
-        if (size > 3) {
-            if (row > 0 && col > 0) flipTile(row - 1, col - 1);             // Top-left corner
-            if (row > 0 && col < size - 1) flipTile(row - 1, col + 1);     // Top-right corner
-            if (row < size - 1 && col > 0) flipTile(row + 1, col - 1);     // Bottom-left corner
-            if (row < size - 1 && col < size - 1) flipTile(row + 1, col + 1); // Bottom-right corner
+    public GameBoard(int rows, int cols, FlipRule rule) {
+        this(FlipKernel.of(rule, rows, cols));
+    }
+
+    /**
+     * Initializes a board with all tiles off for a compiled kernel.
+     *
+     * @param kernel The flip kernel.
+     */
+    GameBoard(FlipKernel kernel) {
+        this.kernel = kernel;
+        this.rows = kernel.rows;
+        this.cols = kernel.cols;
+        tiles = new long[kernel.words];
+    }
+
+    /**
+     * Initializes the game board from packed tiles.
+     *
+     * @param kernel The flip kernel.
+     * @param tiles The packed tiles, row by row (copied).
+     */
+    GameBoard(FlipKernel kernel, long[] tiles) {
+        this(kernel);
+        System.arraycopy(tiles, 0, this.tiles, 0, kernel.words);
+        this.tiles[kernel.words - 1] &= kernel.full[kernel.words - 1];
+        for (int w = 0; w < kernel.words; w++) {
+            long word = this.tiles[w];
+            lit += Long.bitCount(word);
+            while (word != 0) {
+                hash ^= kernel.tileKeys[(w << 6) + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
+            }
         }
     }
 
     /**
-     * Flips a tile at the specified position.
+     * Flips tiles based on the selected tile's position.
+     * Implements flipping rules for the selected tile by XORing in the
+     * mask precomputed for that cell, keeping the count of lit tiles current.
      * 
      * @param row The row of the tile to flip.
      * @param col The column of the tile to flip.
+     * @throws IndexOutOfBoundsException If the position is off the board.
      */
-    private void flipTile(int row, int col) {
-        board.set(row, col, !board.get(row, col));
+    public void flipTiles(int row, int col) {
+        int cell = cellAt(row, col);
+        lit += kernel.pressCounting(tiles, cell);
+        hash ^= kernel.pressKeys[cell];
+        if (listener != null) {
+            listener.progressed(lit, kernel.cells);
+        }
     }
 
     /**
@@ -61,24 +95,151 @@ public class GameBoard {
      * @return True if all tiles are flipped, otherwise false.
      */
     public boolean allTilesFlipped() {
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (!board.get(i, j)) return false;
-            }
+        return lit == kernel.cells;
+    }
+
+    /**
+     * Gets the number of tiles still off.
+     *
+     * @return The number of tiles remaining.
+     */
+    public int tilesRemaining() {
+        return kernel.cells - lit;
+    }
+
+    /**
+     * Gets the Zobrist hash of the current tiles: the XOR of a fixed random
+     * key for every tile that is on. It is updated with each press, so this
+     * is O(1), and equal boards of the same shape always hash alike.
+     *
+     * @return The hash.
+     */
+    public long zobristHash() {
+        return hash;
+    }
+
+    /**
+     * Checks if another object is a board of the same shape and rule with
+     * the same tiles on.
+     *
+     * @param other The object to compare.
+     * @return True if the boards are equal, otherwise false.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof GameBoard)) {
+            return false;
         }
-        return true;
+        GameBoard board = (GameBoard) other;
+        return hash == board.hash && rows == board.rows && cols == board.cols
+                && kernel.rule.equals(board.kernel.rule) && Arrays.equals(tiles, board.tiles);
     }
 
     /**
-     * Displays the current board state in ASCII format.
+     * Computes a hash code from the Zobrist hash, in O(1).
+     *
+     * @return The hash code.
      */
-    public void display() {
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                System.out.print(board.get(i, j) ? "1 " : "0 ");
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
+    /**
+     * Sets the listener told about progress after every press.
+     *
+     * @param listener The listener, or null for none.
+     */
+    public void setProgressListener(ProgressListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Checks if the tile at the specified position is flipped on.
+     *
+     * @param row The row of the tile.
+     * @param col The column of the tile.
+     * @return True if the tile is on, otherwise false.
+     * @throws IndexOutOfBoundsException If the position is off the board.
+     */
+    public boolean isFlipped(int row, int col) {
+        int cell = cellAt(row, col);
+        return (tiles[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Copies the board into a bit-packed matrix, for callers that work with
+     * the Matrix interface (such as Matrix.print).
+     *
+     * @return A matrix holding true for every tile that is on.
+     */
+    public BitMatrix toMatrix() {
+        BitMatrix matrix = new BitMatrix(cols, rows);
+        for (int w = 0; w < tiles.length; w++) {
+            long word = tiles[w];
+            while (word != 0) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(word);
+                matrix.setBoolean(cell / cols, cell % cols, true);
+                word &= word - 1;
             }
-            System.out.println();
         }
+        return matrix;
+    }
+
+    /**
+     * Finds a set of cells to press that turns every tile on.
+     *
+     * @return The cells to press, or null if the board cannot be solved.
+     */
+    public Solution solve() {
+        return GameSolver.solve(this);
+    }
+
+    /**
+     * Finds a set of cells to press that turns every tile on using as few presses as possible.
+     *
+     * @return A minimum-press solution, or null if the board cannot be solved.
+     */
+    public Solution solveOptimal() {
+        return GameSolver.solveOptimal(this);
+    }
+
+    /**
+     * Finds every minimum-press set of cells that turns every tile on.
+     *
+     * @return All optimal solutions, or null if the board cannot be solved.
+     */
+    public List<Solution> solveAllOptimal() {
+        return GameSolver.solveAllOptimal(this);
+    }
+
+    /**
+     * Gets the compiled flip pattern for this board.
+     *
+     * @return The flip kernel.
+     */
+    FlipKernel kernel() {
+        return kernel;
+    }
+
+    /**
+     * Gets the packed tiles of this board.
+     *
+     * @return The tile words (not copied).
+     */
+    long[] tiles() {
+        return tiles;
+    }
+
+    /**
+     * Displays the current board state in ASCII format, written to
+     * System.out in a single call.
+     */
+    public void display() {
+        new BoardRenderer(System.out, false).render(this);
     }
 
     /**
@@ -89,6 +250,49 @@ public class GameBoard {
      * @return True if the position is valid, otherwise false.
      */
     public boolean isValidPosition(int row, int col) {
-        return row >= 0 && row < size && col >= 0 && col < size;
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+
+    /**
+     * Finds the row-major index of a position.
+     *
+     * @param row The row.
+     * @param col The column.
+     * @return The index of the cell.
+     * @throws IndexOutOfBoundsException If the position is off the board.
+     */
+    private int cellAt(int row, int col) {
+        if (!isValidPosition(row, col)) {
+            throw new IndexOutOfBoundsException("(" + row + ", " + col + ") is off the "
+                    + rows + "x" + cols + " board.");
+        }
+        return row * cols + col;
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of columns.
+     *
+     * @return The number of columns.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Gets the flip rule this board is played with.
+     *
+     * @return The rule.
+     */
+    public FlipRule getRule() {
+        return kernel.rule;
     }
 }
@@ -5,9 +5,22 @@ package edu.grinnell.csc207.fliptiles;
  * Controls game mechanics such as flipping tiles (for now) and checking for game completion.
  */
 public class GameLogic {
+    /**
+     * The number of moves that can be undone unless a capacity is given.
+     */
+    public static final int DEFAULT_UNDO_CAPACITY = 1024;
+
+    private static final GameMetrics METRICS = GameMetrics.shared();
+
     private GameBoard board;
+    private HintTracker hints;
+    private int hintSearchLimit = GameSolver.MAX_KERNEL_DIMENSION;
+    private BoardRenderer renderer;
+    private final MoveJournal journal;
+    private MoveLog log;
     private int moveCount;
     private long startTime;
+    private boolean completionCounted;
 
     /**
      * Initializes the game logic with the specified board size.
@@ -15,7 +28,48 @@ public class GameLogic {
      * @param size The size of the game board (3x3, 4x4, 5x5).
      */
     public GameLogic(int size) {
-        board = new GameBoard(size);
+        this(size, DEFAULT_UNDO_CAPACITY);
+    }
+
+    /**
+     * Initializes the game logic with the specified board size and undo depth.
+     *
+     * @param size The size of the game board.
+     * @param undoCapacity The most moves that can be undone (0 disables undo).
+     */
+    public GameLogic(int size, int undoCapacity) {
+        this(new GameBoard(size), undoCapacity);
+    }
+
+    /**
+     * Initializes the game logic for a rows x cols board with the given flip rule.
+     *
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @param rule The flip rule.
+     */
+    public GameLogic(int rows, int cols, FlipRule rule) {
+        this(new GameBoard(rows, cols, rule), DEFAULT_UNDO_CAPACITY);
+    }
+
+    /**
+     * Initializes the game logic to play a generated puzzle.
+     *
+     * @param puzzle The puzzle to play.
+     */
+    public GameLogic(Puzzle puzzle) {
+        this(puzzle.toBoard(), DEFAULT_UNDO_CAPACITY);
+    }
+
+    /**
+     * Initializes the game logic to play a board.
+     *
+     * @param board The board, in its starting state.
+     * @param undoCapacity The most moves that can be undone (0 disables undo).
+     */
+    GameLogic(GameBoard board, int undoCapacity) {
+        this.board = board;
+        journal = new MoveJournal(undoCapacity);
         moveCount = 0;
         startTime = System.currentTimeMillis();
     }
@@ -28,28 +82,310 @@ public class GameLogic {
      * @return True if the move is valid, otherwise false.
      */
     public boolean makeMove(int row, int col) {
+        long start = METRICS.start();
         if (!board.isValidPosition(row, col)) {
+            METRICS.invalidMove(start);
             return false;
         }
-        board.flipTiles(row, col);
+        int cell = row * board.kernel().cols + col;
+        press(cell);
+        journal.record(cell);
         moveCount++;
+        if (log != null) {
+            log.append(MoveLog.MOVE, cell);
+        }
+        METRICS.moved(start);
         return true;
     }
 
     /**
-     * Displays the current game board in ASCII format.
+     * Takes back the latest move. Pressing a tile twice restores the board,
+     * so this just presses the same tile again.
+     *
+     * @return True if a move was undone, false if there was none to undo.
+     */
+    public boolean undo() {
+        long start = METRICS.start();
+        int cell = journal.undo();
+        if (cell >= 0) {
+            press(cell);
+            moveCount--;
+            if (log != null) {
+                log.append(MoveLog.UNDO, cell);
+            }
+        }
+        METRICS.undoneOrRedone(start);
+        return cell >= 0;
+    }
+
+    /**
+     * Replays the latest undone move.
+     *
+     * @return True if a move was redone, false if there was none to redo.
+     */
+    public boolean redo() {
+        long start = METRICS.start();
+        int cell = journal.redo();
+        if (cell >= 0) {
+            press(cell);
+            moveCount++;
+            if (log != null) {
+                log.append(MoveLog.REDO, cell);
+            }
+        }
+        METRICS.undoneOrRedone(start);
+        return cell >= 0;
+    }
+
+    /**
+     * Checks if there is a move to undo.
+     *
+     * @return True if undo() would succeed, otherwise false.
+     */
+    public boolean canUndo() {
+        return journal.undoable() > 0;
+    }
+
+    /**
+     * Checks if there is a move to redo.
+     *
+     * @return True if redo() would succeed, otherwise false.
+     */
+    public boolean canRedo() {
+        return journal.redoable() > 0;
+    }
+
+    /**
+     * Applies a press read back from a move log. Undo and redo step through
+     * the journal like the originals did, except that presses made before
+     * the log was started are not in the journal, so those are just pressed.
+     *
+     * @param kind MoveLog.MOVE, UNDO or REDO.
+     * @param cell The index of the pressed cell.
+     */
+    void replay(int kind, int cell) {
+        press(cell);
+        if (kind == MoveLog.MOVE) {
+            journal.record(cell);
+            moveCount++;
+        } else if (kind == MoveLog.UNDO) {
+            journal.undo();
+            moveCount--;
+        } else {
+            journal.redo();
+            moveCount++;
+        }
+    }
+
+    /**
+     * Limits how hard hints try to be part of a shortest solution. Boards
+     * whose null space has more dimensions than the limit get hints from
+     * any solution instead of searching all 2^d of them.
+     *
+     * @param maxDimension The largest null-space dimension to search, from 0
+     *     to GameSolver.MAX_KERNEL_DIMENSION.
+     * @throws IllegalArgumentException If the limit is out of range.
+     */
+    void setHintSearchLimit(int maxDimension) {
+        if (maxDimension < 0 || maxDimension > GameSolver.MAX_KERNEL_DIMENSION) {
+            throw new IllegalArgumentException("Hint search limit out of range: "
+                    + maxDimension);
+        }
+        hintSearchLimit = maxDimension;
+        hints = null;
+    }
+
+    /**
+     * Sets the log that records every move, undo and redo from now on.
+     * The log should have been created from this game's current state, by
+     * MoveLog.create or MoveLog.resume.
+     *
+     * @param log The log, or null to stop logging.
+     */
+    public void setMoveLog(MoveLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Gets the log recording this game's presses.
+     *
+     * @return The log, or null if there is none.
+     */
+    public MoveLog getMoveLog() {
+        return log;
+    }
+
+    /**
+     * Presses a cell and keeps the hints current.
+     *
+     * @param cell The index of the cell to press.
+     */
+    private void press(int cell) {
+        int cols = board.kernel().cols;
+        board.flipTiles(cell / cols, cell % cols);
+        completionCounted = false;
+        if (hints != null) {
+            hints.pressed(cell);
+        }
+    }
+
+    /**
+     * Displays the current game board, through the renderer if one is set
+     * and in ASCII format otherwise.
      */
     public void displayBoard() {
-        board.display();
+        long start = METRICS.start();
+        if (renderer != null) {
+            renderer.render(board);
+        } else {
+            board.display();
+        }
+        METRICS.renderLatency().recordSince(start);
+    }
+
+    /**
+     * Sets the renderer used to display the board.
+     *
+     * @param renderer The renderer, or null to print the whole board each time.
+     */
+    public void setRenderer(BoardRenderer renderer) {
+        this.renderer = renderer;
     }
 
     /**
      * Checks if all tiles have been flipped to the target state, completing the game.
+     * The first check to find the game complete after a press counts it as a
+     * completion in the metrics, so makeMove() itself never checks.
      * 
      * @return True if the game is complete, otherwise false.
      */
     public boolean isGameComplete() {
-        return board.allTilesFlipped();
+        long start = METRICS.start();
+        boolean complete = board.allTilesFlipped();
+        METRICS.completionChecked(start, complete && !completionCounted);
+        completionCounted |= complete;
+        return complete;
+    }
+
+    /**
+     * Gets the number of tiles still to be turned on.
+     *
+     * @return The number of tiles remaining.
+     */
+    public int getTilesRemaining() {
+        return board.tilesRemaining();
+    }
+
+    /**
+     * Sets the listener told about progress after every move.
+     *
+     * @param listener The listener, or null for none.
+     */
+    public void setProgressListener(ProgressListener listener) {
+        board.setProgressListener(listener);
+    }
+
+    /**
+     * Finds a set of cells to press that completes the game from the current state.
+     *
+     * @return The cells to press, or null if the board cannot be solved.
+     */
+    public Solution solve() {
+        long start = METRICS.start();
+        Solution solution = board.solve();
+        METRICS.solveLatency().recordSince(start);
+        return solution;
+    }
+
+    /**
+     * Gets the fewest presses that would complete the game from the current state.
+     * Comparing this (at the start of a game) with getMoveCount() gives the player's
+     * distance from par.
+     *
+     * @return The minimum number of presses, or -1 if the board cannot be solved.
+     */
+    public int getOptimalMoveCount() {
+        long start = METRICS.start();
+        Solution best = board.solveOptimal();
+        METRICS.solveLatency().recordSince(start);
+        return best == null ? -1 : best.getPressCount();
+    }
+
+    /**
+     * Suggests a tile to press next. The board is solved once, on the first
+     * hint request; after that, each move keeps the plan current in O(1).
+     *
+     * @return The position {row, col} to press, or null if the game is complete
+     *     or cannot be completed.
+     */
+    public int[] getHint() {
+        long start = METRICS.start();
+        int[] hint = hints().nextHint();
+        METRICS.solveLatency().recordSince(start);
+        return hint;
+    }
+
+    /**
+     * Gets the number of presses still needed to complete the game by following the hints.
+     *
+     * @return The number of presses remaining, or -1 if the board cannot be solved.
+     */
+    public int getPressesRemaining() {
+        long start = METRICS.start();
+        int remaining = hints().remaining();
+        METRICS.solveLatency().recordSince(start);
+        return remaining;
+    }
+
+    /**
+     * Gets the hint tracker, creating it on first use. Callers time the
+     * creation along with their query.
+     *
+     * @return The hint tracker.
+     */
+    private HintTracker hints() {
+        if (hints == null) {
+            hints = new HintTracker(board, hintSearchLimit);
+        }
+        return hints;
+    }
+
+    /**
+     * Gets the board being played.
+     *
+     * @return The board.
+     */
+    GameBoard board() {
+        return board;
+    }
+
+    /**
+     * Gets the most moves that can be undone.
+     *
+     * @return The undo capacity.
+     */
+    int undoCapacity() {
+        return journal.capacity();
+    }
+
+    /**
+     * Gets the time the game started.
+     *
+     * @return The start time, in milliseconds since the epoch.
+     */
+    long startTime() {
+        return startTime;
+    }
+
+    /**
+     * Restores the move count and start time of a game being rebuilt.
+     *
+     * @param moveCount The number of moves taken.
+     * @param startTime The start time, in milliseconds since the epoch.
+     */
+    void restore(int moveCount, long startTime) {
+        this.moveCount = moveCount;
+        this.startTime = startTime;
     }
 
     /**
@@ -69,4 +405,13 @@ public class GameLogic {
     public long getElapsedTimeInSeconds() {
         return (System.currentTimeMillis() - startTime) / 1000;
     }
+
+    /**
+     * Gets the elapsed time since the start of the game in milliseconds.
+     *
+     * @return The elapsed time in milliseconds.
+     */
+    public long getElapsedTimeInMillis() {
+        return System.currentTimeMillis() - startTime;
+    }
 }
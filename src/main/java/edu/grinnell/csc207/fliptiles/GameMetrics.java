@@ -0,0 +1,279 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters, a gauge and latency histograms for the game's hot paths: making
+ * moves, undoing and redoing them, checking for completion, rendering and
+ * solving. Every game records into the shared instance. Recording never
+ * allocates or blocks, and can be switched off at run time (or from the
+ * start, with -Dfliptiles.metrics=false), after which it costs one volatile
+ * read.
+ *
+ * <p>The metrics can be watched through JMX, under the domain
+ * edu.grinnell.csc207.fliptiles once registerMBeans() has been called, or
+ * printed as text with dump(), optionally on a schedule.
+ */
+public final class GameMetrics implements GameMetricsMBean {
+    /**
+     * What start() returns while recording is off.
+     */
+    static final long OFF = Long.MIN_VALUE;
+
+    private static final String DOMAIN = "edu.grinnell.csc207.fliptiles";
+    private static final GameMetrics SHARED = new GameMetrics(
+            !"false".equalsIgnoreCase(System.getProperty("fliptiles.metrics")));
+
+    private volatile boolean enabled;
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder invalidMoves = new LongAdder();
+    private final LongAdder completions = new LongAdder();
+    private final AtomicLong activeSessions = new AtomicLong();
+    private final LatencyHistogram makeMove = new LatencyHistogram("makeMove");
+    private final LatencyHistogram undoRedo = new LatencyHistogram("undoRedo");
+    private final LatencyHistogram completionCheck = new LatencyHistogram("completionCheck");
+    private final LatencyHistogram render = new LatencyHistogram("render");
+    private final LatencyHistogram solve = new LatencyHistogram("solve");
+    private ScheduledExecutorService dumper;
+    private boolean registered;
+
+    /**
+     * Creates a set of metrics.
+     *
+     * @param enabled Whether to record from the start.
+     */
+    private GameMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the metrics every game records into.
+     *
+     * @return The shared metrics.
+     */
+    public static GameMetrics shared() {
+        return SHARED;
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return The current time in nanoseconds, or OFF if recording is off.
+     */
+    long start() {
+        return enabled ? System.nanoTime() : OFF;
+    }
+
+    /**
+     * Records a valid move and how long it took.
+     *
+     * @param start When the move started, from start().
+     */
+    void moved(long start) {
+        if (start == OFF) {
+            return;
+        }
+        moves.increment();
+        makeMove.recordSince(start);
+    }
+
+    /**
+     * Records a move that was off the board and how long it took to reject.
+     *
+     * @param start When the move started, from start().
+     */
+    void invalidMove(long start) {
+        if (start == OFF) {
+            return;
+        }
+        invalidMoves.increment();
+        makeMove.recordSince(start);
+    }
+
+    /**
+     * Records how long an undo or redo took, whether or not there was a
+     * move to take back or replay.
+     *
+     * @param start When the undo or redo started, from start().
+     */
+    void undoneOrRedone(long start) {
+        if (start != OFF) {
+            undoRedo.recordSince(start);
+        }
+    }
+
+    /**
+     * Records a completion check and how long it took.
+     *
+     * @param start When the check started, from start().
+     * @param completed Whether the check was the first to find the game
+     *     complete since its last press.
+     */
+    void completionChecked(long start, boolean completed) {
+        if (start == OFF) {
+            return;
+        }
+        if (completed) {
+            completions.increment();
+        }
+        completionCheck.recordSince(start);
+    }
+
+    /**
+     * Records that a server session was opened.
+     */
+    void sessionOpened() {
+        activeSessions.incrementAndGet();
+    }
+
+    /**
+     * Records that a server session was closed.
+     */
+    void sessionClosed() {
+        activeSessions.decrementAndGet();
+    }
+
+    /**
+     * Gets the latencies of makeMove calls, on the board or off it.
+     *
+     * @return The histogram.
+     */
+    public LatencyHistogram makeMoveLatency() {
+        return makeMove;
+    }
+
+    /**
+     * Gets the latencies of undo and redo calls.
+     *
+     * @return The histogram.
+     */
+    public LatencyHistogram undoRedoLatency() {
+        return undoRedo;
+    }
+
+    /**
+     * Gets the latencies of completion checks.
+     *
+     * @return The histogram.
+     */
+    public LatencyHistogram completionCheckLatency() {
+        return completionCheck;
+    }
+
+    /**
+     * Gets the latencies of drawing the board.
+     *
+     * @return The histogram.
+     */
+    public LatencyHistogram renderLatency() {
+        return render;
+    }
+
+    /**
+     * Gets the latencies of solving boards, for solutions, par and hints.
+     *
+     * @return The histogram.
+     */
+    public LatencyHistogram solveLatency() {
+        return solve;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    @Override
+    public long getInvalidMoves() {
+        return invalidMoves.sum();
+    }
+
+    @Override
+    public long getCompletions() {
+        return completions.sum();
+    }
+
+    @Override
+    public long getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    @Override
+    public String dump() {
+        return String.format("moves=%d invalidMoves=%d completions=%d activeSessions=%d%s%n"
+                + "%s%n%s%n%s%n%s%n%s%n", getMoves(), getInvalidMoves(), getCompletions(),
+                getActiveSessions(), enabled ? "" : " (recording off)",
+                makeMove, undoRedo, completionCheck, render, solve);
+    }
+
+    @Override
+    public void reset() {
+        moves.reset();
+        invalidMoves.reset();
+        completions.reset();
+        makeMove.reset();
+        undoRedo.reset();
+        completionCheck.reset();
+        render.reset();
+        solve.reset();
+    }
+
+    /**
+     * Registers the metrics and each histogram with the platform MBean
+     * server. Registering again does nothing.
+     *
+     * @throws JMException If the MBeans cannot be registered.
+     */
+    public synchronized void registerMBeans() throws JMException {
+        if (registered) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, new ObjectName(DOMAIN + ":type=GameMetrics"));
+        for (LatencyHistogram histogram
+                : new LatencyHistogram[] {makeMove, undoRedo, completionCheck, render, solve}) {
+            server.registerMBean(histogram,
+                    new ObjectName(DOMAIN + ":type=Latency,name=" + histogram.getName()));
+        }
+        registered = true;
+    }
+
+    /**
+     * Prints dump() to a stream at a fixed rate, on a daemon thread.
+     *
+     * @param out Where to print.
+     * @param periodSeconds The time between dumps.
+     * @return The scheduled task; cancel it to stop dumping.
+     */
+    public synchronized ScheduledFuture<?> startDumping(PrintStream out, long periodSeconds) {
+        if (dumper == null) {
+            dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return dumper.scheduleAtFixedRate(() -> out.print(dump()), periodSeconds,
+                periodSeconds, TimeUnit.SECONDS);
+    }
+}
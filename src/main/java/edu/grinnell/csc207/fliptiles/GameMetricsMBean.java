@@ -0,0 +1,61 @@
+package edu.grinnell.csc207.fliptiles;
+
+/**
+ * The JMX view of GameMetrics.
+ */
+public interface GameMetricsMBean {
+    /**
+     * Checks whether metrics are being recorded.
+     *
+     * @return True if recording, false if recording is a no-op.
+     */
+    boolean isEnabled();
+
+    /**
+     * Turns recording on or off.
+     *
+     * @param enabled Whether to record.
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Gets the number of valid moves made.
+     *
+     * @return The move count.
+     */
+    long getMoves();
+
+    /**
+     * Gets the number of moves rejected as off the board.
+     *
+     * @return The invalid move count.
+     */
+    long getInvalidMoves();
+
+    /**
+     * Gets the number of completed games: the completion checks that found a
+     * game complete for the first time since its last press.
+     *
+     * @return The completion count.
+     */
+    long getCompletions();
+
+    /**
+     * Gets the number of server sessions currently open.
+     *
+     * @return The session count.
+     */
+    long getActiveSessions();
+
+    /**
+     * Describes every metric as text.
+     *
+     * @return The dump.
+     */
+    String dump();
+
+    /**
+     * Zeroes the counters and histograms (but not the session gauge).
+     */
+    void reset();
+}
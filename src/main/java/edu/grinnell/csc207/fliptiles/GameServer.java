@@ -0,0 +1,426 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+
+/**
+ * A headless server hosting many games at once over a line protocol on a
+ * local TCP port. Each connection gets its own thread; any connection may
+ * play any session by id. Sessions idle for longer than the timeout are
+ * dropped. Hints search for a shortest solution only on boards whose null
+ * space has at most HINT_SEARCH_LIMIT dimensions, so no request holds a
+ * connection thread for long.
+ *
+ * <p>Requests and replies are single lines of space-separated words:
+ * <pre>
+ * NEW size              OK id (square board, classic rule)
+ * NEW rows cols [rule]  OK id (rule is a built-in name such as knight-torus)
+ * MOVE id row col       OK moves complete(0|1)
+ * STATE id              OK rows cols moves tiles (row-major 0s and 1s)
+ * HINT id               OK row col, or OK NONE
+ * END id                OK
+ * QUIT                  BYE, then the connection closes
+ * </pre>
+ * Failures reply {@code ERR message}.
+ */
+public class GameServer implements AutoCloseable {
+    /**
+     * The port used when none is given.
+     */
+    public static final int DEFAULT_PORT = 7207;
+
+    /**
+     * The largest board a client may ask for.
+     */
+    static final int MAX_SIZE = 256;
+
+    /**
+     * The largest null-space dimension a hint searches exhaustively (2^16
+     * candidates); past it, hints follow any solution.
+     */
+    static final int HINT_SEARCH_LIMIT = 16;
+
+    /**
+     * The longest the accept loop waits after a failed accept before trying again.
+     */
+    private static final long MAX_ACCEPT_BACKOFF_MILLIS = 1000;
+
+    private static final GameMetrics METRICS = GameMetrics.shared();
+
+    private final ConcurrentHashMap<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final long idleNanos;
+    private final ServerSocket listener;
+    private final ExecutorService connections;
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * One hosted game.
+     */
+    private static final class Session {
+        final GameLogic game;
+        volatile long lastUsed;
+
+        /**
+         * Starts a new game.
+         *
+         * @param game The game.
+         */
+        Session(GameLogic game) {
+            this.game = game;
+            game.setHintSearchLimit(HINT_SEARCH_LIMIT);
+            lastUsed = System.nanoTime();
+        }
+    }
+
+    /**
+     * Starts a server listening on the loopback interface.
+     *
+     * @param port The port to listen on, or 0 for any free port.
+     * @param idleSeconds How long a session may go unused before it is dropped.
+     * @throws IOException If the port cannot be bound.
+     */
+    public GameServer(int port, long idleSeconds) throws IOException {
+        idleNanos = TimeUnit.SECONDS.toNanos(idleSeconds);
+        listener = new ServerSocket();
+        listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        connections = newConnectionExecutor();
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1, idleSeconds / 2);
+        sweeper.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.SECONDS);
+        Thread acceptor = new Thread(this::acceptLoop, "game-server-accept");
+        acceptor.start();
+    }
+
+    /**
+     * Gets the port the server is listening on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return listener.getLocalPort();
+    }
+
+    /**
+     * Gets the number of live sessions.
+     *
+     * @return The session count.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Stops accepting connections, closes the open ones and shuts the server down.
+     *
+     * @throws IOException If the listening socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        listener.close();
+        sweeper.shutdownNow();
+        connections.shutdownNow();
+        for (Socket client : clients) {
+            closeQuietly(client);
+        }
+        for (Long id : sessions.keySet()) {
+            if (sessions.remove(id) != null) {
+                METRICS.sessionClosed();
+            }
+        }
+    }
+
+    /**
+     * Creates an executor that runs each task on a fresh thread: a virtual
+     * thread when the runtime has them (Java 21 and later), otherwise a
+     * pooled daemon platform thread.
+     *
+     * @return The executor.
+     */
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Hands each incoming connection to its own thread until the listener closes.
+     * Accepts that fail while the listener is open (for example, when the process
+     * is out of file descriptors) are retried after a delay that doubles with each
+     * consecutive failure, up to a second.
+     */
+    private void acceptLoop() {
+        long backoff = 0;
+        while (!listener.isClosed()) {
+            try {
+                Socket socket = listener.accept();
+                backoff = 0;
+                clients.add(socket);
+                if (listener.isClosed()) {
+                    // close() may already have swept the clients.
+                    closeQuietly(socket);
+                    return;
+                }
+                try {
+                    connections.execute(() -> serve(socket));
+                } catch (RejectedExecutionException e) {
+                    closeQuietly(socket);
+                }
+            } catch (IOException e) {
+                if (listener.isClosed()) {
+                    return;
+                }
+                backoff = Math.min(MAX_ACCEPT_BACKOFF_MILLIS, Math.max(1, backoff * 2));
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers requests on one connection until the client quits or disconnects.
+     * Replies are flushed only when no further request is already buffered,
+     * so pipelining clients get batched writes.
+     *
+     * @param socket The client connection.
+     */
+    private void serve(Socket socket) {
+        try (socket;
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                        socket.getInputStream(), StandardCharsets.US_ASCII));
+                Writer out = new BufferedWriter(new OutputStreamWriter(
+                        socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            StringBuilder reply = new StringBuilder(64);
+            String line;
+            while ((line = in.readLine()) != null) {
+                reply.setLength(0);
+                boolean open = handle(line, reply);
+                out.append(reply).append('\n');
+                if (!open) {
+                    break;
+                }
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // The client went away; its sessions live on until they idle out.
+        } finally {
+            clients.remove(socket);
+        }
+    }
+
+    /**
+     * Closes a client connection, ignoring failures, and stops tracking it.
+     *
+     * @param socket The connection.
+     */
+    private void closeQuietly(Socket socket) {
+        clients.remove(socket);
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing more can be done with it.
+        }
+    }
+
+    /**
+     * Carries out one request.
+     *
+     * @param line The request.
+     * @param reply Where to write the reply.
+     * @return False if the connection should close, otherwise true.
+     */
+    boolean handle(String line, StringBuilder reply) {
+        String[] words = line.trim().split("\\s+");
+        try {
+            switch (words[0].toUpperCase()) {
+                case "NEW":
+                    int rows = Integer.parseInt(words[1]);
+                    int cols = words.length > 2 ? Integer.parseInt(words[2]) : rows;
+                    if (rows < 1 || rows > MAX_SIZE || cols < 1 || cols > MAX_SIZE) {
+                        reply.append("ERR size must be between 1 and ").append(MAX_SIZE);
+                        break;
+                    }
+                    FlipRule rule = words.length > 3 ? FlipRule.named(words[3])
+                            : rows == cols ? FlipRule.classic(rows) : FlipRule.PLUS;
+                    long id = nextId.getAndIncrement();
+                    sessions.put(id, new Session(new GameLogic(rows, cols, rule)));
+                    METRICS.sessionOpened();
+                    reply.append("OK ").append(id);
+                    break;
+                case "MOVE":
+                    move(session(words[1]), Integer.parseInt(words[2]),
+                            Integer.parseInt(words[3]), reply);
+                    break;
+                case "STATE":
+                    state(session(words[1]), reply);
+                    break;
+                case "HINT":
+                    hint(session(words[1]), reply);
+                    break;
+                case "END":
+                    if (sessions.remove(Long.parseLong(words[1])) == null) {
+                        throw new IllegalArgumentException("no such session");
+                    }
+                    METRICS.sessionClosed();
+                    reply.append("OK");
+                    break;
+                case "QUIT":
+                    reply.append("BYE");
+                    return false;
+                default:
+                    reply.append("ERR unknown command");
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            reply.setLength(0);
+            reply.append("ERR missing argument");
+        } catch (IllegalArgumentException e) {
+            reply.setLength(0);
+            reply.append("ERR ").append(e instanceof NumberFormatException
+                    ? "bad number" : e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Looks up a session and marks it used.
+     *
+     * @param id The session id, as sent by the client.
+     * @return The session.
+     * @throws IllegalArgumentException If there is no such session.
+     */
+    private Session session(String id) {
+        Session session = sessions.get(Long.parseLong(id));
+        if (session == null) {
+            throw new IllegalArgumentException("no such session");
+        }
+        session.lastUsed = System.nanoTime();
+        return session;
+    }
+
+    /**
+     * Presses a tile in a session's game.
+     *
+     * @param session The session.
+     * @param row The row to press.
+     * @param col The column to press.
+     * @param reply Where to write the reply.
+     */
+    private static void move(Session session, int row, int col, StringBuilder reply) {
+        synchronized (session) {
+            if (!session.game.makeMove(row, col)) {
+                reply.append("ERR invalid move");
+                return;
+            }
+            reply.append("OK ").append(session.game.getMoveCount())
+                    .append(session.game.isGameComplete() ? " 1" : " 0");
+        }
+    }
+
+    /**
+     * Describes a session's game.
+     *
+     * @param session The session.
+     * @param reply Where to write the reply.
+     */
+    private static void state(Session session, StringBuilder reply) {
+        synchronized (session) {
+            GameBoard board = session.game.board();
+            reply.append("OK ").append(board.getRows()).append(' ').append(board.getCols())
+                    .append(' ').append(session.game.getMoveCount()).append(' ');
+            for (int row = 0; row < board.getRows(); row++) {
+                for (int col = 0; col < board.getCols(); col++) {
+                    reply.append(board.isFlipped(row, col) ? '1' : '0');
+                }
+            }
+        }
+    }
+
+    /**
+     * Suggests the next press in a session's game.
+     *
+     * @param session The session.
+     * @param reply Where to write the reply.
+     */
+    private static void hint(Session session, StringBuilder reply) {
+        synchronized (session) {
+            int[] hint = session.game.getHint();
+            if (hint == null) {
+                reply.append("OK NONE");
+            } else {
+                reply.append("OK ").append(hint[0]).append(' ').append(hint[1]);
+            }
+        }
+    }
+
+    /**
+     * Drops every session that has gone unused for longer than the idle timeout.
+     */
+    private void evictIdle() {
+        long cutoff = System.nanoTime() - idleNanos;
+        for (Map.Entry<Long, Session> entry : sessions.entrySet()) {
+            if (entry.getValue().lastUsed - cutoff < 0
+                    && sessions.remove(entry.getKey(), entry.getValue())) {
+                METRICS.sessionClosed();
+            }
+        }
+    }
+
+    /**
+     * Runs a server until the process is killed, publishing the metrics over
+     * JMX and, if a dump interval is given, printing them periodically.
+     *
+     * @param args Optionally, the port, the idle timeout in seconds, and the
+     *     seconds between metrics dumps.
+     * @throws IOException If the port cannot be bound.
+     * @throws JMException If the metrics cannot be published.
+     */
+    public static void main(String[] args) throws IOException, JMException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        long idle = args.length > 1 ? Long.parseLong(args[1]) : 600;
+        GameServer server = new GameServer(port, idle);
+        METRICS.registerMBeans();
+        if (args.length > 2) {
+            METRICS.startDumping(System.out, Long.parseLong(args[2]));
+        }
+        System.out.println("Serving games on port " + server.getPort());
+    }
+}
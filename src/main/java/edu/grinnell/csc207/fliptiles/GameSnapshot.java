@@ -0,0 +1,235 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Saves games to, and restores them from, a compact binary snapshot:
+ * <pre>
+ * int    magic
+ * short  version
+ * byte   flip rule: 1 plus, 2 block, 3 cross, 4 knight or 0 custom,
+ *        plus 0x80 if the board wraps
+ * byte   0
+ * int    rows
+ * int    columns
+ * int    move count
+ * long   elapsed milliseconds
+ *        (custom rules only) short name length, UTF-8 name,
+ *        short offset count, and an int row and column per offset
+ * bytes  the tiles, one bit each in row-major order, low bit first
+ * int    CRC-32C of everything before it
+ * </pre>
+ * all little-endian, so a 5x5 game with a built-in rule takes 36 bytes.
+ * Snapshots are decoded straight out of the buffer they are stored in
+ * (which may be direct or mapped) with absolute reads, so loading one costs
+ * the new board and nothing else, and many can be packed one after another
+ * in the same buffer.
+ *
+ * <p>A snapshot holds what is needed to carry on playing: undo history and
+ * hints are not saved, and a restored game starts with an empty journal.
+ */
+public final class GameSnapshot {
+    private static final int MAGIC = 0x4E535446;
+    private static final short VERSION = 1;
+    private static final int FIXED = 28;
+    private static final int WRAPS = 0x80;
+    private static final FlipRule[] BUILT_IN = {
+        null, FlipRule.PLUS, FlipRule.BLOCK, FlipRule.CROSS, FlipRule.KNIGHT};
+
+    /**
+     * Prevents instantiation.
+     */
+    private GameSnapshot() {
+    }
+
+    /**
+     * Gets the size of a game's snapshot.
+     *
+     * @param game The game.
+     * @return The number of bytes write() would store.
+     */
+    public static int size(GameLogic game) {
+        GameBoard board = game.board();
+        return FIXED + customSize(board.getRule()) + (board.kernel().cells + 7) / 8
+                + Integer.BYTES;
+    }
+
+    /**
+     * Takes a snapshot of a game.
+     *
+     * @param game The game.
+     * @return The snapshot.
+     */
+    public static byte[] toBytes(GameLogic game) {
+        byte[] bytes = new byte[size(game)];
+        write(game, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    /**
+     * Writes a snapshot of a game at the buffer's position, and advances the
+     * position past it.
+     *
+     * @param game The game.
+     * @param out The buffer.
+     * @throws BufferOverflowException If the snapshot does not fit.
+     */
+    public static void write(GameLogic game, ByteBuffer out) {
+        int size = size(game);
+        if (out.remaining() < size) {
+            throw new BufferOverflowException();
+        }
+        GameBoard board = game.board();
+        FlipRule rule = board.getRule();
+        ByteOrder order = out.order();
+        int start = out.position();
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putShort(VERSION);
+        out.put((byte) (ruleCode(rule) | (rule.wraps() ? WRAPS : 0))).put((byte) 0);
+        out.putInt(board.getRows()).putInt(board.getCols()).putInt(game.getMoveCount());
+        out.putLong(System.currentTimeMillis() - game.startTime());
+        if (ruleCode(rule) == 0) {
+            // FlipRule.custom keeps both counts within an unsigned short.
+            byte[] name = rule.planar().name().getBytes(StandardCharsets.UTF_8);
+            out.putShort((short) name.length).put(name).putShort((short) rule.stencilSize());
+            for (int i = 0; i < rule.stencilSize(); i++) {
+                out.putInt(rule.rowOffsets[i]).putInt(rule.colOffsets[i]);
+            }
+        }
+        long[] tiles = board.tiles();
+        int bytes = (board.kernel().cells + 7) / 8;
+        int w = 0;
+        for (; (w + 1) * Long.BYTES <= bytes; w++) {
+            out.putLong(tiles[w]);
+        }
+        for (int b = w * Long.BYTES; b < bytes; b++) {
+            out.put((byte) (tiles[w] >>> ((b & 7) << 3)));
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(out.slice(start, out.position() - start));
+        out.putInt((int) crc.getValue());
+        out.order(order);
+    }
+
+    /**
+     * Restores a game from the snapshot at the buffer's position, and
+     * advances the position past it.
+     *
+     * @param in The buffer.
+     * @return The game, with the default undo capacity.
+     * @throws IllegalArgumentException If the buffer does not hold a good snapshot.
+     */
+    public static GameLogic read(ByteBuffer in) {
+        return read(in, GameLogic.DEFAULT_UNDO_CAPACITY);
+    }
+
+    /**
+     * Restores a game from the snapshot at the buffer's position, and
+     * advances the position past it. On failure the position is unchanged.
+     *
+     * @param in The buffer.
+     * @param undoCapacity The most moves the restored game can undo.
+     * @return The game.
+     * @throws IllegalArgumentException If the buffer does not hold a good snapshot.
+     */
+    public static GameLogic read(ByteBuffer in, int undoCapacity) {
+        int start = in.position();
+        int limit = in.limit();
+        if (limit - start < FIXED + Integer.BYTES) {
+            throw new IllegalArgumentException("Snapshot is truncated.");
+        }
+        ByteBuffer buf = in.order() == ByteOrder.LITTLE_ENDIAN ? in
+                : in.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.getInt(start) != MAGIC) {
+            throw new IllegalArgumentException("Not a game snapshot.");
+        }
+        if (buf.getShort(start + 4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version "
+                    + buf.getShort(start + 4) + ".");
+        }
+        int code = buf.get(start + 6) & 0xFF;
+        int rows = buf.getInt(start + 8);
+        int cols = buf.getInt(start + 12);
+        int moves = buf.getInt(start + 16);
+        long elapsed = buf.getLong(start + 20);
+        if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE
+                || (code & ~WRAPS) >= BUILT_IN.length) {
+            throw new IllegalArgumentException("Corrupt snapshot.");
+        }
+        int at = start + FIXED;
+        FlipRule rule = BUILT_IN[code & ~WRAPS];
+        try {
+            if (rule == null) {
+                byte[] name = new byte[buf.getShort(at) & 0xFFFF];
+                buf.get(at + Short.BYTES, name);
+                at += Short.BYTES + name.length;
+                int[][] stencil = new int[buf.getShort(at) & 0xFFFF][];
+                at += Short.BYTES;
+                for (int i = 0; i < stencil.length; i++, at += 2 * Integer.BYTES) {
+                    stencil[i] = new int[] {buf.getInt(at), buf.getInt(at + Integer.BYTES)};
+                }
+                rule = FlipRule.custom(new String(name, StandardCharsets.UTF_8), stencil);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Snapshot is truncated.", e);
+        }
+        if ((code & WRAPS) != 0) {
+            rule = rule.toroidal();
+        }
+        int bytes = (int) (((long) rows * cols + 7) / 8);
+        if (limit - at < (long) bytes + Integer.BYTES) {
+            throw new IllegalArgumentException("Snapshot is truncated.");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buf.slice(start, at + bytes - start));
+        if ((int) crc.getValue() != buf.getInt(at + bytes)) {
+            throw new IllegalArgumentException("Snapshot checksum does not match.");
+        }
+        FlipKernel kernel = FlipKernel.of(rule, rows, cols);
+        long[] tiles = new long[kernel.words];
+        int w = 0;
+        for (; (w + 1) * Long.BYTES <= bytes; w++) {
+            tiles[w] = buf.getLong(at + w * Long.BYTES);
+        }
+        for (int b = w * Long.BYTES; b < bytes; b++) {
+            tiles[w] |= (buf.get(at + b) & 0xFFL) << ((b & 7) << 3);
+        }
+        in.position(at + bytes + Integer.BYTES);
+        GameLogic game = new GameLogic(new GameBoard(kernel, tiles), undoCapacity);
+        game.restore(moves, System.currentTimeMillis() - elapsed);
+        return game;
+    }
+
+    /**
+     * Gets the code stored for a rule's stencil.
+     *
+     * @param rule The rule.
+     * @return 1 to 4 for a built-in stencil, or 0 for a custom one.
+     */
+    private static int ruleCode(FlipRule rule) {
+        for (int code = 1; code < BUILT_IN.length; code++) {
+            if (BUILT_IN[code].equals(rule.planar())) {
+                return code;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the number of bytes a rule adds to the fixed part of a snapshot.
+     *
+     * @param rule The rule.
+     * @return The size of the custom stencil, or 0 for a built-in one.
+     */
+    private static int customSize(FlipRule rule) {
+        if (ruleCode(rule) != 0) {
+            return 0;
+        }
+        return 2 * Short.BYTES + rule.planar().name().getBytes(StandardCharsets.UTF_8).length
+                + 2 * Integer.BYTES * rule.stencilSize();
+    }
+}
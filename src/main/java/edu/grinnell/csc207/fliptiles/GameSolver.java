@@ -0,0 +1,212 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Solves boards by treating them as a linear system over GF(2).
+ * Pressing a cell twice undoes it and presses commute, so a solution is just a
+ * set of cells x with A x = b, where column j of the toggle matrix A is the
+ * press mask of cell j and b marks the tiles that are currently off.
+ */
+public final class GameSolver {
+    /**
+     * The largest null-space dimension the optimal search will enumerate (2^30 candidates).
+     */
+    public static final int MAX_KERNEL_DIMENSION = 30;
+
+    /**
+     * Boards with at most this many tiles are solved through the shared
+     * SolverCache; larger ones get a fresh banded elimination, since their
+     * dense pseudo-inverse would cost more to build and hold than it saves.
+     */
+    public static final int CACHED_CELL_LIMIT = 64 * 64;
+
+    /**
+     * Prevents instantiation; all methods are static.
+     */
+    private GameSolver() {
+    }
+
+    /**
+     * Finds a set of cells to press that turns every tile on.
+     *
+     * @param board The board to solve.
+     * @return The cells to press, or null if the board cannot be solved.
+     */
+    public static Solution solve(GameBoard board) {
+        FlipKernel kernel = board.kernel();
+        if (kernel.cells <= CACHED_CELL_LIMIT) {
+            return SolverCache.shared().solve(board);
+        }
+        ToggleEchelon echelon = new ToggleEchelon(kernel, offTiles(board));
+        long[] presses = echelon.particularSolution();
+        return presses == null ? null : new Solution(kernel.cols, presses);
+    }
+
+    /**
+     * Finds a solution with the fewest possible presses.
+     * When the toggle matrix is singular there are 2^d solutions (d being the
+     * dimension of its null space), and this searches all of them.
+     *
+     * @param board The board to solve.
+     * @return A minimum-press solution, or null if the board cannot be solved.
+     * @throws IllegalStateException If the null space has more than
+     *     MAX_KERNEL_DIMENSION dimensions.
+     */
+    public static Solution solveOptimal(GameBoard board) {
+        List<Solution> best = optimal(board, false);
+        return best == null ? null : best.get(0);
+    }
+
+    /**
+     * Finds every solution with the fewest possible presses.
+     *
+     * @param board The board to solve.
+     * @return All minimum-press solutions, or null if the board cannot be solved.
+     * @throws IllegalStateException If the null space has more than
+     *     MAX_KERNEL_DIMENSION dimensions.
+     */
+    public static List<Solution> solveAllOptimal(GameBoard board) {
+        return optimal(board, true);
+    }
+
+    /**
+     * Reduces the board's system and searches its solution coset.
+     *
+     * @param board The board to solve.
+     * @param all Whether to collect every optimal solution or just one.
+     * @return The optimal solutions, or null if the board cannot be solved.
+     */
+    private static List<Solution> optimal(GameBoard board, boolean all) {
+        FlipKernel kernel = board.kernel();
+        long[] particular;
+        long[][] basis;
+        if (kernel.cells <= CACHED_CELL_LIMIT) {
+            SolutionOperator operator = SolverCache.shared().operatorFor(kernel);
+            particular = operator.apply(offTiles(board));
+            basis = operator.kernelBasis();
+        } else {
+            ToggleEchelon echelon = new ToggleEchelon(kernel, offTiles(board));
+            particular = echelon.particularSolution();
+            basis = particular == null ? null : echelon.kernelBasis();
+        }
+        if (particular == null) {
+            return null;
+        }
+        List<Solution> solutions = new ArrayList<>();
+        for (long[] presses : minimize(particular, basis, all)) {
+            solutions.add(new Solution(kernel.cols, presses));
+        }
+        return solutions;
+    }
+
+    /**
+     * Searches particular + span(basis) for the vectors of least weight.
+     * Candidates are visited in Gray-code order, so each step XORs in a single
+     * basis vector and adjusts the popcount over just the words that vector
+     * touches. Only the Gray-code indices of the best candidates are kept; the
+     * vectors themselves are rebuilt at the end, so the loop allocates nothing.
+     *
+     * @param particular One solution.
+     * @param basis A basis of the null space.
+     * @param all Whether to return every optimal vector or just the first one found.
+     * @return The optimal press vectors.
+     * @throws IllegalStateException If the basis has more than MAX_KERNEL_DIMENSION vectors.
+     */
+    static List<long[]> minimize(long[] particular, long[][] basis, boolean all) {
+        int dimension = basis.length;
+        if (dimension > MAX_KERNEL_DIMENSION) {
+            throw new IllegalStateException("Null space of dimension " + dimension
+                    + " is too large to search exhaustively.");
+        }
+        int[] lo = new int[dimension];
+        int[] hi = new int[dimension];
+        for (int k = 0; k < dimension; k++) {
+            long[] vector = basis[k];
+            lo[k] = vector.length;
+            for (int w = 0; w < vector.length; w++) {
+                if (vector[w] != 0) {
+                    lo[k] = Math.min(lo[k], w);
+                    hi[k] = w + 1;
+                }
+            }
+        }
+
+        long[] x = particular.clone();
+        int weight = 0;
+        for (long word : x) {
+            weight += Long.bitCount(word);
+        }
+        int bestWeight = weight;
+        long[] bestCodes = new long[4];
+        int bestCount = 1;
+        long limit = 1L << dimension;
+        for (long step = 1; step < limit; step++) {
+            int k = Long.numberOfTrailingZeros(step);
+            long[] vector = basis[k];
+            for (int w = lo[k]; w < hi[k]; w++) {
+                long old = x[w];
+                long updated = old ^ vector[w];
+                weight += Long.bitCount(updated) - Long.bitCount(old);
+                x[w] = updated;
+            }
+            if (weight < bestWeight) {
+                bestWeight = weight;
+                bestCodes[0] = step ^ (step >>> 1);
+                bestCount = 1;
+            } else if (all && weight == bestWeight) {
+                if (bestCount == bestCodes.length) {
+                    bestCodes = Arrays.copyOf(bestCodes, bestCount * 2);
+                }
+                bestCodes[bestCount++] = step ^ (step >>> 1);
+            }
+        }
+
+        List<long[]> result = new ArrayList<>(bestCount);
+        for (int i = 0; i < bestCount; i++) {
+            long[] vector = particular.clone();
+            long code = bestCodes[i];
+            while (code != 0) {
+                long[] kernelVector = basis[Long.numberOfTrailingZeros(code)];
+                for (int w = 0; w < vector.length; w++) {
+                    vector[w] ^= kernelVector[w];
+                }
+                code &= code - 1;
+            }
+            result.add(vector);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the dimension of a kernel's null space; zero means every board
+     * of that shape has exactly one solution.
+     *
+     * @param kernel The flip kernel.
+     * @return The null-space dimension.
+     */
+    static int kernelDimension(FlipKernel kernel) {
+        if (kernel.cells <= CACHED_CELL_LIMIT) {
+            return SolverCache.shared().operatorFor(kernel).kernelDimension();
+        }
+        return new ToggleEchelon(kernel, new long[kernel.words]).freeColumns();
+    }
+
+    /**
+     * Computes the packed set of tiles that are still off.
+     *
+     * @param board The board.
+     * @return The tiles that need an odd number of flips.
+     */
+    static long[] offTiles(GameBoard board) {
+        long[] tiles = board.tiles();
+        long[] full = board.kernel().full;
+        long[] off = new long[full.length];
+        for (int w = 0; w < full.length; w++) {
+            off[w] = ~tiles[w] & full[w];
+        }
+        return off;
+    }
+}
@@ -1,5 +1,8 @@
 package edu.grinnell.csc207.fliptiles;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Scanner;
 
 /**
@@ -7,6 +10,12 @@ import java.util.Scanner;
  * Manages game flow, user input, and displays game state.
  */
 public class GameUI {
+    /**
+     * The system property naming the leaderboard file. Results are only kept
+     * if it is set.
+     */
+    public static final String LEADERBOARD_PROPERTY = "fliptiles.leaderboard";
+
     private GameLogic game;
     private Scanner scanner;
 
@@ -29,33 +38,85 @@ public class GameUI {
         int size = (difficulty == 1) ? 3 : (difficulty == 2) ? 4 : 5;
 
         game = new GameLogic(size);
+        game.setRenderer(new BoardRenderer(System.out, ansiTerminal()));
 
         System.out.println("Flip all the tiles to complete the game. Enter row and column to flip.");
 
+        String message = null;
         while (!game.isGameComplete()) {
             game.displayBoard();
+            if (message != null) {
+                System.out.println(message);
+                message = null;
+            }
             System.out.print("Enter row: ");
             int row = scanner.nextInt();
             System.out.print("Enter col: ");
             int col = scanner.nextInt();
 
             if (!game.makeMove(row, col)) {
-                System.out.println("Invalid move. Try again.");
-                continue;
+                message = "Invalid move. Try again.";
             }
         }
 
         System.out.println("Congratulations! You've completed the game.");
         System.out.println("Moves taken: " + game.getMoveCount());
         System.out.println("Time taken: " + game.getElapsedTimeInSeconds() + " seconds.");
+        String leaderboardFile = System.getProperty(LEADERBOARD_PROPERTY);
+        if (leaderboardFile != null && !leaderboardFile.isEmpty()) {
+            recordResult(Path.of(leaderboardFile));
+        }
+    }
+
+    /**
+     * Asks for the player's name, adds the result to the leaderboard, and
+     * shows the top results for the board.
+     *
+     * @param file The leaderboard's log file.
+     */
+    private void recordResult(Path file) {
+        System.out.print("Enter your name for the leaderboard: ");
+        String name = scanner.next();
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            int rank = leaderboard.submit(name, game);
+            GameBoard board = game.board();
+            Leaderboard.Board results = leaderboard.board(board.getRows(), board.getCols(),
+                    board.getRule());
+            System.out.println("Your best is #" + rank + " of " + results.size() + ". Top 5:");
+            int place = 1;
+            for (Leaderboard.Entry entry : results.top(5)) {
+                System.out.println(place++ + ". " + entry.player() + ": " + entry.moves()
+                        + " moves, " + entry.millis() / 1000 + " seconds");
+            }
+        } catch (IOException e) {
+            System.out.println("Could not update the leaderboard: " + e.getMessage());
+        }
     }
     
     /**
-     * Main method to start the game.
+     * Checks whether output goes to a terminal that understands ANSI cursor
+     * movement, so the board can be redrawn in place.
+     *
+     * @return True if ANSI redraws should be used, otherwise false.
+     */
+    private static boolean ansiTerminal() {
+        String term = System.getenv("TERM");
+        return System.console() != null && term != null && !term.equals("dumb");
+    }
+
+    /**
+     * Main method to start the game. With "--batch [file]" the game is not
+     * interactive; instead the scripted games in the file (or on standard
+     * input) are replayed by a BatchRunner.
      * 
-     * @param args Command line arguments (not used).
+     * @param args Command line arguments.
+     * @throws IOException If a batch script cannot be read.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         GameUI ui = new GameUI();
         ui.startGame();
     }
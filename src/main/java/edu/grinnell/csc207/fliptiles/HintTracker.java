@@ -0,0 +1,126 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the remaining solution of a board up to date as moves are played.
+ * Pressing cell c changes the target by exactly the mask of c, so if x solves
+ * the board before the press then x with bit c flipped solves it after. The
+ * set bits are also kept in a sparse set, so both the next hint and the number
+ * of presses remaining are O(1) per query and per move.
+ * When the toggle matrix is singular, a press outside the plan can leave a
+ * longer-than-necessary vector, so the tracker re-minimises it on the next query
+ * (through the cached operator for the board's shape). Null spaces too large to
+ * search get any solution instead, which following the hints still finishes.
+ */
+class HintTracker {
+    private final GameBoard board;
+    private final int cols;
+    private final boolean singular;
+    private final boolean exhaustive;
+    private final int[] members;
+    private final int[] position;
+    private int count;
+    private boolean solvable;
+    private boolean stale;
+
+    /**
+     * Solves the board and starts tracking its solution.
+     *
+     * @param board The board to track.
+     * @param maxSearchDimension The largest null-space dimension to search
+     *     for a shortest solution.
+     */
+    HintTracker(GameBoard board, int maxSearchDimension) {
+        this.board = board;
+        FlipKernel kernel = board.kernel();
+        this.cols = kernel.cols;
+        int dimension = GameSolver.kernelDimension(kernel);
+        this.singular = dimension > 0;
+        this.exhaustive = dimension <= maxSearchDimension;
+        this.members = new int[kernel.cells];
+        this.position = new int[kernel.cells];
+        recompute();
+    }
+
+    /**
+     * Records a press at a cell.
+     *
+     * @param cell The index of the pressed cell.
+     */
+    void pressed(int cell) {
+        if (!solvable) {
+            return;
+        }
+        int at = position[cell];
+        if (at >= 0) {
+            // Following the plan keeps the remaining vector optimal.
+            int last = members[--count];
+            members[at] = last;
+            position[last] = at;
+            position[cell] = -1;
+        } else {
+            position[cell] = count;
+            members[count++] = cell;
+            stale |= singular && exhaustive;
+        }
+    }
+
+    /**
+     * Gets a cell that is part of the remaining solution.
+     *
+     * @return The position {row, col}, or null if the board is solved or cannot be solved.
+     */
+    int[] nextHint() {
+        refresh();
+        if (!solvable || count == 0) {
+            return null;
+        }
+        int cell = members[count - 1];
+        return new int[] {cell / cols, cell % cols};
+    }
+
+    /**
+     * Gets the number of presses left in the remaining solution.
+     *
+     * @return The number of presses, or -1 if the board cannot be solved.
+     */
+    int remaining() {
+        refresh();
+        return solvable ? count : -1;
+    }
+
+    /**
+     * Re-minimises the remaining vector if an off-plan press may have lengthened it.
+     */
+    private void refresh() {
+        if (stale) {
+            recompute();
+        }
+    }
+
+    /**
+     * Solves the board from scratch and reloads the sparse set.
+     */
+    private void recompute() {
+        Solution solution = exhaustive ? GameSolver.solveOptimal(board)
+                : GameSolver.solve(board);
+        Arrays.fill(position, -1);
+        count = 0;
+        stale = false;
+        solvable = solution != null;
+        if (!solvable) {
+            return;
+        }
+        long[] presses = solution.presses();
+        for (int w = 0; w < presses.length; w++) {
+            long word = presses[w];
+            while (word != 0) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(word);
+                position[cell] = count;
+                members[count++] = cell;
+                word &= word - 1;
+            }
+        }
+    }
+}
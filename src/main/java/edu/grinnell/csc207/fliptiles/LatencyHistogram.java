@@ -0,0 +1,178 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies in nanoseconds, in the style of HdrHistogram.
+ * Values below 256 get a bucket each; above that, each power of two is split
+ * into 128 equal buckets, so every recorded value is kept to within 1% up to
+ * about 18 minutes (longer values are clamped). Recording is an atomic
+ * increment of a preallocated bucket plus updates to the running sum and
+ * maximum, so it never allocates or blocks and may be done from any number
+ * of threads.
+ *
+ * <p>Percentiles are read from the counts as they stand, and report the
+ * highest value in the percentile's bucket. Reading while other threads
+ * record gives a close but not exact picture.
+ */
+public final class LatencyHistogram implements LatencyHistogramMBean {
+    private static final int PRECISION_BITS = 7;
+    private static final long MAX_VALUE = (1L << 40) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Creates an empty histogram.
+     *
+     * @param name What the histogram measures.
+     */
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(index(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Records the time since a timer was started, unless metrics were
+     * disabled when it was.
+     *
+     * @param start The result of GameMetrics.start().
+     */
+    void recordSince(long start) {
+        if (start != GameMetrics.OFF) {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Gets what the histogram measures.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    @Override
+    public long getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : sum.sum() / count;
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return percentile(50);
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return percentile(99);
+    }
+
+    @Override
+    public long getP999Nanos() {
+        return percentile(99.9);
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Finds the latency below which a given share of recorded values fall.
+     *
+     * @param percent The percentile, from 0 to 100.
+     * @return The latency in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public long percentile(double percent) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestInBucket(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * Summarizes the histogram on one line.
+     *
+     * @return The count, mean, percentiles and maximum.
+     */
+    @Override
+    public String toString() {
+        return String.format("%-16s count=%d mean=%dns p50=%dns p99=%dns p99.9=%dns max=%dns",
+                name, getCount(), getMeanNanos(), getP50Nanos(), getP99Nanos(),
+                getP999Nanos(), getMaxNanos());
+    }
+
+    /**
+     * Finds the bucket for a value: the value itself below 256, and otherwise
+     * the top eight bits of the value and how far they were shifted.
+     *
+     * @param value A value from 0 to MAX_VALUE.
+     * @return The index of its bucket.
+     */
+    private static int index(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value | 1) - PRECISION_BITS);
+        return (shift << PRECISION_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Finds the highest value that falls in a bucket.
+     *
+     * @param index The index of the bucket.
+     * @return The value.
+     */
+    private static long highestInBucket(int index) {
+        int shift = Math.max(0, (index >>> PRECISION_BITS) - 1);
+        long top = index - ((long) shift << PRECISION_BITS);
+        return ((top + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,53 @@
+package edu.grinnell.csc207.fliptiles;
+
+/**
+ * The JMX view of a LatencyHistogram.
+ */
+public interface LatencyHistogramMBean {
+    /**
+     * Gets the number of latencies recorded.
+     *
+     * @return The count.
+     */
+    long getCount();
+
+    /**
+     * Gets the mean latency.
+     *
+     * @return The mean in nanoseconds.
+     */
+    long getMeanNanos();
+
+    /**
+     * Gets the median latency.
+     *
+     * @return The 50th percentile in nanoseconds.
+     */
+    long getP50Nanos();
+
+    /**
+     * Gets the 99th percentile latency.
+     *
+     * @return The 99th percentile in nanoseconds.
+     */
+    long getP99Nanos();
+
+    /**
+     * Gets the 99.9th percentile latency.
+     *
+     * @return The 99.9th percentile in nanoseconds.
+     */
+    long getP999Nanos();
+
+    /**
+     * Gets the longest latency.
+     *
+     * @return The maximum in nanoseconds.
+     */
+    long getMaxNanos();
+
+    /**
+     * Forgets every recorded latency.
+     */
+    void reset();
+}
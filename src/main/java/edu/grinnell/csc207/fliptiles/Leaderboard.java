@@ -0,0 +1,606 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * The best result of each player, per board shape and flip rule, ranked by
+ * moves and then by time (and then by who got there first). Each board keeps
+ * its results in a RankedSkipList, so submitting a result, finding a player's
+ * rank and listing the top k all take O(log n) (plus k) time. Submissions to
+ * different boards run in parallel; submissions to the same board take turns.
+ *
+ * <p>A leaderboard opened on a file appends every improved result to it as a
+ * small checksummed record, and replays the file when it is opened again,
+ * dropping a torn record at the end but refusing to open a file that is
+ * damaged anywhere else. A submission builds and checksums its record itself
+ * and only holds a lock to copy it into a queue; whichever submission finds
+ * the log idle then writes everything queued, in one call per batch, so
+ * submissions to different boards never wait for each other's writes. A
+ * submission queues its record while it holds its board, so the log keeps
+ * the board's order, but writes only after letting the board go. Records
+ * reach the operating system as soon as the writer gets to them and are
+ * forced to disk by flush() and close(). If a write fails, the
+ * records queued with it are lost and every later submission and flush()
+ * reports the failure.
+ */
+public final class Leaderboard implements AutoCloseable {
+    private static final int BOARD_RECORD = 1;
+    private static final int RESULT_RECORD = 2;
+    private static final int MAX_RECORD = 1 << 20;
+    private static final int MAX_NAME = 255;
+    private static final int QUEUE_BYTES = 1 << 16;
+
+    private final ConcurrentHashMap<Key, Board> boards = new ConcurrentHashMap<>();
+    private final Map<Integer, Board> boardsById = new ConcurrentHashMap<>();
+    private final FileChannel log;
+    private final Object queueLock = new Object();
+    private ByteBuffer queued = ByteBuffer.allocate(QUEUE_BYTES);
+    private ByteBuffer writing = ByteBuffer.allocate(QUEUE_BYTES);
+    private boolean draining;
+    private IOException failure;
+    private boolean replaying;
+
+    /**
+     * One player's best result on a board.
+     *
+     * @param player The player's name.
+     * @param moves The number of moves taken.
+     * @param millis The time taken, in milliseconds.
+     */
+    public record Entry(String player, int moves, long millis) {
+    }
+
+    /**
+     * The identity of a board.
+     *
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @param rule The flip rule.
+     */
+    private record Key(int rows, int cols, FlipRule rule) {
+    }
+
+    /**
+     * An entry and when it was submitted, which breaks ties.
+     *
+     * @param entry The entry.
+     * @param sequence The submission's number on its board.
+     */
+    private record Score(Entry entry, long sequence) {
+    }
+
+    private static final Comparator<Score> RANKING = Comparator
+            .comparingInt((Score s) -> s.entry().moves())
+            .thenComparingLong(s -> s.entry().millis())
+            .thenComparingLong(Score::sequence);
+
+    /**
+     * The results for one board shape and flip rule. Every method is
+     * thread-safe.
+     */
+    public final class Board {
+        private final int id;
+        private final Key key;
+        private final RankedSkipList<Score> ranking = new RankedSkipList<>(RANKING);
+        private final HashMap<String, Score> best = new HashMap<>();
+        private long sequence;
+
+        /**
+         * Creates an empty board.
+         *
+         * @param id The board's number in the log.
+         * @param key The board's shape and rule.
+         */
+        private Board(int id, Key key) {
+            this.id = id;
+            this.key = key;
+        }
+
+        /**
+         * Records a result, if it beats the player's best on this board.
+         *
+         * @param player The player's name.
+         * @param moves The number of moves taken.
+         * @param millis The time taken, in milliseconds.
+         * @return The player's rank after the submission, counting from 1.
+         * @throws IllegalArgumentException If the name is empty or too long,
+         *     or the moves or time are negative.
+         * @throws UncheckedIOException If the result cannot be logged.
+         */
+        public int submit(String player, int moves, long millis) {
+            if (player.isEmpty() || player.length() > MAX_NAME) {
+                throw new IllegalArgumentException("Player names must have 1 to "
+                        + MAX_NAME + " characters.");
+            }
+            if (moves < 0 || millis < 0) {
+                throw new IllegalArgumentException("Moves and time must not be negative.");
+            }
+            int rank;
+            boolean write;
+            synchronized (this) {
+                Score previous = best.get(player);
+                Score score = new Score(new Entry(player, moves, millis), sequence);
+                if (previous != null && RANKING.compare(previous, score) <= 0) {
+                    return ranking.rank(previous);
+                }
+                sequence++;
+                if (previous != null) {
+                    ranking.remove(previous);
+                }
+                best.put(player, score);
+                rank = ranking.add(score);
+                write = queueResult(this, score.entry());
+            }
+            if (write) {
+                drainUnchecked();
+            }
+            return rank;
+        }
+
+        /**
+         * Finds a player's rank.
+         *
+         * @param player The player's name.
+         * @return The rank, counting from 1, or 0 if the player has no result here.
+         */
+        public synchronized int rank(String player) {
+            Score score = best.get(player);
+            return score == null ? 0 : ranking.rank(score);
+        }
+
+        /**
+         * Gets a player's best result.
+         *
+         * @param player The player's name.
+         * @return The result, or null if the player has none here.
+         */
+        public synchronized Entry best(String player) {
+            Score score = best.get(player);
+            return score == null ? null : score.entry();
+        }
+
+        /**
+         * Lists the best results.
+         *
+         * @param k The most results to list.
+         * @return Up to k results, best first.
+         */
+        public synchronized List<Entry> top(int k) {
+            List<Entry> entries = new ArrayList<>(Math.min(k, ranking.size()));
+            for (Score score : ranking.first(k)) {
+                entries.add(score.entry());
+            }
+            return entries;
+        }
+
+        /**
+         * Gets the number of players with a result.
+         *
+         * @return The number of ranked players.
+         */
+        public synchronized int size() {
+            return ranking.size();
+        }
+
+        /**
+         * Gets the number of rows.
+         *
+         * @return The number of rows.
+         */
+        public int getRows() {
+            return key.rows();
+        }
+
+        /**
+         * Gets the number of columns.
+         *
+         * @return The number of columns.
+         */
+        public int getCols() {
+            return key.cols();
+        }
+
+        /**
+         * Gets the flip rule.
+         *
+         * @return The rule.
+         */
+        public FlipRule getRule() {
+            return key.rule();
+        }
+    }
+
+    /**
+     * Creates an empty leaderboard that is only kept in memory.
+     */
+    public Leaderboard() {
+        log = null;
+    }
+
+    /**
+     * Creates a leaderboard backed by a log.
+     *
+     * @param log The log, positioned at its end.
+     */
+    private Leaderboard(FileChannel log) {
+        this.log = log;
+    }
+
+    /**
+     * Opens a leaderboard kept in a file, creating the file if needed.
+     *
+     * @param file The log file.
+     * @return The leaderboard, with every result in the file.
+     * @throws IOException If the file cannot be read or written, or is damaged
+     *     anywhere but its last record.
+     */
+    public static Leaderboard open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            Leaderboard leaderboard = new Leaderboard(channel);
+            long end = leaderboard.replay();
+            channel.truncate(end);
+            channel.position(end);
+            return leaderboard;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the results for a board shape and flip rule, creating an empty
+     * board the first time.
+     *
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @param rule The flip rule.
+     * @return The board.
+     * @throws UncheckedIOException If a new board cannot be logged.
+     */
+    public Board board(int rows, int cols, FlipRule rule) {
+        return boards.computeIfAbsent(new Key(rows, cols, rule), this::newBoard);
+    }
+
+    /**
+     * Records a completed game.
+     *
+     * @param player The player's name.
+     * @param game The game.
+     * @return The player's rank on the game's board after the submission.
+     * @throws IllegalArgumentException If the game is not complete.
+     */
+    public int submit(String player, GameLogic game) {
+        if (!game.isGameComplete()) {
+            throw new IllegalArgumentException("Only completed games can be submitted.");
+        }
+        GameBoard board = game.board();
+        return board(board.getRows(), board.getCols(), board.getRule())
+                .submit(player, game.getMoveCount(), game.getElapsedTimeInMillis());
+    }
+
+    /**
+     * Writes every queued record and forces the log to disk.
+     *
+     * @throws IOException If the log cannot be written.
+     */
+    public void flush() throws IOException {
+        if (log != null) {
+            writeQueued();
+            log.force(false);
+        }
+    }
+
+    /**
+     * Writes every queued record, forces the log to disk and closes it.
+     *
+     * @throws IOException If the log cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (log != null && log.isOpen()) {
+            try {
+                writeQueued();
+                log.force(false);
+            } finally {
+                log.close();
+            }
+        }
+    }
+
+    /**
+     * Creates and logs a board.
+     *
+     * @param key The board's shape and rule.
+     * @return The board.
+     */
+    private Board newBoard(Key key) {
+        synchronized (boardsById) {
+            Board board = new Board(boardsById.size(), key);
+            boardsById.put(board.id, board);
+            if (log != null && !replaying) {
+                FlipRule rule = key.rule();
+                // FlipRule.custom keeps the name within an unsigned short.
+                byte[] name = rule.planar().name().getBytes(StandardCharsets.UTF_8);
+                ByteBuffer record = ByteBuffer.allocate(1 + 4 * Integer.BYTES + 1
+                        + Short.BYTES + name.length + 2 * Integer.BYTES * rule.stencilSize());
+                record.put((byte) BOARD_RECORD).putInt(board.id);
+                record.putInt(key.rows()).putInt(key.cols());
+                record.put((byte) (rule.wraps() ? 1 : 0));
+                record.putShort((short) name.length).put(name).putInt(rule.stencilSize());
+                for (int i = 0; i < rule.stencilSize(); i++) {
+                    record.putInt(rule.rowOffsets[i]).putInt(rule.colOffsets[i]);
+                }
+                append(record);
+            }
+            return board;
+        }
+    }
+
+    /**
+     * Queues the log record for an improved result, without writing it.
+     *
+     * @param board The board.
+     * @param entry The result.
+     * @return True if the caller must write the queue (by drainUnchecked),
+     *     false if there is no log or another thread is writing it.
+     * @throws UncheckedIOException If an earlier write failed.
+     */
+    private boolean queueResult(Board board, Entry entry) {
+        if (log == null || replaying) {
+            return false;
+        }
+        byte[] player = entry.player().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(1 + 2 * Integer.BYTES + Long.BYTES
+                + Short.BYTES + player.length);
+        record.put((byte) RESULT_RECORD).putInt(board.id);
+        record.putInt(entry.moves()).putLong(entry.millis());
+        record.putShort((short) player.length).put(player);
+        return enqueue(record);
+    }
+
+    /**
+     * Queues a record and writes the queue if no other thread is writing it.
+     *
+     * @param payload The payload, filled to its end.
+     * @throws UncheckedIOException If the log cannot be written.
+     */
+    private void append(ByteBuffer payload) {
+        if (enqueue(payload)) {
+            drainUnchecked();
+        }
+    }
+
+    /**
+     * Queues a record: its length, its CRC-32C, and the payload.
+     *
+     * @param payload The payload, filled to its end.
+     * @return True if the caller must now write the queue (by
+     *     drainUnchecked), false if another thread is already writing it.
+     * @throws UncheckedIOException If an earlier write failed.
+     */
+    private boolean enqueue(ByteBuffer payload) {
+        payload.flip();
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        synchronized (queueLock) {
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+            int needed = 2 * Integer.BYTES + payload.remaining();
+            if (queued.remaining() < needed) {
+                ByteBuffer larger = ByteBuffer.allocate(
+                        Math.max(2 * queued.capacity(), queued.position() + needed));
+                queued = larger.put(queued.flip());
+            }
+            queued.putInt(payload.remaining()).putInt((int) crc.getValue()).put(payload);
+            if (draining) {
+                return false;
+            }
+            draining = true;
+            return true;
+        }
+    }
+
+    /**
+     * Writes queued records, as drain() does, for callers that cannot throw
+     * IOException.
+     *
+     * @throws UncheckedIOException If the log cannot be written.
+     */
+    private void drainUnchecked() {
+        try {
+            drain();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Waits for any thread writing the queue, then writes what is left.
+     *
+     * @throws IOException If the log cannot be written.
+     */
+    private void writeQueued() throws IOException {
+        synchronized (queueLock) {
+            while (draining) {
+                try {
+                    queueLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for the log.");
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            draining = true;
+        }
+        drain();
+    }
+
+    /**
+     * Writes queued records until the queue is empty. Only the thread that
+     * set draining may call this, and it is cleared on return.
+     *
+     * @throws IOException If the log cannot be written.
+     */
+    private void drain() throws IOException {
+        while (true) {
+            ByteBuffer batch;
+            synchronized (queueLock) {
+                if (queued.position() == 0) {
+                    draining = false;
+                    queueLock.notifyAll();
+                    return;
+                }
+                batch = queued.flip();
+                queued = writing;
+                writing = batch;
+            }
+            try {
+                while (batch.hasRemaining()) {
+                    log.write(batch);
+                }
+                batch.clear();
+            } catch (IOException | RuntimeException e) {
+                synchronized (queueLock) {
+                    failure = e instanceof IOException io ? io : new IOException(e);
+                    queued.clear();
+                    draining = false;
+                    queueLock.notifyAll();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Reads every good record in the log into the leaderboard. A bad record
+     * is only dropped if it is the torn tail of the log: if it runs to or past
+     * the end of the file, or nothing but zeros follow it.
+     *
+     * @return The offset just past the last good record.
+     * @throws IOException If the log cannot be read, or a record before the
+     *     tail is damaged.
+     */
+    private long replay() throws IOException {
+        replaying = true;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(log.position(0)), 1 << 16));
+        long size = log.size();
+        long end = 0;
+        CRC32C check = new CRC32C();
+        try {
+            while (size - end >= 2 * Integer.BYTES) {
+                int length = in.readInt();
+                int sum = in.readInt();
+                boolean sane = length > 0 && length <= MAX_RECORD;
+                if (sane && end + 2 * Integer.BYTES + length > size) {
+                    break;
+                }
+                if (sane) {
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    check.reset();
+                    check.update(payload);
+                    if ((int) check.getValue() == sum && apply(ByteBuffer.wrap(payload))) {
+                        end += 2 * Integer.BYTES + length;
+                        continue;
+                    }
+                }
+                if ((sane && end + 2 * Integer.BYTES + length == size) || zerosFrom(end, size)) {
+                    break;
+                }
+                throw new IOException("Leaderboard log is damaged at byte " + end + ".");
+            }
+        } finally {
+            replaying = false;
+        }
+        return end;
+    }
+
+    /**
+     * Checks whether the log holds only zeros from an offset to its end.
+     *
+     * @param from The offset.
+     * @param size The log's size.
+     * @return True if every byte from the offset on is zero, otherwise false.
+     * @throws IOException If the log cannot be read.
+     */
+    private boolean zerosFrom(long from, long size) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(1 << 12);
+        for (long at = from; at < size; ) {
+            block.clear();
+            int read = log.read(block, at);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (block.get(i) != 0) {
+                    return false;
+                }
+            }
+            at += read;
+        }
+        return true;
+    }
+
+    /**
+     * Applies a logged record.
+     *
+     * @param record The record's payload.
+     * @return True if the record made sense, otherwise false.
+     */
+    private boolean apply(ByteBuffer record) {
+        try {
+            int type = record.get();
+            int id = record.getInt();
+            if (type == BOARD_RECORD) {
+                int rows = record.getInt();
+                int cols = record.getInt();
+                boolean wraps = record.get() != 0;
+                byte[] name = new byte[record.getShort() & 0xFFFF];
+                record.get(name);
+                int[][] stencil = new int[record.getInt()][];
+                for (int i = 0; i < stencil.length; i++) {
+                    stencil[i] = new int[] {record.getInt(), record.getInt()};
+                }
+                FlipRule rule = FlipRule.custom(new String(name, StandardCharsets.UTF_8), stencil);
+                return board(rows, cols, wraps ? rule.toroidal() : rule).id == id;
+            } else if (type == RESULT_RECORD) {
+                Board board = boardsById.get(id);
+                int moves = record.getInt();
+                long millis = record.getLong();
+                byte[] player = new byte[record.getShort() & 0xFFFF];
+                record.get(player);
+                if (board == null) {
+                    return false;
+                }
+                board.submit(new String(player, StandardCharsets.UTF_8), moves, millis);
+                return true;
+            }
+            return false;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
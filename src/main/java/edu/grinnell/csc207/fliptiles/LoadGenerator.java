@@ -0,0 +1,177 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A load-generating client for {@link GameServer}. Each simulated player
+ * opens its own connection, starts a game, and makes random moves one at a
+ * time, timing every round trip. At the end it prints throughput and the
+ * move latency distribution.
+ */
+public class LoadGenerator {
+    private final int port;
+    private final int players;
+    private final int movesPerPlayer;
+    private final int size;
+    private final long[] latencies;
+    private final int[] completed;
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * Configures a run against a server on the loopback interface.
+     *
+     * @param port The server's port.
+     * @param players The number of concurrent connections, each with its own game.
+     * @param movesPerPlayer The number of moves each player makes.
+     * @param size The size of each board.
+     */
+    public LoadGenerator(int port, int players, int movesPerPlayer, int size) {
+        this.port = port;
+        this.players = players;
+        this.movesPerPlayer = movesPerPlayer;
+        this.size = size;
+        this.latencies = new long[players * movesPerPlayer];
+        this.completed = new int[players];
+    }
+
+    /**
+     * Runs every player to completion and prints a report.
+     *
+     * @throws InterruptedException If interrupted while waiting for the players.
+     */
+    public void run() throws InterruptedException {
+        ExecutorService threads = GameServer.newConnectionExecutor();
+        CountDownLatch done = new CountDownLatch(players);
+        long start = System.nanoTime();
+        for (int p = 0; p < players; p++) {
+            int player = p;
+            threads.execute(() -> {
+                try {
+                    play(player);
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        threads.shutdown();
+        threads.awaitTermination(1, TimeUnit.SECONDS);
+        report(elapsed);
+    }
+
+    /**
+     * Plays one game over its own connection, recording each move's round trip
+     * and counting the moves that succeed.
+     *
+     * @param player The player's number, which picks its slot in the latency array.
+     * @throws IOException If the connection fails or the server replies with an error.
+     */
+    private void play(int player) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = socket.getOutputStream();
+            out.write(("NEW " + size + "\n").getBytes(StandardCharsets.US_ASCII));
+            String id = expectOk(in.readLine()).substring(3);
+            SplittableRandom random = new SplittableRandom(player);
+            int base = player * movesPerPlayer;
+            for (int m = 0; m < movesPerPlayer; m++) {
+                byte[] request = ("MOVE " + id + " " + random.nextInt(size) + " "
+                        + random.nextInt(size) + "\n").getBytes(StandardCharsets.US_ASCII);
+                long sent = System.nanoTime();
+                out.write(request);
+                String reply = in.readLine();
+                long latency = System.nanoTime() - sent;
+                expectOk(reply);
+                latencies[base + m] = latency;
+                completed[player] = m + 1;
+            }
+            out.write(("END " + id + "\nQUIT\n").getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Checks that a reply reports success.
+     *
+     * @param reply The reply, or null if the server closed the connection.
+     * @return The reply.
+     * @throws IOException If the reply is missing or does not start with {@code OK }.
+     */
+    private static String expectOk(String reply) throws IOException {
+        if (reply == null || !reply.startsWith("OK ")) {
+            throw new IOException("Unexpected reply: " + reply);
+        }
+        return reply;
+    }
+
+    /**
+     * Prints throughput and latency percentiles over the moves that completed.
+     *
+     * @param elapsed The wall-clock length of the run, in nanoseconds.
+     */
+    private void report(long elapsed) {
+        int count = 0;
+        for (int done : completed) {
+            count += done;
+        }
+        long[] sorted = new long[count];
+        int next = 0;
+        for (int p = 0; p < players; p++) {
+            System.arraycopy(latencies, p * movesPerPlayer, sorted, next, completed[p]);
+            next += completed[p];
+        }
+        Arrays.sort(sorted);
+        System.out.printf("%d players x %d moves on %dx%d boards, %d failed%n",
+                players, movesPerPlayer, size, size, failures.get());
+        if (count == 0) {
+            System.out.println("no moves completed");
+            return;
+        }
+        System.out.printf("throughput: %.0f moves/s%n", sorted.length * 1e9 / elapsed);
+        System.out.printf("latency (us): p50 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+                percentile(sorted, 0.50) / 1e3, percentile(sorted, 0.99) / 1e3,
+                percentile(sorted, 0.999) / 1e3, sorted[sorted.length - 1] / 1e3);
+    }
+
+    /**
+     * Reads a percentile from sorted samples.
+     *
+     * @param sorted The samples, in increasing order.
+     * @param fraction The percentile, between 0 and 1.
+     * @return The sample at that percentile.
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[(int) Math.min(sorted.length - 1, (long) (fraction * sorted.length))];
+    }
+
+    /**
+     * Runs a load test.
+     *
+     * @param args Optionally, the port, the number of players, the moves per
+     *     player, and the board size.
+     * @throws InterruptedException If interrupted while waiting for the players.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : GameServer.DEFAULT_PORT;
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int moves = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        new LoadGenerator(port, players, moves, size).run();
+    }
+}
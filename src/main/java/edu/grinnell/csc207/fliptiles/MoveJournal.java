@@ -0,0 +1,101 @@
+package edu.grinnell.csc207.fliptiles;
+
+/**
+ * A bounded undo/redo history of presses. A press is its own inverse, so
+ * undoing or redoing one only needs the pressed cell: the journal is a ring
+ * of cell indices and records, undoes and redoes without allocating.
+ * Once the ring is full, each new press forgets the oldest one.
+ */
+class MoveJournal {
+    private final int[] cells;
+    private int head;
+    private int undoable;
+    private int redoable;
+
+    /**
+     * Creates an empty journal.
+     *
+     * @param capacity The most presses that can be undone.
+     */
+    MoveJournal(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must be non-negative.");
+        }
+        cells = new int[capacity];
+    }
+
+    /**
+     * Gets the most presses that can be undone.
+     *
+     * @return The capacity.
+     */
+    int capacity() {
+        return cells.length;
+    }
+
+    /**
+     * Records a new press, which discards anything that could be redone.
+     *
+     * @param cell The index of the pressed cell.
+     */
+    void record(int cell) {
+        redoable = 0;
+        if (cells.length == 0) {
+            return;
+        }
+        cells[head] = cell;
+        head = (head + 1 == cells.length) ? 0 : head + 1;
+        if (undoable < cells.length) {
+            undoable++;
+        }
+    }
+
+    /**
+     * Steps back over the latest press.
+     *
+     * @return The cell to press again to undo it, or -1 if there is nothing to undo.
+     */
+    int undo() {
+        if (undoable == 0) {
+            return -1;
+        }
+        head = (head == 0) ? cells.length - 1 : head - 1;
+        undoable--;
+        redoable++;
+        return cells[head];
+    }
+
+    /**
+     * Steps forward over the latest undone press.
+     *
+     * @return The cell to press to redo it, or -1 if there is nothing to redo.
+     */
+    int redo() {
+        if (redoable == 0) {
+            return -1;
+        }
+        int cell = cells[head];
+        head = (head + 1 == cells.length) ? 0 : head + 1;
+        undoable++;
+        redoable--;
+        return cell;
+    }
+
+    /**
+     * Gets the number of presses that can be undone.
+     *
+     * @return The undo depth.
+     */
+    int undoable() {
+        return undoable;
+    }
+
+    /**
+     * Gets the number of presses that can be redone.
+     *
+     * @return The redo depth.
+     */
+    int redoable() {
+        return redoable;
+    }
+}
@@ -0,0 +1,525 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only binary log of every press made in a game, for auditing and
+ * resuming it. The file starts with a header describing the game when the log
+ * was started (board shape, flip rule, tiles, move count, undo depth and start
+ * time). Each press after that is one record:
+ * <pre>
+ * varint  cell * 4 + kind   (kind 0 = move, 1 = undo, 2 = redo)
+ * varint  nanoseconds since the previous record
+ * int     CRC-32C of the two varints
+ * </pre>
+ * so a typical press takes 6 to 8 bytes.
+ *
+ * <p>Records are written into a memory-mapped window of the file, so
+ * appending is a few stores with no system call, and a press is in the
+ * operating system's cache (and survives the process crashing) as soon as it
+ * is appended. A background timer forces the mapping to disk once per force
+ * interval, and it is also forced when a window fills and when the log is
+ * closed, so a crash of the whole machine loses at most the last interval's
+ * presses. With an interval of 0 every append is forced before it returns.
+ * Opening a log recovers the longest prefix of whole records with good
+ * checksums and drops anything after it, such as a torn final record.
+ *
+ * <p>A log is not thread-safe; like the game it records, it should be used
+ * by one thread at a time.
+ */
+public final class MoveLog implements AutoCloseable {
+    /**
+     * What a logged press did.
+     */
+    public enum Kind {
+        /** A new move. */
+        MOVE,
+        /** An undo, which pressed the cell again. */
+        UNDO,
+        /** A redo of an undone move. */
+        REDO
+    }
+
+    /**
+     * Receives the presses in a log as it is replayed.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        /**
+         * Called after each logged press has been applied to the game.
+         *
+         * @param kind What the press did.
+         * @param row The row pressed.
+         * @param col The column pressed.
+         * @param nanos The nanoseconds since the previous press (or since the
+         *     log was opened, for the first press after opening it).
+         */
+        void visit(Kind kind, int row, int col, long nanos);
+    }
+
+    static final int MOVE = 0;
+    static final int UNDO = 1;
+    static final int REDO = 2;
+
+    /**
+     * How often a log is forced to disk unless an interval is given.
+     */
+    public static final long DEFAULT_FORCE_INTERVAL_MILLIS = 100;
+
+    private static final int MAGIC = 0x4D4C4F47;
+    private static final int VERSION = 1;
+    private static final int PREFIX = 12;
+    private static final int MAX_HEADER = 1 << 24;
+    private static final int MAX_RECORD = 19;
+    private static final int WINDOW = 1 << 20;
+    private static final Kind[] KINDS = Kind.values();
+    private static final ScheduledExecutorService FORCER =
+            Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "move-log-force");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final FileChannel channel;
+    private final boolean forceEachPress;
+    private final ScheduledFuture<?> forcing;
+    private final CRC32C crc = new CRC32C();
+    private final byte[] record = new byte[MAX_RECORD];
+    private volatile MappedByteBuffer window;
+    private long end;
+    private long lastPress;
+    private int count;
+
+    /**
+     * Creates a log positioned to append.
+     *
+     * @param channel The open file.
+     * @param end The offset just past the last record.
+     * @param count The number of records already in the file.
+     * @param forceIntervalMillis The longest time between forces, or 0 to
+     *     force every append.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private MoveLog(FileChannel channel, long end, int count, long forceIntervalMillis)
+            throws IOException {
+        if (forceIntervalMillis < 0) {
+            throw new IllegalArgumentException("The force interval must not be negative.");
+        }
+        this.channel = channel;
+        this.end = end;
+        this.count = count;
+        this.forceEachPress = forceIntervalMillis == 0;
+        remap();
+        lastPress = System.nanoTime();
+        forcing = forceEachPress ? null : FORCER.scheduleWithFixedDelay(this::force,
+                forceIntervalMillis, forceIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts a new log of a game, replacing any file already there. The log
+     * begins from the game's current state; attach it with
+     * {@link GameLogic#setMoveLog(MoveLog)} to record the presses that follow.
+     *
+     * @param file The file to write.
+     * @param game The game to log.
+     * @return The log.
+     * @throws IOException If the file cannot be written.
+     */
+    public static MoveLog create(Path file, GameLogic game) throws IOException {
+        return create(file, game, DEFAULT_FORCE_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Starts a new log of a game, replacing any file already there.
+     *
+     * @param file The file to write.
+     * @param game The game to log.
+     * @param forceIntervalMillis The longest time, in milliseconds, between
+     *     forcing appended presses to disk, or 0 to force every press.
+     * @return The log.
+     * @throws IOException If the file cannot be written.
+     */
+    public static MoveLog create(Path file, GameLogic game, long forceIntervalMillis)
+            throws IOException {
+        ByteBuffer header = header(game);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+            return new MoveLog(channel, header.limit(), 0, forceIntervalMillis);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Rebuilds a game from a log and reopens the log to record the presses
+     * that follow. Anything after the last good record is discarded.
+     *
+     * @param file The log.
+     * @return The game, with the log attached.
+     * @throws IOException If the file cannot be read or is not a move log.
+     */
+    public static GameLogic resume(Path file) throws IOException {
+        return resume(file, DEFAULT_FORCE_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Rebuilds a game from a log and reopens the log to record the presses
+     * that follow. Anything after the last good record is discarded.
+     *
+     * @param file The log.
+     * @param forceIntervalMillis The longest time, in milliseconds, between
+     *     forcing appended presses to disk, or 0 to force every press.
+     * @return The game, with the log attached.
+     * @throws IOException If the file cannot be read or is not a move log.
+     */
+    public static GameLogic resume(Path file, long forceIntervalMillis) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            GameLogic game = readHeader(channel);
+            long[] scan = scan(channel, game, null);
+            channel.truncate(scan[0]);
+            game.setMoveLog(new MoveLog(channel, scan[0], (int) scan[1],
+                    forceIntervalMillis));
+            return game;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Replays a log without changing it, rebuilding the game it records.
+     *
+     * @param file The log.
+     * @param visitor Told about each press after it is applied, or null.
+     * @return The game as of the last good record, with no log attached.
+     * @throws IOException If the file cannot be read or is not a move log.
+     */
+    public static GameLogic replay(Path file, Visitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            GameLogic game = readHeader(channel);
+            scan(channel, game, visitor);
+            return game;
+        }
+    }
+
+    /**
+     * Appends a press.
+     *
+     * @param kind MOVE, UNDO or REDO.
+     * @param cell The index of the pressed cell.
+     * @throws UncheckedIOException If the file cannot be extended.
+     * @throws IllegalStateException If the log has been closed.
+     */
+    void append(int kind, int cell) {
+        if (!channel.isOpen()) {
+            throw new IllegalStateException("The move log is closed.");
+        }
+        long now = System.nanoTime();
+        int length = putVarint(record, 0, ((long) cell << 2) | kind);
+        length = putVarint(record, length, now - lastPress);
+        crc.reset();
+        crc.update(record, 0, length);
+        try {
+            if (window.remaining() < length + Integer.BYTES) {
+                remap();
+            }
+            window.put(record, 0, length);
+            window.putInt((int) crc.getValue());
+            end += length + Integer.BYTES;
+            count++;
+            lastPress = now;
+            if (forceEachPress) {
+                window.force();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the number of presses in the log.
+     *
+     * @return The number of records.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Forces every appended press to disk now. Does nothing once the log is
+     * closed. Unlike the other methods, this may be called from any thread.
+     */
+    public synchronized void force() {
+        if (channel.isOpen()) {
+            window.force();
+        }
+    }
+
+    /**
+     * Forces the log to disk, trims the file to the last record, and closes it.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (forcing != null) {
+            forcing.cancel(false);
+        }
+        synchronized (this) {
+            if (!channel.isOpen()) {
+                return;
+            }
+            try {
+                window.force();
+                channel.truncate(end);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Forces the current window and maps a new one starting at the end of the
+     * log, which also extends the file.
+     *
+     * @throws IOException If the file cannot be mapped.
+     */
+    private void remap() throws IOException {
+        if (window != null) {
+            window.force();
+        }
+        window = channel.map(FileChannel.MapMode.READ_WRITE, end, WINDOW);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Encodes the header for a game's current state.
+     *
+     * @param game The game.
+     * @return The header, ready to write.
+     */
+    private static ByteBuffer header(GameLogic game) {
+        GameBoard board = game.board();
+        FlipRule rule = board.getRule();
+        byte[] name = rule.planar().name().getBytes(StandardCharsets.UTF_8);
+        long[] tiles = board.tiles();
+        int stencil = rule.stencilSize();
+        int length = PREFIX + 4 * Integer.BYTES + Long.BYTES + 1 + Integer.BYTES
+                + 2 * stencil * Integer.BYTES + Integer.BYTES + name.length
+                + board.kernel().words * Long.BYTES + Integer.BYTES;
+        ByteBuffer header = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(length);
+        header.putInt(board.getRows()).putInt(board.getCols());
+        header.putInt(game.undoCapacity()).putInt(game.getMoveCount());
+        header.putLong(game.startTime());
+        header.put((byte) (rule.wraps() ? 1 : 0)).putInt(stencil);
+        for (int i = 0; i < stencil; i++) {
+            header.putInt(rule.rowOffsets[i]).putInt(rule.colOffsets[i]);
+        }
+        header.putInt(name.length).put(name);
+        for (int w = 0; w < board.kernel().words; w++) {
+            header.putLong(tiles[w]);
+        }
+        CRC32C check = new CRC32C();
+        check.update(header.array(), 0, header.position());
+        header.putInt((int) check.getValue());
+        return header.flip();
+    }
+
+    /**
+     * Reads and checks the header, and builds the game it describes.
+     *
+     * @param channel The log, positioned at the start.
+     * @return The game as it was when the log was started.
+     * @throws IOException If the file cannot be read or is not a move log.
+     */
+    private static GameLogic readHeader(FileChannel channel) throws IOException {
+        ByteBuffer prefix = ByteBuffer.allocate(PREFIX).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, prefix, 0);
+        if (prefix.getInt(0) != MAGIC) {
+            throw new IOException("Not a move log.");
+        }
+        if (prefix.getInt(4) != VERSION) {
+            throw new IOException("Unsupported move log version " + prefix.getInt(4) + ".");
+        }
+        int length = prefix.getInt(8);
+        if (length < PREFIX + Integer.BYTES || length > MAX_HEADER) {
+            throw new IOException("Corrupt move log header.");
+        }
+        ByteBuffer header = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header, 0);
+        CRC32C check = new CRC32C();
+        check.update(header.array(), 0, length - Integer.BYTES);
+        if ((int) check.getValue() != header.getInt(length - Integer.BYTES)) {
+            throw new IOException("Corrupt move log header.");
+        }
+        try {
+            header.position(PREFIX);
+            int rows = header.getInt();
+            int cols = header.getInt();
+            int undoCapacity = header.getInt();
+            int moves = header.getInt();
+            long startTime = header.getLong();
+            boolean wraps = header.get() != 0;
+            int[][] stencil = new int[header.getInt()][];
+            for (int i = 0; i < stencil.length; i++) {
+                stencil[i] = new int[] {header.getInt(), header.getInt()};
+            }
+            byte[] name = new byte[header.getInt()];
+            header.get(name);
+            FlipRule rule = FlipRule.custom(new String(name, StandardCharsets.UTF_8), stencil);
+            FlipKernel kernel = FlipKernel.of(wraps ? rule.toroidal() : rule, rows, cols);
+            long[] tiles = new long[kernel.words];
+            for (int w = 0; w < tiles.length; w++) {
+                tiles[w] = header.getLong();
+            }
+            GameLogic game = new GameLogic(new GameBoard(kernel, tiles), undoCapacity);
+            game.restore(moves, startTime);
+            return game;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt move log header.", e);
+        }
+    }
+
+    /**
+     * Applies every good record to a game, stopping at the end of the file or
+     * at the first record that is incomplete, fails its checksum, or names a
+     * cell off the board.
+     *
+     * @param channel The log.
+     * @param game The game the header describes.
+     * @param visitor Told about each press, or null.
+     * @return The offset just past the last good record, and the number of
+     *     good records.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long[] scan(FileChannel channel, GameLogic game, Visitor visitor)
+            throws IOException {
+        ByteBuffer prefix = ByteBuffer.allocate(PREFIX).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, prefix, 0);
+        long position = prefix.getInt(8);
+        long size = channel.size();
+        int cells = game.board().kernel().cells;
+        int cols = game.board().getCols();
+        ByteBuffer buffer = ByteBuffer.allocate(WINDOW).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        long bufferStart = position;
+        long[] varint = new long[2];
+        CRC32C check = new CRC32C();
+        int count = 0;
+        while (true) {
+            if (buffer.remaining() < MAX_RECORD + Integer.BYTES
+                    && bufferStart + buffer.limit() < size) {
+                bufferStart += buffer.position();
+                buffer.compact();
+                while (buffer.hasRemaining()
+                        && channel.read(buffer, bufferStart + buffer.position()) > 0) {
+                    continue;
+                }
+                buffer.flip();
+            }
+            int start = buffer.position();
+            int at = getVarint(buffer, start, varint, 0);
+            at = at < 0 ? at : getVarint(buffer, at, varint, 1);
+            if (at < 0 || at + Integer.BYTES > buffer.limit()) {
+                break;
+            }
+            check.reset();
+            check.update(buffer.array(), start, at - start);
+            int kind = (int) (varint[0] & 3);
+            long cell = varint[0] >>> 2;
+            if ((int) check.getValue() != buffer.getInt(at) || kind > REDO || cell >= cells) {
+                break;
+            }
+            game.replay(kind, (int) cell);
+            if (visitor != null) {
+                visitor.visit(KINDS[kind], (int) cell / cols, (int) cell % cols, varint[1]);
+            }
+            buffer.position(at + Integer.BYTES);
+            count++;
+        }
+        return new long[] {bufferStart + buffer.position(), count};
+    }
+
+    /**
+     * Fills a buffer from a channel.
+     *
+     * @param channel The channel.
+     * @param buffer The buffer to fill.
+     * @param position Where in the file to start reading.
+     * @throws IOException If the file cannot be read or is too short.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated move log header.");
+            }
+        }
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint.
+     *
+     * @param out The array to write into.
+     * @param at Where to start writing.
+     * @param value The non-negative value.
+     * @return The index just past the varint.
+     */
+    private static int putVarint(byte[] out, int at, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out[at++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[at++] = (byte) value;
+        return at;
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint.
+     *
+     * @param in The buffer to read from.
+     * @param at Where the varint starts.
+     * @param out Where to store the value.
+     * @param index The index in out to store it at.
+     * @return The index just past the varint, or -1 if it is incomplete or
+     *     too long.
+     */
+    private static int getVarint(ByteBuffer in, int at, long[] out, int index) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (at >= in.limit()) {
+                return -1;
+            }
+            byte b = in.get(at++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                out[index] = value;
+                return at;
+            }
+        }
+        return -1;
+    }
+}
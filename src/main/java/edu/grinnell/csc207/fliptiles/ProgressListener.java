@@ -0,0 +1,15 @@
+package edu.grinnell.csc207.fliptiles;
+
+/**
+ * Receives a board's progress after every press.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    /**
+     * Called after a press changes the board.
+     *
+     * @param lit The number of tiles now on.
+     * @param total The number of tiles on the board.
+     */
+    void progressed(int lit, int total);
+}
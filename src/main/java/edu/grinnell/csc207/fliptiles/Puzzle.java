@@ -0,0 +1,186 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A generated starting board together with its grade: the fewest presses
+ * that complete it. Puzzles are immutable; {@link #toBoard()} gives a fresh
+ * board to play.
+ */
+public final class Puzzle {
+    private static final FlipRule[] BUILT_IN = {
+        FlipRule.PLUS, FlipRule.BLOCK, FlipRule.CROSS, FlipRule.KNIGHT};
+
+    private final FlipKernel kernel;
+    private final long[] tiles;
+    private final int optimal;
+
+    /**
+     * Creates a puzzle.
+     *
+     * @param kernel The board's shape and flip rule.
+     * @param tiles The packed starting tiles (not copied).
+     * @param optimal The fewest presses that complete the board.
+     */
+    Puzzle(FlipKernel kernel, long[] tiles, int optimal) {
+        this.kernel = kernel;
+        this.tiles = tiles;
+        this.optimal = optimal;
+    }
+
+    /**
+     * Reads a puzzle written by {@link #toString()}.
+     *
+     * @param line The rows, the columns, the flip rule, the optimal press
+     *     count, and the tiles as row-major 0s and 1s, separated by spaces.
+     *     The rule is written as by {@link #toString()}.
+     * @return The puzzle.
+     * @throws IllegalArgumentException If the line is malformed.
+     */
+    public static Puzzle parse(String line) {
+        String[] parts = line.trim().split(" ");
+        if (parts.length != 5) {
+            throw new IllegalArgumentException(
+                    "Expected rows, columns, rule, press count and tiles.");
+        }
+        int rows = Integer.parseInt(parts[0]);
+        int cols = Integer.parseInt(parts[1]);
+        FlipRule rule = parseRule(parts[2]);
+        int optimal = Integer.parseInt(parts[3]);
+        String bits = parts[4];
+        if (rows <= 0 || cols <= 0 || bits.length() != rows * cols) {
+            throw new IllegalArgumentException("Tiles do not match the board size.");
+        }
+        long[] tiles = new long[(bits.length() + 63) >>> 6];
+        for (int cell = 0; cell < bits.length(); cell++) {
+            if (bits.charAt(cell) == '1') {
+                tiles[cell >>> 6] |= 1L << cell;
+            }
+        }
+        return new Puzzle(FlipKernel.of(rule, rows, cols), tiles, optimal);
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return kernel.rows;
+    }
+
+    /**
+     * Gets the number of columns.
+     *
+     * @return The number of columns.
+     */
+    public int getCols() {
+        return kernel.cols;
+    }
+
+    /**
+     * Gets the flip rule the puzzle is played with.
+     *
+     * @return The rule.
+     */
+    public FlipRule getRule() {
+        return kernel.rule;
+    }
+
+    /**
+     * Gets the fewest presses that complete the puzzle.
+     *
+     * @return The optimal press count.
+     */
+    public int getOptimalPressCount() {
+        return optimal;
+    }
+
+    /**
+     * Sets up a new board in the puzzle's starting state.
+     *
+     * @return The board.
+     */
+    public GameBoard toBoard() {
+        return new GameBoard(kernel, tiles);
+    }
+
+    /**
+     * Writes the puzzle as one line: the rows, the columns, the rule, the
+     * optimal press count, and the tiles as row-major 0s and 1s. A rule with
+     * a built-in stencil is written by its built-in name, such as plus or
+     * knight-torus. A custom rule is written as its URL-encoded name and
+     * then its {row, col} offsets in braces, followed by -torus if it wraps,
+     * such as {@code my+rule{-1,0;0,0;1,0}}.
+     *
+     * @return The line.
+     */
+    @Override
+    public String toString() {
+        int cells = kernel.cells;
+        StringBuilder line = new StringBuilder(cells + 32);
+        line.append(kernel.rows).append(' ').append(kernel.cols).append(' ')
+                .append(formatRule(kernel.rule)).append(' ').append(optimal).append(' ');
+        for (int cell = 0; cell < cells; cell++) {
+            line.append((tiles[cell >>> 6] & (1L << cell)) != 0 ? '1' : '0');
+        }
+        return line.toString();
+    }
+
+    /**
+     * Writes a rule in the form toString() uses.
+     *
+     * @param rule The rule.
+     * @return The rule's text, which contains no spaces.
+     */
+    private static String formatRule(FlipRule rule) {
+        String suffix = rule.wraps() ? FlipRule.TORUS_SUFFIX : "";
+        for (FlipRule builtIn : BUILT_IN) {
+            if (builtIn.equals(rule.planar())) {
+                return builtIn.name() + suffix;
+            }
+        }
+        StringBuilder text = new StringBuilder(
+                URLEncoder.encode(rule.planar().name(), StandardCharsets.UTF_8)).append('{');
+        for (int i = 0; i < rule.stencilSize(); i++) {
+            if (i > 0) {
+                text.append(';');
+            }
+            text.append(rule.rowOffsets[i]).append(',').append(rule.colOffsets[i]);
+        }
+        return text.append('}').append(suffix).toString();
+    }
+
+    /**
+     * Reads a rule written by formatRule().
+     *
+     * @param text The rule's text.
+     * @return The rule.
+     * @throws IllegalArgumentException If the text is not a rule.
+     */
+    private static FlipRule parseRule(String text) {
+        int open = text.indexOf('{');
+        if (open < 0) {
+            return FlipRule.named(text);
+        }
+        int close = text.indexOf('}', open);
+        String suffix = close < 0 ? null : text.substring(close + 1);
+        if (suffix == null || !(suffix.isEmpty() || suffix.equals(FlipRule.TORUS_SUFFIX))) {
+            throw new IllegalArgumentException("Malformed flip rule: " + text);
+        }
+        String[] offsets = text.substring(open + 1, close).split(";");
+        int[][] stencil = new int[offsets.length][];
+        for (int i = 0; i < offsets.length; i++) {
+            String[] pair = offsets[i].split(",");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Malformed flip rule: " + text);
+            }
+            stencil[i] = new int[] {Integer.parseInt(pair[0]), Integer.parseInt(pair[1])};
+        }
+        FlipRule rule = FlipRule.custom(
+                URLDecoder.decode(text.substring(0, open), StandardCharsets.UTF_8), stencil);
+        return suffix.isEmpty() ? rule : rule.toroidal();
+    }
+}
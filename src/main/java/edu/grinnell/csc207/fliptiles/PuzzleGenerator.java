@@ -0,0 +1,380 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Generates random solvable puzzles and sorts them into difficulty bands by
+ * their optimal press count. A puzzle is made by pressing random cells on a
+ * board with every tile on, so it can always be solved; grading it is a call
+ * to the cached optimal solver.
+ *
+ * <p>Candidates are made and graded in parallel on a fork-join pool, in
+ * batches. Candidate i is drawn from its own random stream derived from the
+ * seed and i, and each batch is sorted into bands in index order, so the
+ * output depends only on the seed, never on the scheduling. Duplicate boards
+ * are skipped by the XOR of the Zobrist keys of the presses that made them,
+ * which is kept as the presses are made and is the same for any two sets of
+ * presses that give the same board. The same hash lets each worker thread
+ * remember the grades of boards it has already solved in a transposition
+ * table, so a repeated board skips the optimal search.
+ */
+public class PuzzleGenerator {
+    /**
+     * The number of candidates made per parallel batch.
+     */
+    static final int BATCH = 4096;
+
+    /**
+     * How many batches in a row may add nothing before generation decides
+     * the unfilled bands are out of reach on this board.
+     */
+    static final int STALL_LIMIT = 16;
+
+    /**
+     * The number of grades each worker thread remembers.
+     */
+    static final int GRADE_CACHE_CAPACITY = 1 << 14;
+
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private final FlipKernel kernel;
+    private final long seed;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<TranspositionTable> grades = ThreadLocal.withInitial(() ->
+            new TranspositionTable(GRADE_CACHE_CAPACITY, TranspositionTable.Policy.TWO_TIER));
+
+    /**
+     * Creates a generator of square boards with the classic rule that runs
+     * on the common fork-join pool.
+     *
+     * @param size The size of the boards.
+     * @param seed The seed; the same seed gives the same puzzles.
+     */
+    public PuzzleGenerator(int size, long seed) {
+        this(size, size, FlipRule.classic(size), seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a generator.
+     *
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @param rule The flip rule.
+     * @param seed The seed; the same seed gives the same puzzles.
+     * @param pool The pool to generate on.
+     */
+    public PuzzleGenerator(int rows, int cols, FlipRule rule, long seed, ForkJoinPool pool) {
+        this.kernel = FlipKernel.of(rule, rows, cols);
+        this.seed = seed;
+        this.pool = pool;
+    }
+
+    /**
+     * Generates puzzles for each difficulty band. Band i holds puzzles whose
+     * optimal press count is above limits[i - 1] (or at least 1, for band 0)
+     * and at most limits[i].
+     *
+     * @param limits The upper press count of each band, in increasing order.
+     * @param perBand The number of puzzles wanted in each band.
+     * @return The puzzles, one list per band.
+     * @throws IllegalStateException If a band cannot be filled on this board
+     *     size, or if the board is too singular to grade.
+     */
+    public List<List<Puzzle>> generate(int[] limits, int perBand) {
+        List<List<Puzzle>> bands = new ArrayList<>();
+        for (int b = 0; b < limits.length; b++) {
+            bands.add(new ArrayList<>());
+        }
+        generate(limits, perBand, (band, puzzle) -> bands.get(band).add(puzzle));
+        return bands;
+    }
+
+    /**
+     * Generates puzzles for each difficulty band and streams them to a file,
+     * one per line: the band number followed by the puzzle as written by
+     * {@link Puzzle#toString()}.
+     *
+     * @param limits The upper press count of each band, in increasing order.
+     * @param perBand The number of puzzles wanted in each band.
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalStateException If a band cannot be filled on this board size.
+     */
+    public void generate(int[] limits, int perBand, Path file) throws IOException {
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(file), 1 << 16)) {
+            generate(limits, perBand, (band, puzzle) -> {
+                try {
+                    out.write(Integer.toString(band));
+                    out.write(' ');
+                    out.write(puzzle.toString());
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Receives each accepted puzzle.
+     */
+    @FunctionalInterface
+    interface Sink {
+        /**
+         * Takes a puzzle.
+         *
+         * @param band The puzzle's band.
+         * @param puzzle The puzzle.
+         */
+        void accept(int band, Puzzle puzzle);
+    }
+
+    /**
+     * Generates batches until every band is full, passing puzzles on in order.
+     *
+     * @param limits The upper press count of each band, in increasing order.
+     * @param perBand The number of puzzles wanted in each band.
+     * @param sink Where accepted puzzles go.
+     */
+    void generate(int[] limits, int perBand, Sink sink) {
+        for (int b = 1; b < limits.length; b++) {
+            if (limits[b] <= limits[b - 1]) {
+                throw new IllegalArgumentException("Band limits must increase.");
+            }
+            if (limits[b - 1] >= kernel.cells) {
+                throw new IllegalArgumentException("No puzzle needs more than "
+                        + kernel.cells + " presses.");
+            }
+        }
+        int maxPresses = Math.min(kernel.cells, limits[limits.length - 1]);
+        int[] filled = new int[limits.length];
+        int remaining = limits.length * perBand;
+        int stalled = 0;
+        LongSet seen = new LongSet();
+        Puzzle[] batch = new Puzzle[BATCH];
+        long[] hashes = new long[BATCH];
+        long next = 0;
+        while (remaining > 0) {
+            if (stalled == STALL_LIMIT) {
+                throw new IllegalStateException("Could not fill every band; filled "
+                        + Arrays.toString(filled) + " of " + perBand + " each.");
+            }
+            pool.invoke(new Batch(batch, hashes, next, 0, BATCH, maxPresses));
+            int before = remaining;
+            for (int i = 0; i < BATCH; i++) {
+                Puzzle puzzle = batch[i];
+                int band = bandOf(limits, puzzle.getOptimalPressCount());
+                if (band < 0 || filled[band] == perBand) {
+                    continue;
+                }
+                if (!seen.add(hashes[i])) {
+                    continue;
+                }
+                filled[band]++;
+                remaining--;
+                sink.accept(band, puzzle);
+            }
+            stalled = (remaining == before) ? stalled + 1 : 0;
+            next += BATCH;
+        }
+    }
+
+    /**
+     * Makes and grades candidate i.
+     *
+     * @param index The candidate's index.
+     * @param maxPresses The most random presses to make.
+     * @param hashes Where to store the XOR of the Zobrist keys of the presses made.
+     * @param slot The index in hashes to store it at.
+     * @return The graded puzzle.
+     */
+    Puzzle candidate(long index, int maxPresses, long[] hashes, int slot) {
+        SplittableRandom random = new SplittableRandom(seed ^ (index * GOLDEN));
+        long[] tiles = kernel.full.clone();
+        long hash = 0;
+        int presses = 1 + random.nextInt(maxPresses);
+        for (int p = 0; p < presses; p++) {
+            int cell = random.nextInt(kernel.cells);
+            kernel.press(tiles, cell);
+            hash ^= kernel.pressKeys[cell];
+        }
+        hashes[slot] = hash;
+        TranspositionTable known = grades.get();
+        int optimal = known.get(hash, -1);
+        if (optimal < 0) {
+            optimal = GameSolver.solveOptimal(new GameBoard(kernel, tiles)).getPressCount();
+            // Harder boards are rarer, so they win collisions.
+            known.put(hash, optimal, optimal);
+        }
+        return new Puzzle(kernel, tiles, optimal);
+    }
+
+    /**
+     * Finds the band for a press count.
+     *
+     * @param limits The upper press count of each band.
+     * @param optimal The press count.
+     * @return The band, or -1 if it falls outside every band.
+     */
+    private static int bandOf(int[] limits, int optimal) {
+        if (optimal == 0) {
+            return -1;
+        }
+        for (int b = 0; b < limits.length; b++) {
+            if (optimal <= limits[b]) {
+                return b;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Fills a range of a batch, splitting it in half until it is small.
+     */
+    private final class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int LEAF = 64;
+
+        private final Puzzle[] out;
+        private final long[] hashes;
+        private final long base;
+        private final int from;
+        private final int to;
+        private final int maxPresses;
+
+        /**
+         * Describes part of a batch.
+         *
+         * @param out Where the puzzles go.
+         * @param hashes Where the hashes of their presses go.
+         * @param base The index of the batch's first candidate.
+         * @param from The first slot to fill.
+         * @param to One past the last slot to fill.
+         * @param maxPresses The most random presses per candidate.
+         */
+        Batch(Puzzle[] out, long[] hashes, long base, int from, int to, int maxPresses) {
+            this.out = out;
+            this.hashes = hashes;
+            this.base = base;
+            this.from = from;
+            this.to = to;
+            this.maxPresses = maxPresses;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF) {
+                for (int i = from; i < to; i++) {
+                    out[i] = candidate(base + i, maxPresses, hashes, i);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Batch(out, hashes, base, from, mid, maxPresses),
+                    new Batch(out, hashes, base, mid, to, maxPresses));
+        }
+    }
+
+    /**
+     * A growable set of longs in an open-addressed table, so that checking
+     * and recording a hash never boxes it.
+     */
+    private static final class LongSet {
+        private long[] keys = new long[1 << 12];
+        private int size;
+        private boolean hasZero;
+
+        /**
+         * Adds a value.
+         *
+         * @param key The value.
+         * @return True if it was not already in the set.
+         */
+        boolean add(long key) {
+            if (key == 0) {
+                boolean added = !hasZero;
+                hasZero = true;
+                return added;
+            }
+            if (!insert(keys, key)) {
+                return false;
+            }
+            if (++size * 2 > keys.length) {
+                long[] larger = new long[keys.length * 2];
+                for (long old : keys) {
+                    if (old != 0) {
+                        insert(larger, old);
+                    }
+                }
+                keys = larger;
+            }
+            return true;
+        }
+
+        /**
+         * Puts a nonzero value in a table with linear probing, unless it is
+         * already there.
+         *
+         * @param table The table, whose length is a power of two and which
+         *     has at least one empty (zero) slot.
+         * @param key The value.
+         * @return True if it was added, false if it was already present.
+         */
+        private static boolean insert(long[] table, long key) {
+            int mask = table.length - 1;
+            int slot = (int) ((key * GOLDEN) >>> 32) & mask;
+            while (table[slot] != 0) {
+                if (table[slot] == key) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = key;
+            return true;
+        }
+    }
+
+    /**
+     * Generates puzzles into a file.
+     *
+     * @param args The rows, the columns, the name of a built-in flip rule,
+     *     the seed, the puzzles per band, the output file, and then the upper
+     *     press count of each band.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 7) {
+            System.err.println(
+                    "Usage: PuzzleGenerator rows cols rule seed per-band file limit...");
+            return;
+        }
+        int rows = Integer.parseInt(args[0]);
+        int cols = Integer.parseInt(args[1]);
+        FlipRule rule = FlipRule.named(args[2]);
+        long seed = Long.parseLong(args[3]);
+        int perBand = Integer.parseInt(args[4]);
+        Path file = Path.of(args[5]);
+        int[] limits = new int[args.length - 6];
+        for (int b = 0; b < limits.length; b++) {
+            limits[b] = Integer.parseInt(args[b + 6]);
+        }
+        long start = System.nanoTime();
+        new PuzzleGenerator(rows, cols, rule, seed, ForkJoinPool.commonPool())
+                .generate(limits, perBand, file);
+        System.out.printf("Wrote %d puzzles to %s in %.1f s%n", perBand * limits.length,
+                file, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,192 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A sorted set kept as a skip list whose links also record how many elements
+ * they skip, so an element's rank can be found on the way down to it. Adding,
+ * removing and ranking take expected O(log n) time; listing the first k
+ * elements takes O(k). The comparator must be a total order on the elements
+ * that are added. Not thread-safe.
+ *
+ * @param <E> The type of elements.
+ */
+class RankedSkipList<E> {
+    private static final int MAX_LEVEL = 32;
+
+    private final Comparator<? super E> order;
+    private final Node<E> head = new Node<>(null, MAX_LEVEL);
+    private int level = 1;
+    private int size;
+
+    /**
+     * A skip list node. span[i] is the number of positions next[i] is ahead.
+     *
+     * @param <E> The type of elements.
+     */
+    private static final class Node<E> {
+        final E value;
+        final Node<E>[] next;
+        final int[] span;
+
+        /**
+         * Creates a node.
+         *
+         * @param value The element.
+         * @param levels The number of levels it is linked in.
+         */
+        @SuppressWarnings("unchecked")
+        Node(E value, int levels) {
+            this.value = value;
+            this.next = (Node<E>[]) new Node<?>[levels];
+            this.span = new int[levels];
+        }
+    }
+
+    /**
+     * Creates an empty list.
+     *
+     * @param order The order to keep elements in.
+     */
+    RankedSkipList(Comparator<? super E> order) {
+        this.order = order;
+    }
+
+    /**
+     * Adds an element that is not already in the list.
+     *
+     * @param value The element.
+     * @return Its one-based rank.
+     */
+    int add(E value) {
+        @SuppressWarnings("unchecked")
+        Node<E>[] update = (Node<E>[]) new Node<?>[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node<E> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = (i == level - 1) ? 0 : rank[i + 1];
+            while (x.next[i] != null && order.compare(x.next[i].value, value) < 0) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        int levels = randomLevel();
+        if (levels > level) {
+            for (int i = level; i < levels; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = levels;
+        }
+        Node<E> node = new Node<>(value, levels);
+        for (int i = 0; i < levels; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = levels; i < level; i++) {
+            update[i].span[i]++;
+        }
+        size++;
+        return rank[0] + 1;
+    }
+
+    /**
+     * Removes an element.
+     *
+     * @param value The element.
+     * @return True if it was in the list, otherwise false.
+     */
+    boolean remove(E value) {
+        @SuppressWarnings("unchecked")
+        Node<E>[] update = (Node<E>[]) new Node<?>[MAX_LEVEL];
+        Node<E> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && order.compare(x.next[i].value, value) < 0) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        Node<E> target = x.next[0];
+        if (target == null || order.compare(target.value, value) != 0) {
+            return false;
+        }
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == target) {
+                update[i].span[i] += target.span[i] - 1;
+                update[i].next[i] = target.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Finds an element's rank.
+     *
+     * @param value The element.
+     * @return Its one-based rank, or 0 if it is not in the list.
+     */
+    int rank(E value) {
+        int rank = 0;
+        Node<E> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && order.compare(x.next[i].value, value) <= 0) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            if (x != head && order.compare(x.value, value) == 0) {
+                return rank;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Lists the first elements in order.
+     *
+     * @param k The most elements to list.
+     * @return Up to k elements, smallest first.
+     */
+    List<E> first(int k) {
+        List<E> values = new ArrayList<>(Math.min(k, size));
+        for (Node<E> x = head.next[0]; x != null && values.size() < k; x = x.next[0]) {
+            values.add(x.value);
+        }
+        return values;
+    }
+
+    /**
+     * Gets the number of elements.
+     *
+     * @return The size of the list.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Picks the number of levels for a new node: each level above the first
+     * with probability 1/4.
+     *
+     * @return The number of levels.
+     */
+    private static int randomLevel() {
+        int levels = 1;
+        while (levels < MAX_LEVEL && (ThreadLocalRandom.current().nextInt() & 3) == 0) {
+            levels++;
+        }
+        return levels;
+    }
+}
@@ -0,0 +1,156 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A board that several players press at the same time, without locks.
+ * Each press XORs its precomputed mask into the shared bitboard one word at a
+ * time with a compare-and-set retry loop, so players never block each other.
+ * Because XOR commutes, the board always ends up exactly as if the presses
+ * had been made one after another in any order.
+ *
+ * <p>A press that spans several words is not applied to all of them at once,
+ * so a reader racing with a press may briefly see it half-applied. Once the
+ * players stop, every query is exact.
+ */
+public class SharedBoard {
+    private final FlipKernel kernel;
+    private final AtomicLongArray tiles;
+    private final LongAdder[] moves;
+
+    /**
+     * Creates a square board with the classic rule and every tile off.
+     *
+     * @param size The size of the board.
+     * @param players The number of players, numbered from 0.
+     */
+    public SharedBoard(int size, int players) {
+        this(size, size, FlipRule.classic(size), players);
+    }
+
+    /**
+     * Creates a board with every tile off.
+     *
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @param rule The flip rule.
+     * @param players The number of players, numbered from 0.
+     */
+    public SharedBoard(int rows, int cols, FlipRule rule, int players) {
+        if (players <= 0) {
+            throw new IllegalArgumentException("There must be at least one player.");
+        }
+        kernel = FlipKernel.of(rule, rows, cols);
+        tiles = new AtomicLongArray(kernel.words);
+        moves = new LongAdder[players];
+        for (int p = 0; p < players; p++) {
+            moves[p] = new LongAdder();
+        }
+    }
+
+    /**
+     * Presses a tile on behalf of a player. Safe to call from any thread.
+     *
+     * @param player The player pressing.
+     * @param row The row to press.
+     * @param col The column to press.
+     * @return True if the move is valid, otherwise false.
+     */
+    public boolean press(int player, int row, int col) {
+        if (row < 0 || row >= kernel.rows || col < 0 || col >= kernel.cols
+                || player < 0 || player >= moves.length) {
+            return false;
+        }
+        int cell = row * kernel.cols + col;
+        int end = kernel.maskOffset[cell] + kernel.maskLength[cell];
+        for (int k = kernel.maskOffset[cell]; k < end; k++) {
+            int w = kernel.maskWord[k];
+            long mask = kernel.maskData[k];
+            long old;
+            do {
+                old = tiles.get(w);
+            } while (!tiles.compareAndSet(w, old, old ^ mask));
+        }
+        moves[player].increment();
+        return true;
+    }
+
+    /**
+     * Checks if every tile is on.
+     *
+     * @return True if the game is complete, otherwise false.
+     */
+    public boolean isComplete() {
+        long[] full = kernel.full;
+        for (int w = 0; w < full.length; w++) {
+            if (tiles.get(w) != full[w]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the tile at the specified position is on.
+     *
+     * @param row The row of the tile.
+     * @param col The column of the tile.
+     * @return True if the tile is on, otherwise false.
+     * @throws IndexOutOfBoundsException If the position is off the board.
+     */
+    public boolean isFlipped(int row, int col) {
+        if (row < 0 || row >= kernel.rows || col < 0 || col >= kernel.cols) {
+            throw new IndexOutOfBoundsException("(" + row + ", " + col + ") is off the "
+                    + kernel.rows + "x" + kernel.cols + " board.");
+        }
+        int cell = row * kernel.cols + col;
+        return (tiles.get(cell >>> 6) & (1L << cell)) != 0;
+    }
+
+    /**
+     * Gets the number of valid presses a player has made.
+     *
+     * @param player The player.
+     * @return The player's move count.
+     */
+    public long getMoveCount(int player) {
+        return moves[player].sum();
+    }
+
+    /**
+     * Gets the number of valid presses made by all players together.
+     *
+     * @return The total move count.
+     */
+    public long getTotalMoveCount() {
+        long total = 0;
+        for (LongAdder count : moves) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of players.
+     *
+     * @return The number of players.
+     */
+    public int getPlayerCount() {
+        return moves.length;
+    }
+
+    /**
+     * Copies the current tiles into a packed array, in the same layout as
+     * GameBoard.tiles(). Exact once the players stop.
+     *
+     * @return The tile words.
+     */
+    long[] snapshot() {
+        long[] copy = new long[kernel.words];
+        for (int w = 0; w < copy.length; w++) {
+            copy[w] = tiles.get(w);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,78 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of cells to press that turns every tile on.
+ * The presses are kept bit-packed in the same cell order as the board.
+ */
+public class Solution {
+    private final int cols;
+    private final long[] presses;
+    private final int pressCount;
+
+    /**
+     * Wraps a packed press vector.
+     *
+     * @param cols The number of columns on the board.
+     * @param presses The packed press vector (not copied).
+     */
+    Solution(int cols, long[] presses) {
+        this.cols = cols;
+        this.presses = presses;
+        int count = 0;
+        for (long word : presses) {
+            count += Long.bitCount(word);
+        }
+        this.pressCount = count;
+    }
+
+    /**
+     * Gets the number of presses in this solution.
+     *
+     * @return The number of cells to press.
+     */
+    public int getPressCount() {
+        return pressCount;
+    }
+
+    /**
+     * Checks if the tile at the specified position must be pressed.
+     *
+     * @param row The row of the tile.
+     * @param col The column of the tile.
+     * @return True if the tile is part of the solution, otherwise false.
+     */
+    public boolean isPressed(int row, int col) {
+        int cell = row * cols + col;
+        return (presses[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Lists the cells to press, in row-major order.
+     *
+     * @return The positions to press, each as {row, col}.
+     */
+    public List<int[]> getPresses() {
+        List<int[]> cells = new ArrayList<>(pressCount);
+        for (int w = 0; w < presses.length; w++) {
+            long word = presses[w];
+            while (word != 0) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(word);
+                cells.add(new int[] {cell / cols, cell % cols});
+                word &= word - 1;
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Gets the packed press vector backing this solution.
+     *
+     * @return The press vector (not copied).
+     */
+    long[] presses() {
+        return presses;
+    }
+}
@@ -0,0 +1,122 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.util.List;
+
+/**
+ * The reduced toggle matrix for one board shape and flip rule, in a form that
+ * solves any board of that shape without another elimination.
+ * It holds the pseudo-inverse P, the left null space (which targets are
+ * reachable), and the null space (which press sets change nothing), all bit-packed.
+ */
+public class SolutionOperator {
+    private final int cols;
+    private final int words;
+    private final long[][] inverse;
+    private final long[][] reachability;
+    private final long[][] kernelBasis;
+
+    /**
+     * Runs the elimination for a kernel and keeps the resulting operator.
+     *
+     * @param kernel The flip kernel.
+     */
+    SolutionOperator(FlipKernel kernel) {
+        ToggleEchelon echelon = new ToggleEchelon(kernel, new long[kernel.words], true);
+        cols = kernel.cols;
+        words = kernel.words;
+        inverse = echelon.pseudoInverse();
+        reachability = echelon.leftKernel();
+        kernelBasis = echelon.kernelBasis();
+    }
+
+    /**
+     * Gets the approximate memory held by this operator.
+     *
+     * @return The size in bytes.
+     */
+    public long sizeInBytes() {
+        return (long) (inverse.length + reachability.length + kernelBasis.length) * words
+                * Long.BYTES;
+    }
+
+    /**
+     * Gets the dimension of the null space, so a solvable board has 2^d solutions.
+     *
+     * @return The null-space dimension.
+     */
+    public int kernelDimension() {
+        return kernelBasis.length;
+    }
+
+    /**
+     * Solves for a packed target with one GF(2) matrix-vector product.
+     *
+     * @param target The packed tiles that must be flipped an odd number of times.
+     * @return The packed press vector, or null if the target is unreachable.
+     */
+    long[] apply(long[] target) {
+        for (long[] check : reachability) {
+            if ((overlap(check, target) & 1) != 0) {
+                return null;
+            }
+        }
+        long[] x = new long[words];
+        for (int col = 0; col < inverse.length; col++) {
+            if ((overlap(inverse[col], target) & 1) != 0) {
+                x[col >>> 6] |= 1L << col;
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Solves a board of this operator's shape.
+     *
+     * @param board The board to solve.
+     * @return The cells to press, or null if the board cannot be solved.
+     */
+    public Solution solve(GameBoard board) {
+        long[] x = apply(GameSolver.offTiles(board));
+        return x == null ? null : new Solution(cols, x);
+    }
+
+    /**
+     * Solves a board of this operator's shape with the fewest presses.
+     *
+     * @param board The board to solve.
+     * @return A minimum-press solution, or null if the board cannot be solved.
+     * @throws IllegalStateException If the null space is too large to search.
+     */
+    public Solution solveOptimal(GameBoard board) {
+        long[] x = apply(GameSolver.offTiles(board));
+        if (x == null) {
+            return null;
+        }
+        List<long[]> best = GameSolver.minimize(x, kernelBasis, false);
+        return new Solution(cols, best.get(0));
+    }
+
+    /**
+     * Gets the null-space basis.
+     *
+     * @return The packed basis vectors (not copied).
+     */
+    long[][] kernelBasis() {
+        return kernelBasis;
+    }
+
+    /**
+     * Counts the overlap between two packed vectors.
+     *
+     * @param a The first vector.
+     * @param b The second vector.
+     * @return The number of shared bits.
+     */
+    private static int overlap(long[] a, long[] b) {
+        int count = 0;
+        for (int w = 0; w < a.length; w++) {
+            count += Long.bitCount(a[w] & b[w]);
+        }
+        return count;
+    }
+}
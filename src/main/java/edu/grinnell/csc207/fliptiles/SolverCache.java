@@ -0,0 +1,245 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A bounded, least-recently-used cache of solution operators keyed by board
+ * shape and flip rule. Once a shape's operator is cached, solving any board of
+ * that shape is a matrix-vector product instead of a fresh elimination.
+ * All methods are thread-safe.
+ */
+public class SolverCache {
+    /**
+     * The default memory budget of the shared cache.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    private static final SolverCache SHARED = new SolverCache(DEFAULT_MAX_BYTES);
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, SolutionOperator> operators =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentHashMap<Key, CompletableFuture<SolutionOperator>> building =
+            new ConcurrentHashMap<>();
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * The identity of a toggle matrix.
+     *
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @param rule The flip rule.
+     */
+    private record Key(int rows, int cols, FlipRule rule) {
+    }
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxBytes The most memory the cached operators may hold.
+     */
+    public SolverCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the cache shared by the solver API.
+     *
+     * @return The shared cache.
+     */
+    public static SolverCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Gets the operator for a kernel, building and caching it on a miss.
+     * Operators too large for the budget are built but not kept. The lock is
+     * only held to look up and update the cache, not while building, so
+     * different shapes are built in parallel; threads that miss on the same
+     * shape at once wait for a single build.
+     *
+     * @param kernel The flip kernel.
+     * @return The solution operator.
+     */
+    public SolutionOperator operatorFor(FlipKernel kernel) {
+        Key key = new Key(kernel.rows, kernel.cols, kernel.rule);
+        SolutionOperator operator = cached(key);
+        if (operator != null) {
+            return operator;
+        }
+        CompletableFuture<SolutionOperator> build = new CompletableFuture<>();
+        CompletableFuture<SolutionOperator> running = building.putIfAbsent(key, build);
+        if (running == null) {
+            try {
+                // A build that finished between the first lookup and the
+                // putIfAbsent has already stored its operator and left the
+                // building map, so look again before building it twice.
+                // Either way the future is completed, since other threads
+                // may already be waiting on it.
+                operator = cached(key);
+                if (operator == null) {
+                    operator = new SolutionOperator(kernel);
+                    store(key, operator);
+                }
+                build.complete(operator);
+                return operator;
+            } catch (RuntimeException | Error e) {
+                build.completeExceptionally(e);
+                throw e;
+            } finally {
+                building.remove(key, build);
+            }
+        }
+        operator = await(running);
+        synchronized (this) {
+            hits++;
+        }
+        return operator;
+    }
+
+    /**
+     * Solves a board using the cached operator for its shape.
+     *
+     * @param board The board to solve.
+     * @return The cells to press, or null if the board cannot be solved.
+     */
+    public Solution solve(GameBoard board) {
+        return operatorFor(board.kernel()).solve(board);
+    }
+
+    /**
+     * Solves a board with the fewest presses using the cached operator for its shape.
+     *
+     * @param board The board to solve.
+     * @return A minimum-press solution, or null if the board cannot be solved.
+     * @throws IllegalStateException If the null space is too large to search.
+     */
+    public Solution solveOptimal(GameBoard board) {
+        return operatorFor(board.kernel()).solveOptimal(board);
+    }
+
+    /**
+     * Looks up a cached operator, counting a hit or a miss.
+     *
+     * @param key The operator's shape and rule.
+     * @return The operator, or null if it is not cached.
+     */
+    private synchronized SolutionOperator cached(Key key) {
+        SolutionOperator operator = operators.get(key);
+        if (operator != null) {
+            hits++;
+        }
+        return operator;
+    }
+
+    /**
+     * Caches a newly built operator, evicting the least recently used ones
+     * to stay within the budget.
+     *
+     * @param key The operator's shape and rule.
+     * @param operator The operator.
+     */
+    private synchronized void store(Key key, SolutionOperator operator) {
+        misses++;
+        long size = operator.sizeInBytes();
+        if (size > maxBytes) {
+            return;
+        }
+        operators.put(key, operator);
+        bytes += size;
+        Iterator<Map.Entry<Key, SolutionOperator>> eldest = operators.entrySet().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().getValue().sizeInBytes();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Waits for an operator to be built.
+     *
+     * @param build The build.
+     * @return The operator.
+     */
+    private static SolutionOperator await(CompletableFuture<SolutionOperator> build) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return build.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of lookups that found a cached operator.
+     *
+     * @return The hit count.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that had to run an elimination.
+     *
+     * @return The miss count.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of operators dropped to stay within the memory budget.
+     *
+     * @return The eviction count.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the memory currently held by cached operators.
+     *
+     * @return The size in bytes.
+     */
+    public synchronized long getBytesUsed() {
+        return bytes;
+    }
+
+    /**
+     * Drops every cached operator and resets the hit, miss and eviction
+     * counts.
+     */
+    public synchronized void clear() {
+        operators.clear();
+        bytes = 0;
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+}
@@ -0,0 +1,364 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The toggle matrix of a flip kernel, reduced to row echelon form over GF(2).
+ * Row i holds the cells whose press flips tile i, and the right-hand side holds
+ * the tiles that still need an odd number of flips.
+ * Rows are bit-packed windows covering only the columns they can touch, which
+ * for local flip patterns is a narrow band around the diagonal, so each row
+ * operation is a handful of word XORs even on very large boards.
+ */
+class ToggleEchelon {
+    private final int cells;
+    private final int words;
+    private final long[][] bits;
+    private final int[] offset;
+    private final int[] end;
+    private final long[] rhs;
+    private final int[] pivotRow;
+    private final long[][] combination;
+    private final List<long[]> vanished = new ArrayList<>();
+    private boolean consistent = true;
+
+    /**
+     * Builds and reduces the toggle system for a kernel.
+     *
+     * @param kernel The flip kernel defining the toggle matrix.
+     * @param target The packed tiles that must be flipped an odd number of times.
+     */
+    ToggleEchelon(FlipKernel kernel, long[] target) {
+        this(kernel, target, false);
+    }
+
+    /**
+     * Builds and reduces the toggle system for a kernel, optionally recording
+     * which original rows were summed into each reduced row. The record is what
+     * lets a SolutionOperator be derived, but it costs a full-width vector per row.
+     *
+     * @param kernel The flip kernel defining the toggle matrix.
+     * @param target The packed tiles that must be flipped an odd number of times.
+     * @param track Whether to record row combinations.
+     */
+    ToggleEchelon(FlipKernel kernel, long[] target, boolean track) {
+        cells = kernel.cells;
+        words = kernel.words;
+        bits = new long[cells][];
+        offset = new int[cells];
+        end = new int[cells];
+        rhs = target.clone();
+        pivotRow = new int[cells];
+        Arrays.fill(pivotRow, -1);
+        combination = track ? new long[cells][] : null;
+        if (track) {
+            for (int row = 0; row < cells; row++) {
+                combination[row] = new long[words];
+                combination[row][row >>> 6] = 1L << row;
+            }
+        }
+        int[] lead = buildRows(kernel);
+        eliminate(lead);
+    }
+
+    /**
+     * Fills in the rows of the toggle matrix from the kernel's press masks.
+     *
+     * @param kernel The flip kernel.
+     * @return The leading column of every row, or -1 for a tile no press reaches.
+     */
+    private int[] buildRows(FlipKernel kernel) {
+        int[] lo = new int[cells];
+        int[] hi = new int[cells];
+        Arrays.fill(lo, Integer.MAX_VALUE);
+        Arrays.fill(hi, -1);
+        for (int pass = 0; pass < 2; pass++) {
+            for (int press = 0; press < cells; press++) {
+                int maskEnd = kernel.maskOffset[press] + kernel.maskLength[press];
+                for (int k = kernel.maskOffset[press]; k < maskEnd; k++) {
+                    long word = kernel.maskData[k];
+                    while (word != 0) {
+                        int tile = (kernel.maskWord[k] << 6) + Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                        if (pass == 0) {
+                            lo[tile] = Math.min(lo[tile], press);
+                            hi[tile] = Math.max(hi[tile], press);
+                        } else {
+                            bits[tile][(press >>> 6) - offset[tile]] |= 1L << press;
+                        }
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int row = 0; row < cells; row++) {
+                    if (hi[row] < 0) {
+                        lo[row] = -1;
+                        bits[row] = new long[0];
+                        continue;
+                    }
+                    offset[row] = lo[row] >>> 6;
+                    end[row] = (hi[row] >>> 6) + 1;
+                    bits[row] = new long[end[row] - offset[row]];
+                }
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Reduces the rows column by column. Rows are bucketed by their leading
+     * column; for each column the row with the shortest extent becomes the
+     * pivot, which keeps fill-in close to the band.
+     *
+     * @param lead The leading column of every row.
+     */
+    private void eliminate(int[] lead) {
+        int[] head = new int[cells];
+        int[] next = new int[cells];
+        Arrays.fill(head, -1);
+        for (int row = cells - 1; row >= 0; row--) {
+            if (lead[row] < 0) {
+                rowVanished(row);
+                continue;
+            }
+            next[row] = head[lead[row]];
+            head[lead[row]] = row;
+        }
+        for (int col = 0; col < cells; col++) {
+            int pivot = head[col];
+            if (pivot < 0) {
+                continue;
+            }
+            for (int row = next[pivot]; row >= 0; row = next[row]) {
+                if (end[row] < end[pivot]) {
+                    pivot = row;
+                }
+            }
+            pivotRow[col] = pivot;
+            int row = head[col];
+            while (row >= 0) {
+                int following = next[row];
+                if (row != pivot) {
+                    xorRow(pivot, row, col);
+                    int newLead = leadingColumn(row, col + 1);
+                    if (newLead < 0) {
+                        rowVanished(row);
+                    } else {
+                        next[row] = head[newLead];
+                        head[newLead] = row;
+                    }
+                }
+                row = following;
+            }
+            head[col] = -1;
+        }
+    }
+
+    /**
+     * Adds the source row into the target row, growing the target if needed.
+     *
+     * @param source The row to add.
+     * @param target The row to update.
+     * @param col The shared leading column of both rows.
+     */
+    private void xorRow(int source, int target, int col) {
+        if (end[source] > offset[target] + bits[target].length) {
+            int length = end[source] - offset[target];
+            bits[target] = Arrays.copyOf(bits[target], length + (length >>> 1));
+        }
+        long[] from = bits[source];
+        long[] to = bits[target];
+        int fromOffset = offset[source];
+        int toOffset = offset[target];
+        for (int w = col >>> 6; w < end[source]; w++) {
+            to[w - toOffset] ^= from[w - fromOffset];
+        }
+        end[target] = Math.max(end[target], end[source]);
+        if ((rhs[source >>> 6] & (1L << source)) != 0) {
+            rhs[target >>> 6] ^= 1L << target;
+        }
+        if (combination != null) {
+            long[] sourceCombination = combination[source];
+            long[] targetCombination = combination[target];
+            for (int w = 0; w < words; w++) {
+                targetCombination[w] ^= sourceCombination[w];
+            }
+        }
+    }
+
+    /**
+     * Finds the first set column of a row at or after a given column.
+     *
+     * @param row The row to scan.
+     * @param from The first column to consider.
+     * @return The leading column, or -1 if the row is now zero.
+     */
+    private int leadingColumn(int row, int from) {
+        long[] data = bits[row];
+        int base = offset[row];
+        int w = from >>> 6;
+        if (w >= end[row]) {
+            return -1;
+        }
+        long word = data[w - base] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w >= end[row]) {
+                return -1;
+            }
+            word = data[w - base];
+        }
+    }
+
+    /**
+     * Records a row that reduced to zero. If its right-hand side is set,
+     * the system has no solution.
+     *
+     * @param row The row that vanished.
+     */
+    private void rowVanished(int row) {
+        if ((rhs[row >>> 6] & (1L << row)) != 0) {
+            consistent = false;
+        }
+        if (combination != null) {
+            vanished.add(combination[row]);
+        }
+    }
+
+    /**
+     * Checks whether the system has a solution.
+     *
+     * @return True if the target can be reached, otherwise false.
+     */
+    boolean isConsistent() {
+        return consistent;
+    }
+
+    /**
+     * Back-substitutes to find the press vector. Free columns keep whatever
+     * value the caller placed in x; pivot columns are solved in decreasing order.
+     *
+     * @param x The packed press vector, with free columns preset.
+     * @param withRhs Whether to use the right-hand side (false solves the homogeneous system).
+     */
+    void backSubstitute(long[] x, boolean withRhs) {
+        for (int col = cells - 1; col >= 0; col--) {
+            int row = pivotRow[col];
+            if (row < 0) {
+                continue;
+            }
+            long[] data = bits[row];
+            int base = offset[row];
+            int parity = withRhs ? (int) (rhs[row >>> 6] >>> row) & 1 : 0;
+            for (int w = col >>> 6; w < end[row]; w++) {
+                parity ^= Long.bitCount(data[w - base] & x[w]);
+            }
+            if ((parity & 1) != 0) {
+                x[col >>> 6] |= 1L << col;
+            }
+        }
+    }
+
+    /**
+     * Computes one solution, with every free column set to zero.
+     *
+     * @return The packed press vector, or null if there is no solution.
+     */
+    long[] particularSolution() {
+        if (!consistent) {
+            return null;
+        }
+        long[] x = new long[words];
+        backSubstitute(x, true);
+        return x;
+    }
+
+    /**
+     * Counts the free columns, which is the dimension of the null space.
+     *
+     * @return The number of columns without a pivot.
+     */
+    int freeColumns() {
+        int free = 0;
+        for (int col = 0; col < cells; col++) {
+            if (pivotRow[col] < 0) {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Computes a basis of the null space: one press vector per free column,
+     * each of which leaves the board unchanged.
+     *
+     * @return The kernel basis vectors, packed.
+     */
+    long[][] kernelBasis() {
+        long[][] basis = new long[freeColumns()][];
+        int k = 0;
+        for (int col = 0; col < cells; col++) {
+            if (pivotRow[col] < 0) {
+                long[] x = new long[words];
+                x[col >>> 6] |= 1L << col;
+                backSubstitute(x, false);
+                basis[k++] = x;
+            }
+        }
+        return basis;
+    }
+
+    /**
+     * Derives the pseudo-inverse P of the toggle matrix: for any reachable
+     * target b, x = P b is a solution. Row c of P is the combination recorded
+     * for the pivot row of column c plus the rows of P for the later columns
+     * that pivot row references; rows for free columns stay zero.
+     * Requires the echelon to have been built with tracking enabled.
+     *
+     * @return The rows of P, packed.
+     */
+    long[][] pseudoInverse() {
+        long[][] inverse = new long[cells][];
+        long[] zero = new long[words];
+        for (int col = cells - 1; col >= 0; col--) {
+            int row = pivotRow[col];
+            if (row < 0) {
+                inverse[col] = zero;
+                continue;
+            }
+            long[] result = combination[row].clone();
+            long[] data = bits[row];
+            int base = offset[row];
+            for (int w = col >>> 6; w < end[row]; w++) {
+                long word = data[w - base];
+                if (w == col >>> 6) {
+                    word &= -1L << col << 1;
+                }
+                while (word != 0) {
+                    long[] later = inverse[(w << 6) + Long.numberOfTrailingZeros(word)];
+                    for (int i = 0; i < words; i++) {
+                        result[i] ^= later[i];
+                    }
+                    word &= word - 1;
+                }
+            }
+            inverse[col] = result;
+        }
+        return inverse;
+    }
+
+    /**
+     * Gets the combinations of original rows that reduced to zero. A target b is
+     * reachable exactly when it has even overlap with each of them.
+     * Requires the echelon to have been built with tracking enabled.
+     *
+     * @return The left null-space vectors, packed.
+     */
+    long[][] leftKernel() {
+        return vanished.toArray(new long[0][]);
+    }
+}
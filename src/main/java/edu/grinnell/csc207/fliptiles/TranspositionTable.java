@@ -0,0 +1,198 @@
+package edu.grinnell.csc207.fliptiles;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table from board hashes (such as
+ * {@link GameBoard#zobristHash()}) to int values, for remembering positions
+ * already seen by a search or generator. Entries live in parallel primitive
+ * arrays, so lookups and stores never allocate. Each store carries a depth
+ * (how much work the value represents), which the replacement policy uses to
+ * decide what to keep when two positions collide.
+ *
+ * <p>Only the full 64-bit hash is stored, not the board, so two different
+ * boards with the same hash are treated as the same position. With random
+ * 64-bit keys this is vanishingly rare.
+ */
+public class TranspositionTable {
+    /**
+     * What to do when a new position lands on an occupied slot.
+     */
+    public enum Policy {
+        /**
+         * The newest entry always wins.
+         */
+        ALWAYS_REPLACE,
+        /**
+         * Keep whichever entry has the greater depth; ties go to the newest.
+         */
+        DEPTH_PREFERRED,
+        /**
+         * Slots come in pairs: the first is depth-preferred and the second
+         * takes whatever the first turns away.
+         */
+        TWO_TIER
+    }
+
+    private final Policy policy;
+    private final int shift;
+    private final long[] keys;
+    private final int[] values;
+    private final int[] depths;
+    private int size;
+
+    /**
+     * Creates an empty table.
+     *
+     * @param capacity The number of entries, rounded up to a power of two.
+     * @param policy The replacement policy.
+     */
+    public TranspositionTable(int capacity, Policy policy) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30.");
+        }
+        int slots = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        this.policy = policy;
+        this.shift = 64 - Integer.numberOfTrailingZeros(slots);
+        this.keys = new long[slots];
+        this.values = new int[slots];
+        this.depths = new int[slots];
+    }
+
+    /**
+     * Looks up the value stored for a position.
+     *
+     * @param key The position's hash.
+     * @param missing What to return if the position is not in the table.
+     * @return The stored value, or missing.
+     */
+    public int get(long key, int missing) {
+        int slot = find(key);
+        return slot < 0 ? missing : values[slot];
+    }
+
+    /**
+     * Checks whether a position is in the table.
+     *
+     * @param key The position's hash.
+     * @return True if it is present, otherwise false.
+     */
+    public boolean contains(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Gets the depth stored for a position.
+     *
+     * @param key The position's hash.
+     * @return The stored depth, or -1 if the position is not in the table.
+     */
+    public int depth(long key) {
+        int slot = find(key);
+        return slot < 0 ? -1 : depths[slot] - 1;
+    }
+
+    /**
+     * Stores a value for a position, subject to the replacement policy.
+     * A position already in the table is always updated in place.
+     *
+     * @param key The position's hash.
+     * @param value The value to store.
+     * @param depth The work the value represents, from 0 to Integer.MAX_VALUE - 1.
+     * @return True if the value was stored, false if the policy kept an older entry.
+     * @throws IllegalArgumentException If the depth is out of range.
+     */
+    public boolean put(long key, int value, int depth) {
+        if (depth < 0 || depth == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Depth must be between 0 and "
+                    + (Integer.MAX_VALUE - 1) + ".");
+        }
+        int slot = find(key);
+        if (slot < 0) {
+            slot = home(key);
+            switch (policy) {
+                case ALWAYS_REPLACE:
+                    break;
+                case DEPTH_PREFERRED:
+                    if (depths[slot] > depth + 1) {
+                        return false;
+                    }
+                    break;
+                default:
+                    if (depths[slot] > depth + 1) {
+                        slot++;
+                    } else if (depths[slot] != 0) {
+                        // The entry turned out of the home slot moves to the other one.
+                        if (depths[slot + 1] == 0) {
+                            size++;
+                        }
+                        keys[slot + 1] = keys[slot];
+                        values[slot + 1] = values[slot];
+                        depths[slot + 1] = depths[slot];
+                    }
+            }
+        }
+        if (depths[slot] == 0) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        depths[slot] = depth + 1;
+        return true;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        Arrays.fill(depths, 0);
+        size = 0;
+    }
+
+    /**
+     * Gets the number of entries stored.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the most entries the table can hold.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Gets the first slot a key may occupy. Under the two-tier policy this is
+     * the even slot of its pair.
+     *
+     * @param key The position's hash.
+     * @return The slot.
+     */
+    private int home(long key) {
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+        return policy == Policy.TWO_TIER ? slot & ~1 : slot;
+    }
+
+    /**
+     * Finds the slot holding a key.
+     *
+     * @param key The position's hash.
+     * @return The slot, or -1 if the key is not stored.
+     */
+    private int find(long key) {
+        int slot = home(key);
+        if (depths[slot] != 0 && keys[slot] == key) {
+            return slot;
+        }
+        if (policy == Policy.TWO_TIER && depths[slot + 1] != 0 && keys[slot + 1] == key) {
+            return slot + 1;
+        }
+        return -1;
+    }
+}
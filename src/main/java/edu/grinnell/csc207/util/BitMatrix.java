@@ -0,0 +1,563 @@
+package edu.grinnell.csc207.util;
+
+import java.util.Arrays;
+
+/**
+ * Two-dimensional matrices of booleans, packed one bit per cell. Each row
+ * occupies a whole number of longs, so rows can be inserted and deleted
+ * with array copies and columns with word-wide shifts. Bits past the width
+ * of a row are always zero. The Matrix methods box and unbox; getBoolean
+ * and setBoolean do not.
+ */
+public class BitMatrix implements Matrix<Boolean> {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The width of the matrix.
+   */
+  private int width;
+
+  /**
+   * The height of the matrix.
+   */
+  private int height;
+
+  /**
+   * The number of longs used for each row.
+   */
+  private int stride;
+
+  /**
+   * The cells, row by row, 64 to a long.
+   */
+  private long[] bits;
+
+  /**
+   * Default value for matrix elements when not set.
+   */
+  private boolean defaultValue;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new matrix of the specified width and height with the
+   * given value as the default.
+   *
+   * @param width
+   *   The width of the matrix.
+   * @param height
+   *   The height of the matrix.
+   * @param def
+   *   The default value, used to fill all the cells.
+   *
+   * @throws NegativeArraySizeException
+   *   If either the width or height are negative.
+   */
+  public BitMatrix(int width, int height, boolean def) {
+    if (width < 0 || height < 0) {
+      throw new NegativeArraySizeException("Width and height must be non-negative.");
+    } // if
+    this.width = width;
+    this.height = height;
+    this.defaultValue = def;
+    this.stride = (width + 63) >>> 6;
+    this.bits = new long[stride * height];
+    if (def) {
+      fillRegion(0, 0, height, width, true);
+    } // if
+  } // BitMatrix(int, int, boolean)
+
+  /**
+   * Create a new matrix of the specified width and height with
+   * false as the default value.
+   *
+   * @param width
+   *   The width of the matrix.
+   * @param height
+   *   The height of the matrix.
+   *
+   * @throws NegativeArraySizeException
+   *   If either the width or height are negative.
+   */
+  public BitMatrix(int width, int height) {
+    this(width, height, false);
+  } // BitMatrix(int, int)
+
+  // +-----------------+---------------------------------------------
+  // | Unboxed methods |
+  // +-----------------+
+
+  /**
+   * Get the boolean at the given row and column.
+   *
+   * @param row
+   *   The row of the element.
+   * @param col
+   *   The column of the element.
+   *
+   * @return the value at the specified location.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If either the row or column is out of reasonable bounds.
+   */
+  public boolean getBoolean(int row, int col) {
+    checkCell(row, col);
+    return (bits[row * stride + (col >>> 6)] & (1L << col)) != 0;
+  } // getBoolean(int, int)
+
+  /**
+   * Set the boolean at the given row and column.
+   *
+   * @param row
+   *   The row of the element.
+   * @param col
+   *   The column of the element.
+   * @param val
+   *   The value to set.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If either the row or column is out of reasonable bounds.
+   */
+  public void setBoolean(int row, int col, boolean val) {
+    checkCell(row, col);
+    if (val) {
+      bits[row * stride + (col >>> 6)] |= 1L << col;
+    } else {
+      bits[row * stride + (col >>> 6)] &= ~(1L << col);
+    } // if/else
+  } // setBoolean(int, int, boolean)
+
+  /**
+   * Invert the boolean at the given row and column.
+   *
+   * @param row
+   *   The row of the element.
+   * @param col
+   *   The column of the element.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If either the row or column is out of reasonable bounds.
+   */
+  public void flip(int row, int col) {
+    checkCell(row, col);
+    bits[row * stride + (col >>> 6)] ^= 1L << col;
+  } // flip(int, int)
+
+  /**
+   * Count the cells that are true.
+   *
+   * @return the number of true cells.
+   */
+  public int cardinality() {
+    int count = 0;
+    for (long word : bits) {
+      count += Long.bitCount(word);
+    } // for
+    return count;
+  } // cardinality()
+
+  // +--------------+------------------------------------------------
+  // | Core methods |
+  // +--------------+
+
+  /**
+   * Get the element at the given row and column.
+   *
+   * @param row
+   *   The row of the element.
+   * @param col
+   *   The column of the element.
+   *
+   * @return the value at the specified location.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If either the row or column is out of reasonable bounds.
+   */
+  public Boolean get(int row, int col) {
+    return getBoolean(row, col);
+  } // get(int, int)
+
+  /**
+   * Set the element at the given row and column.
+   *
+   * @param row
+   *   The row of the element.
+   * @param col
+   *   The column of the element.
+   * @param val
+   *   The value to set.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If either the row or column is out of reasonable bounds.
+   * @throws NullPointerException
+   *   If val is null.
+   */
+  public void set(int row, int col, Boolean val) {
+    setBoolean(row, col, val);
+  } // set(int, int, Boolean)
+
+  /**
+   * Determine the number of rows in the matrix.
+   *
+   * @return the number of rows.
+   */
+  public int height() {
+    return height;
+  } // height()
+
+  /**
+   * Determine the number of columns in the matrix.
+   *
+   * @return the number of columns.
+   */
+  public int width() {
+    return width;
+  } // width()
+
+  /**
+   * Insert a row filled with the default value.
+   *
+   * @param row
+   *   The number of the row to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than the height.
+   */
+  public void insertRow(int row) {
+    openRow(row);
+    fillRegion(row, 0, row + 1, width, defaultValue);
+  } // insertRow(int)
+
+  /**
+   * Insert a row filled with the specified values.
+   *
+   * @param row
+   *   The number of the row to insert.
+   * @param vals
+   *   The values to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than the height.
+   * @throws ArraySizeException
+   *   If the size of vals is not the same as the width of the matrix.
+   */
+  public void insertRow(int row, Boolean[] vals) throws ArraySizeException {
+    if (row < 0 || row > height) {
+      throw new IndexOutOfBoundsException("Invalid row index.");
+    } // if
+    if (vals.length != width) {
+      throw new ArraySizeException("Size of values array does not match matrix width.");
+    } // if
+    openRow(row);
+    for (int col = 0; col < width; col++) {
+      setBoolean(row, col, vals[col]);
+    } // for
+  } // insertRow(int, Boolean[])
+
+  /**
+   * Insert a column filled with the default value.
+   *
+   * @param col
+   *   The number of the column to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than the width.
+   */
+  public void insertCol(int col) {
+    openCol(col);
+    if (defaultValue) {
+      fillRegion(0, col, height, col + 1, true);
+    } // if
+  } // insertCol(int)
+
+  /**
+   * Insert a column filled with the specified values.
+   *
+   * @param col
+   *   The number of the column to insert.
+   * @param vals
+   *   The values to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than the width.
+   * @throws ArraySizeException
+   *   If the size of vals is not the same as the height of the matrix.
+   */
+  public void insertCol(int col, Boolean[] vals) throws ArraySizeException {
+    if (col < 0 || col > width) {
+      throw new IndexOutOfBoundsException("Invalid column index.");
+    } // if
+    if (vals.length != height) {
+      throw new ArraySizeException("Size of values array does not match matrix height.");
+    } // if
+    openCol(col);
+    for (int row = 0; row < height; row++) {
+      setBoolean(row, col, vals[row]);
+    } // for
+  } // insertCol(int, Boolean[])
+
+  /**
+   * Delete a row.
+   *
+   * @param row
+   *   The number of the row to delete.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than or equal to the height.
+   */
+  public void deleteRow(int row) {
+    if (row < 0 || row >= height) {
+      throw new IndexOutOfBoundsException("Invalid row index.");
+    } // if
+    long[] newBits = new long[(height - 1) * stride];
+    System.arraycopy(bits, 0, newBits, 0, row * stride);
+    System.arraycopy(bits, (row + 1) * stride, newBits, row * stride,
+        (height - row - 1) * stride);
+    bits = newBits;
+    height--;
+  } // deleteRow(int)
+
+  /**
+   * Delete a column.
+   *
+   * @param col
+   *   The number of the column to delete.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than or equal to the width.
+   */
+  public void deleteCol(int col) {
+    if (col < 0 || col >= width) {
+      throw new IndexOutOfBoundsException("Invalid column index.");
+    } // if
+    int first = col >>> 6;
+    long low = (1L << col) - 1;
+    for (int row = 0; row < height; row++) {
+      int base = row * stride;
+      for (int w = first; w < stride; w++) {
+        long word = bits[base + w];
+        long next = (w + 1 < stride) ? bits[base + w + 1] : 0;
+        if (w == first) {
+          bits[base + w] = (word & low) | ((word >>> 1) & ~low) | (next << 63);
+        } else {
+          bits[base + w] = (word >>> 1) | (next << 63);
+        } // if/else
+      } // for w
+    } // for row
+    width--;
+  } // deleteCol(int)
+
+  /**
+   * Fill a rectangular region of the matrix.
+   *
+   * @param startRow
+   *   The top edge / row to start with (inclusive).
+   * @param startCol
+   *   The left edge / column to start with (inclusive).
+   * @param endRow
+   *   The bottom edge / row to stop with (exclusive).
+   * @param endCol
+   *   The right edge / column to stop with (exclusive).
+   * @param val
+   *   The value to store.
+   *
+   * @throw IndexOutOfBoundsException
+   *   If the rows or columns are inappropriate.
+   */
+  public void fillRegion(int startRow, int startCol, int endRow, int endCol,
+      Boolean val) {
+    if (startRow >= endRow || startCol >= endCol) {
+      return;
+    } // if
+    checkCell(startRow, startCol);
+    checkCell(endRow - 1, endCol - 1);
+    for (int row = startRow; row < endRow; row++) {
+      int col = startCol;
+      while (col < endCol) {
+        int stop = Math.min(endCol, (col | 63) + 1);
+        int count = stop - col;
+        long mask = ((count == 64) ? -1L : (1L << count) - 1) << col;
+        int index = row * stride + (col >>> 6);
+        if (val) {
+          bits[index] |= mask;
+        } else {
+          bits[index] &= ~mask;
+        } // if/else
+        col = stop;
+      } // while
+    } // for
+  } // fillRegion(int, int, int, int, Boolean)
+
+  /**
+   * Fill a line (horizontal, vertical, diagonal).
+   *
+   * @param startRow
+   *   The row to start with (inclusive).
+   * @param startCol
+   *   The column to start with (inclusive).
+   * @param deltaRow
+   *   How much to change the row in each step.
+   * @param deltaCol
+   *   How much to change the column in each step.
+   * @param endRow
+   *   The row to stop with (exclusive).
+   * @param endCol
+   *   The column to stop with (exclusive).
+   * @param val
+   *   The value to store.
+   *
+   * @throw IndexOutOfBoundsException
+   *   If the rows or columns are inappropriate.
+   */
+  public void fillLine(int startRow, int startCol, int deltaRow,
+      int deltaCol, int endRow, int endCol, Boolean val) {
+    int row = startRow;
+    int col = startCol;
+    while (row < endRow && col < endCol) {
+      setBoolean(row, col, val);
+      row += deltaRow;
+      col += deltaCol;
+    } // while
+  } // fillLine(int, int, int, int, int, int, Boolean)
+
+  /**
+   * Make a copy of the matrix.
+   *
+   * @return a copy of the matrix.
+   */
+  public BitMatrix clone() {
+    BitMatrix result = new BitMatrix(0, 0, defaultValue);
+    result.width = width;
+    result.height = height;
+    result.stride = stride;
+    result.bits = bits.clone();
+    return result;
+  } // clone()
+
+  /**
+   * Determine if this object is equal to another object.
+   *
+   * @param other
+   *   The object to compare.
+   *
+   * @return true if the other object is a BitMatrix with the same width,
+   * height, and equal elements; false otherwise.
+   */
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } // if
+    if (!(other instanceof BitMatrix)) {
+      return false;
+    } // if
+    BitMatrix otherMatrix = (BitMatrix) other;
+    if (width != otherMatrix.width || height != otherMatrix.height) {
+      return false;
+    } // if
+    int used = (width + 63) >>> 6;
+    for (int row = 0; row < height; row++) {
+      if (!Arrays.equals(bits, row * stride, row * stride + used,
+          otherMatrix.bits, row * otherMatrix.stride, row * otherMatrix.stride + used)) {
+        return false;
+      } // if
+    } // for
+    return true;
+  } // equals(Object)
+
+  /**
+   * Compute a hash code for this matrix.
+   *
+   * @return the hash code.
+   */
+  public int hashCode() {
+    int code = width * 31 + height;
+    int used = (width + 63) >>> 6;
+    for (int row = 0; row < height; row++) {
+      for (int w = 0; w < used; w++) {
+        code = code * 31 + Long.hashCode(bits[row * stride + w]);
+      } // for w
+    } // for row
+    return code;
+  } // hashCode()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make sure that a cell is in the matrix.
+   *
+   * @param row
+   *   The row of the cell.
+   * @param col
+   *   The column of the cell.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the cell is outside the matrix.
+   */
+  private void checkCell(int row, int col) {
+    if (row < 0 || row >= height || col < 0 || col >= width) {
+      throw new IndexOutOfBoundsException("Row or column is out of bounds.");
+    } // if
+  } // checkCell(int, int)
+
+  /**
+   * Make room for a new, all-false row.
+   *
+   * @param row
+   *   The number of the row to open.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than the height.
+   */
+  private void openRow(int row) {
+    if (row < 0 || row > height) {
+      throw new IndexOutOfBoundsException("Invalid row index.");
+    } // if
+    long[] newBits = new long[(height + 1) * stride];
+    System.arraycopy(bits, 0, newBits, 0, row * stride);
+    System.arraycopy(bits, row * stride, newBits, (row + 1) * stride, (height - row) * stride);
+    bits = newBits;
+    height++;
+  } // openRow(int)
+
+  /**
+   * Make room for a new, all-false column by shifting the later bits of
+   * every row up by one, widening the rows first if they are full.
+   *
+   * @param col
+   *   The number of the column to open.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than the width.
+   */
+  private void openCol(int col) {
+    if (col < 0 || col > width) {
+      throw new IndexOutOfBoundsException("Invalid column index.");
+    } // if
+    int newStride = (width + 64) >>> 6;
+    if (newStride > stride) {
+      long[] newBits = new long[height * newStride];
+      for (int row = 0; row < height; row++) {
+        System.arraycopy(bits, row * stride, newBits, row * newStride, stride);
+      } // for
+      bits = newBits;
+      stride = newStride;
+    } // if
+    int first = col >>> 6;
+    long low = (1L << col) - 1;
+    for (int row = 0; row < height; row++) {
+      int base = row * stride;
+      for (int w = stride - 1; w > first; w--) {
+        bits[base + w] = (bits[base + w] << 1) | (bits[base + w - 1] >>> 63);
+      } // for w
+      long word = bits[base + first];
+      bits[base + first] = (word & low) | ((word & ~low) << 1);
+    } // for row
+    width++;
+  } // openCol(int)
+} // class BitMatrix
@@ -0,0 +1,260 @@
+package edu.grinnell.csc207.util;
+
+import java.util.Arrays;
+
+/**
+ * A set of commands compiled into a case-insensitive trie, for matching
+ * typed commands quickly. A command may be given in full or abbreviated to
+ * any prefix that only one command starts with; an exact match always wins,
+ * even if it is also the prefix of a longer command. Lookups allocate
+ * nothing. Tables are immutable once built, so they may be shared.
+ */
+public class CommandTable {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The result of a lookup that matches no command.
+   */
+  public static final int NONE = -1;
+
+  /**
+   * The result of a lookup that abbreviates more than one command.
+   */
+  public static final int AMBIGUOUS = -2;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The commands, as given.
+   */
+  private final String[] commands;
+
+  /**
+   * The character leading into each node (folded to lower case).
+   */
+  private char[] label;
+
+  /**
+   * The first child of each node, or -1.
+   */
+  private int[] firstChild;
+
+  /**
+   * The next sibling of each node, or -1.
+   */
+  private int[] nextSibling;
+
+  /**
+   * The command that ends exactly at each node, or NONE.
+   */
+  private int[] exact;
+
+  /**
+   * The only command below each node, NONE, or AMBIGUOUS.
+   */
+  private int[] only;
+
+  /**
+   * The number of nodes in use.
+   */
+  private int size;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Compile a table of commands.
+   *
+   * @param commands
+   *   The valid commands.
+   *
+   * @throws IllegalArgumentException
+   *   If two commands differ only in case, or a command is empty.
+   */
+  public CommandTable(String[] commands) {
+    this.commands = commands.clone();
+    int capacity = 1;
+    for (String command : commands) {
+      capacity += command.length();
+    } // for
+    this.label = new char[capacity];
+    this.firstChild = new int[capacity];
+    this.nextSibling = new int[capacity];
+    this.exact = new int[capacity];
+    this.only = new int[capacity];
+    newNode('\0');
+    for (int i = 0; i < commands.length; i++) {
+      add(commands[i], i);
+    } // for
+    this.label = Arrays.copyOf(this.label, size);
+    this.firstChild = Arrays.copyOf(this.firstChild, size);
+    this.nextSibling = Arrays.copyOf(this.nextSibling, size);
+    this.exact = Arrays.copyOf(this.exact, size);
+    this.only = Arrays.copyOf(this.only, size);
+  } // CommandTable(String[])
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Find the command that some text names.
+   *
+   * @param text
+   *   The text to look up.
+   *
+   * @return the index of the command, NONE, or AMBIGUOUS.
+   */
+  public int lookup(CharSequence text) {
+    return lookup(text, 0, text.length());
+  } // lookup(CharSequence)
+
+  /**
+   * Find the command that part of some text names.
+   *
+   * @param text
+   *   The text to look in.
+   * @param start
+   *   The index of the first character to look up (inclusive).
+   * @param end
+   *   The index of the last character to look up (exclusive).
+   *
+   * @return the index of the command, NONE, or AMBIGUOUS.
+   */
+  public int lookup(CharSequence text, int start, int end) {
+    if (start >= end) {
+      return NONE;
+    } // if
+    int node = 0;
+    for (int i = start; i < end; i++) {
+      node = child(node, fold(text.charAt(i)));
+      if (node < 0) {
+        return NONE;
+      } // if
+    } // for
+    return (exact[node] != NONE) ? exact[node] : only[node];
+  } // lookup(CharSequence, int, int)
+
+  /**
+   * Get a command as it was given to the table.
+   *
+   * @param index
+   *   The index of the command, as returned by lookup.
+   *
+   * @return the command.
+   */
+  public String command(int index) {
+    return commands[index];
+  } // command(int)
+
+  /**
+   * Determine how many commands the table holds.
+   *
+   * @return the number of commands.
+   */
+  public int size() {
+    return commands.length;
+  } // size()
+
+  /**
+   * List the commands, separated by commas.
+   *
+   * @return the list.
+   */
+  public String toString() {
+    return String.join(", ", commands);
+  } // toString()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Add a command to the trie.
+   *
+   * @param command
+   *   The command.
+   * @param index
+   *   Its index.
+   *
+   * @throws IllegalArgumentException
+   *   If the command is empty or duplicates an earlier one.
+   */
+  private void add(String command, int index) {
+    if (command.isEmpty()) {
+      throw new IllegalArgumentException("Commands must not be empty.");
+    } // if
+    int node = 0;
+    for (int i = 0; i < command.length(); i++) {
+      char ch = fold(command.charAt(i));
+      int next = child(node, ch);
+      if (next < 0) {
+        next = newNode(ch);
+        nextSibling[next] = firstChild[node];
+        firstChild[node] = next;
+      } // if
+      node = next;
+      only[node] = (only[node] == NONE) ? index : AMBIGUOUS;
+    } // for
+    if (exact[node] != NONE) {
+      throw new IllegalArgumentException("Duplicate command: " + command);
+    } // if
+    exact[node] = index;
+  } // add(String, int)
+
+  /**
+   * Create a node.
+   *
+   * @param ch
+   *   The character leading into it.
+   *
+   * @return the index of the node.
+   */
+  private int newNode(char ch) {
+    label[size] = ch;
+    firstChild[size] = -1;
+    nextSibling[size] = -1;
+    exact[size] = NONE;
+    only[size] = NONE;
+    return size++;
+  } // newNode(char)
+
+  /**
+   * Find the child of a node along a character.
+   *
+   * @param node
+   *   The node.
+   * @param ch
+   *   The folded character.
+   *
+   * @return the child, or -1 if there is none.
+   */
+  private int child(int node, char ch) {
+    for (int c = firstChild[node]; c >= 0; c = nextSibling[c]) {
+      if (label[c] == ch) {
+        return c;
+      } // if
+    } // for
+    return -1;
+  } // child(int, char)
+
+  /**
+   * Fold a character to lower case.
+   *
+   * @param ch
+   *   The character.
+   *
+   * @return the folded character.
+   */
+  private static char fold(char ch) {
+    if (ch < 0x80) {
+      return (ch >= 'A' && ch <= 'Z') ? (char) (ch + ('a' - 'A')) : ch;
+    } // if
+    return Character.toLowerCase(ch);
+  } // fold(char)
+} // class CommandTable
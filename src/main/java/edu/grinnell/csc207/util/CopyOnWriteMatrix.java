@@ -0,0 +1,513 @@
+package edu.grinnell.csc207.util;
+
+import java.util.Arrays;
+
+/**
+ * Two-dimensional matrices whose clones share structure. Cloning is O(1):
+ * the clone and the original share the array of rows and every row, and
+ * each copies only what it writes. The first write after a clone copies
+ * the array of row references; the first write to a row copies that row.
+ * Memory therefore grows with the number of rows each side mutates.
+ *
+ * @param <T>
+ *   The type of values stored in the matrix.
+ */
+public class CopyOnWriteMatrix<T> implements Matrix<T> {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The width of the matrix.
+   */
+  private int width;
+
+  /**
+   * The height of the matrix.
+   */
+  private int height;
+
+  /**
+   * The rows of the matrix. Rows may be shared with other matrices.
+   */
+  private Object[][] rows;
+
+  /**
+   * Which rows this matrix may write in place. Only meaningful when
+   * spineOwned is true.
+   */
+  private boolean[] rowOwned;
+
+  /**
+   * Whether this matrix may change rows (the array of rows) in place.
+   */
+  private boolean spineOwned;
+
+  /**
+   * Default value for matrix elements when not set.
+   */
+  private T defaultValue;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new matrix of the specified width and height with the
+   * given value as the default. All rows start out sharing a single
+   * row of defaults, so construction costs O(width + height).
+   *
+   * @param width
+   *   The width of the matrix.
+   * @param height
+   *   The height of the matrix.
+   * @param def
+   *   The default value, used to fill all the cells.
+   *
+   * @throws NegativeArraySizeException
+   *   If either the width or height are negative.
+   */
+  public CopyOnWriteMatrix(int width, int height, T def) {
+    if (width < 0 || height < 0) {
+      throw new NegativeArraySizeException("Width and height must be non-negative.");
+    } // if
+    this.width = width;
+    this.height = height;
+    this.defaultValue = def;
+    Object[] blank = new Object[width];
+    Arrays.fill(blank, def);
+    this.rows = new Object[height][];
+    Arrays.fill(this.rows, blank);
+    this.rowOwned = new boolean[height];
+    this.spineOwned = true;
+  } // CopyOnWriteMatrix(int, int, T)
+
+  /**
+   * Create a new matrix of the specified width and height with
+   * null as the default value.
+   *
+   * @param width
+   *   The width of the matrix.
+   * @param height
+   *   The height of the matrix.
+   *
+   * @throws NegativeArraySizeException
+   *   If either the width or height are negative.
+   */
+  public CopyOnWriteMatrix(int width, int height) {
+    this(width, height, null);
+  } // CopyOnWriteMatrix(int, int)
+
+  // +--------------+------------------------------------------------
+  // | Core methods |
+  // +--------------+
+
+  /**
+   * Get the element at the given row and column.
+   *
+   * @param row
+   *   The row of the element.
+   * @param col
+   *   The column of the element.
+   *
+   * @return the value at the specified location.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If either the row or column is out of reasonable bounds.
+   */
+  @SuppressWarnings("unchecked")
+  public T get(int row, int col) {
+    checkCell(row, col);
+    return (T) rows[row][col];
+  } // get(int, int)
+
+  /**
+   * Set the element at the given row and column.
+   *
+   * @param row
+   *   The row of the element.
+   * @param col
+   *   The column of the element.
+   * @param val
+   *   The value to set.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If either the row or column is out of reasonable bounds.
+   */
+  public void set(int row, int col, T val) {
+    checkCell(row, col);
+    writableRow(row)[col] = val;
+  } // set(int, int, T)
+
+  /**
+   * Determine the number of rows in the matrix.
+   *
+   * @return the number of rows.
+   */
+  public int height() {
+    return height;
+  } // height()
+
+  /**
+   * Determine the number of columns in the matrix.
+   *
+   * @return the number of columns.
+   */
+  public int width() {
+    return width;
+  } // width()
+
+  /**
+   * Insert a row filled with the default value.
+   *
+   * @param row
+   *   The number of the row to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than the height.
+   */
+  public void insertRow(int row) {
+    if (row < 0 || row > height) {
+      throw new IndexOutOfBoundsException("Invalid row index.");
+    } // if
+    Object[] newRow = new Object[width];
+    Arrays.fill(newRow, defaultValue);
+    openRow(row, newRow);
+  } // insertRow(int)
+
+  /**
+   * Insert a row filled with the specified values.
+   *
+   * @param row
+   *   The number of the row to insert.
+   * @param vals
+   *   The values to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than the height.
+   * @throws ArraySizeException
+   *   If the size of vals is not the same as the width of the matrix.
+   */
+  public void insertRow(int row, T[] vals) throws ArraySizeException {
+    if (row < 0 || row > height) {
+      throw new IndexOutOfBoundsException("Invalid row index.");
+    } // if
+    if (vals.length != width) {
+      throw new ArraySizeException("Size of values array does not match matrix width.");
+    } // if
+    openRow(row, Arrays.copyOf(vals, width, Object[].class));
+  } // insertRow(int, T[])
+
+  /**
+   * Insert a column filled with the default value.
+   *
+   * @param col
+   *   The number of the column to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than the width.
+   */
+  public void insertCol(int col) {
+    if (col < 0 || col > width) {
+      throw new IndexOutOfBoundsException("Invalid column index.");
+    } // if
+    openCol(col);
+    for (int row = 0; row < height; row++) {
+      rows[row][col] = defaultValue;
+    } // for
+  } // insertCol(int)
+
+  /**
+   * Insert a column filled with the specified values.
+   *
+   * @param col
+   *   The number of the column to insert.
+   * @param vals
+   *   The values to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than the width.
+   * @throws ArraySizeException
+   *   If the size of vals is not the same as the height of the matrix.
+   */
+  public void insertCol(int col, T[] vals) throws ArraySizeException {
+    if (col < 0 || col > width) {
+      throw new IndexOutOfBoundsException("Invalid column index.");
+    } // if
+    if (vals.length != height) {
+      throw new ArraySizeException("Size of values array does not match matrix height.");
+    } // if
+    openCol(col);
+    for (int row = 0; row < height; row++) {
+      rows[row][col] = vals[row];
+    } // for
+  } // insertCol(int, T[])
+
+  /**
+   * Delete a row.
+   *
+   * @param row
+   *   The number of the row to delete.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than or equal to the height.
+   */
+  public void deleteRow(int row) {
+    if (row < 0 || row >= height) {
+      throw new IndexOutOfBoundsException("Invalid row index.");
+    } // if
+    ownSpine();
+    Object[][] newRows = new Object[height - 1][];
+    boolean[] newOwned = new boolean[height - 1];
+    System.arraycopy(rows, 0, newRows, 0, row);
+    System.arraycopy(rows, row + 1, newRows, row, height - row - 1);
+    System.arraycopy(rowOwned, 0, newOwned, 0, row);
+    System.arraycopy(rowOwned, row + 1, newOwned, row, height - row - 1);
+    rows = newRows;
+    rowOwned = newOwned;
+    height--;
+  } // deleteRow(int)
+
+  /**
+   * Delete a column. Every row is rebuilt, so afterwards this matrix
+   * shares no rows with its clones.
+   *
+   * @param col
+   *   The number of the column to delete.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than or equal to the width.
+   */
+  public void deleteCol(int col) {
+    if (col < 0 || col >= width) {
+      throw new IndexOutOfBoundsException("Invalid column index.");
+    } // if
+    ownSpine();
+    for (int row = 0; row < height; row++) {
+      Object[] newRow = new Object[width - 1];
+      System.arraycopy(rows[row], 0, newRow, 0, col);
+      System.arraycopy(rows[row], col + 1, newRow, col, width - col - 1);
+      rows[row] = newRow;
+      rowOwned[row] = true;
+    } // for
+    width--;
+  } // deleteCol(int)
+
+  /**
+   * Fill a rectangular region of the matrix.
+   *
+   * @param startRow
+   *   The top edge / row to start with (inclusive).
+   * @param startCol
+   *   The left edge / column to start with (inclusive).
+   * @param endRow
+   *   The bottom edge / row to stop with (exclusive).
+   * @param endCol
+   *   The right edge / column to stop with (exclusive).
+   * @param val
+   *   The value to store.
+   *
+   * @throw IndexOutOfBoundsException
+   *   If the rows or columns are inappropriate.
+   */
+  public void fillRegion(int startRow, int startCol, int endRow, int endCol,
+      T val) {
+    if (startRow >= endRow || startCol >= endCol) {
+      return;
+    } // if
+    checkCell(startRow, startCol);
+    checkCell(endRow - 1, endCol - 1);
+    for (int row = startRow; row < endRow; row++) {
+      Arrays.fill(writableRow(row), startCol, endCol, val);
+    } // for
+  } // fillRegion(int, int, int, int, T)
+
+  /**
+   * Fill a line (horizontal, vertical, diagonal).
+   *
+   * @param startRow
+   *   The row to start with (inclusive).
+   * @param startCol
+   *   The column to start with (inclusive).
+   * @param deltaRow
+   *   How much to change the row in each step.
+   * @param deltaCol
+   *   How much to change the column in each step.
+   * @param endRow
+   *   The row to stop with (exclusive).
+   * @param endCol
+   *   The column to stop with (exclusive).
+   * @param val
+   *   The value to store.
+   *
+   * @throw IndexOutOfBoundsException
+   *   If the rows or columns are inappropriate.
+   */
+  public void fillLine(int startRow, int startCol, int deltaRow,
+      int deltaCol, int endRow, int endCol, T val) {
+    int row = startRow;
+    int col = startCol;
+    while (row < endRow && col < endCol) {
+      set(row, col, val);
+      row += deltaRow;
+      col += deltaCol;
+    } // while
+  } // fillLine(int, int, int, int, int, int, T)
+
+  /**
+   * Make a copy of the matrix in O(1). The copy shares every row with
+   * this matrix until one of them writes.
+   *
+   * @return a copy of the matrix.
+   */
+  @SuppressWarnings("unchecked")
+  public CopyOnWriteMatrix<T> clone() {
+    try {
+      spineOwned = false;
+      return (CopyOnWriteMatrix<T>) super.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new AssertionError(e);
+    } // try/catch
+  } // clone()
+
+  /**
+   * Determine if this object is equal to another object. Rows shared
+   * with the other matrix are not compared cell by cell.
+   *
+   * @param other
+   *   The object to compare.
+   *
+   * @return true if the other object is a CopyOnWriteMatrix with the same
+   * width, height, and equal elements; false otherwise.
+   */
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } // if
+    if (!(other instanceof CopyOnWriteMatrix)) {
+      return false;
+    } // if
+    CopyOnWriteMatrix<?> otherMatrix = (CopyOnWriteMatrix<?>) other;
+    if (width != otherMatrix.width || height != otherMatrix.height) {
+      return false;
+    } // if
+    for (int row = 0; row < height; row++) {
+      if (rows[row] != otherMatrix.rows[row]
+          && !Arrays.equals(rows[row], otherMatrix.rows[row])) {
+        return false;
+      } // if
+    } // for
+    return true;
+  } // equals(Object)
+
+  /**
+   * Compute a hash code for this matrix, the same way MatrixV0 does.
+   *
+   * @return the hash code.
+   */
+  public int hashCode() {
+    int multiplier = 7;
+    int code = width + multiplier * height;
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        Object val = rows[row][col];
+        if (val != null) {
+          code = code * multiplier + val.hashCode();
+        } // if
+      } // for col
+    } // for row
+    return code;
+  } // hashCode()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make sure that a cell is in the matrix.
+   *
+   * @param row
+   *   The row of the cell.
+   * @param col
+   *   The column of the cell.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the cell is outside the matrix.
+   */
+  private void checkCell(int row, int col) {
+    if (row < 0 || row >= height || col < 0 || col >= width) {
+      throw new IndexOutOfBoundsException("Row or column is out of bounds.");
+    } // if
+  } // checkCell(int, int)
+
+  /**
+   * Take a private copy of the array of rows, if it is shared. The rows
+   * themselves stay shared.
+   */
+  private void ownSpine() {
+    if (!spineOwned) {
+      rows = rows.clone();
+      rowOwned = new boolean[height];
+      spineOwned = true;
+    } // if
+  } // ownSpine()
+
+  /**
+   * Get a row that this matrix may write, copying it if it is shared.
+   *
+   * @param row
+   *   The number of the row.
+   *
+   * @return the row.
+   */
+  private Object[] writableRow(int row) {
+    ownSpine();
+    if (!rowOwned[row]) {
+      rows[row] = rows[row].clone();
+      rowOwned[row] = true;
+    } // if
+    return rows[row];
+  } // writableRow(int)
+
+  /**
+   * Put a new, private row into the matrix, shifting later rows down.
+   *
+   * @param row
+   *   The number of the row to insert.
+   * @param newRow
+   *   The row.
+   */
+  private void openRow(int row, Object[] newRow) {
+    ownSpine();
+    Object[][] newRows = new Object[height + 1][];
+    boolean[] newOwned = new boolean[height + 1];
+    System.arraycopy(rows, 0, newRows, 0, row);
+    System.arraycopy(rows, row, newRows, row + 1, height - row);
+    System.arraycopy(rowOwned, 0, newOwned, 0, row);
+    System.arraycopy(rowOwned, row, newOwned, row + 1, height - row);
+    newRows[row] = newRow;
+    newOwned[row] = true;
+    rows = newRows;
+    rowOwned = newOwned;
+    height++;
+  } // openRow(int, Object[])
+
+  /**
+   * Rebuild every row with a gap at the given column. Afterwards this
+   * matrix shares no rows with its clones.
+   *
+   * @param col
+   *   The number of the column to open.
+   */
+  private void openCol(int col) {
+    ownSpine();
+    for (int row = 0; row < height; row++) {
+      Object[] newRow = new Object[width + 1];
+      System.arraycopy(rows[row], 0, newRow, 0, col);
+      System.arraycopy(rows[row], col, newRow, col + 1, width - col);
+      rows[row] = newRow;
+      rowOwned[row] = true;
+    } // for
+    width++;
+  } // openCol(int)
+} // class CopyOnWriteMatrix
@@ -1,6 +1,8 @@
 package edu.grinnell.csc207.util;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
 import java.io.PrintWriter;
 
 /**
@@ -9,10 +11,81 @@ import java.io.PrintWriter;
  * @author Samuel A. Rebelsky
  */
 public class IOUtils {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The table compiled for the last command list passed to readCommand,
+   * so that callers passing the same array each time compile it once.
+   */
+  private static volatile Compiled lastCompiled;
+
+  /**
+   * A reusable buffer for each thread's input lines.
+   */
+  private static final ThreadLocal<StringBuilder> LINE =
+      ThreadLocal.withInitial(() -> new StringBuilder(64));
+
   // +---------------+-----------------------------------------------
   // | Local helpers |
   // +---------------+
 
+  /**
+   * A command list and its compiled table.
+   */
+  private static class Compiled {
+    /**
+     * The list, as passed by the caller.
+     */
+    final String[] commands;
+
+    /**
+     * The table compiled from it.
+     */
+    final CommandTable table;
+
+    /**
+     * Compile a command list.
+     *
+     * @param commands
+     *   The valid commands.
+     */
+    Compiled(String[] commands) {
+      this.commands = commands;
+      this.table = new CommandTable(commands);
+    } // Compiled(String[])
+  } // class Compiled
+
+  /**
+   * Read one line into a buffer, without its line terminator.
+   *
+   * @param eyes
+   *   How to read input.
+   * @param line
+   *   The buffer, which is cleared first.
+   *
+   * @return false if the input had already ended, true otherwise.
+   *
+   * @throws IOException
+   *   If an I/O exception occurs.
+   */
+  private static boolean readLine(BufferedReader eyes, StringBuilder line)
+      throws IOException {
+    line.setLength(0);
+    int ch = eyes.read();
+    if (ch < 0) {
+      return false;
+    } // if
+    while (ch >= 0 && ch != '\n') {
+      if (ch != '\r') {
+        line.append((char) ch);
+      } // if
+      ch = eyes.read();
+    } // while
+    return true;
+  } // readLine(BufferedReader, StringBuilder)
+
   /**
    * Determine if an array contains a particular value.
    *
@@ -40,7 +113,8 @@ public class IOUtils {
   // +------------------+
 
   /**
-   * Repeatedly prompt for a command until one is returned.
+   * Repeatedly prompt for a command until one is returned. Commands are
+   * matched ignoring case, and may be abbreviated to any unique prefix.
    *
    * @param pen
    *   Where to print the prompt.
@@ -51,13 +125,67 @@ public class IOUtils {
    * @param commands
    *   The valid commands.
    *
-   * @return the command entered.
+   * @return the command entered, as it appears in commands.
    *
    * @throws IOException
-   *   If an I/O exception occurs.
+   *   If an I/O exception occurs, or the input ends.
+   */
+  public static String readCommand(PrintWriter pen, BufferedReader eyes,
+      String prompt, String[] commands) throws IOException {
+    Compiled compiled = lastCompiled;
+    if (compiled == null || compiled.commands != commands) {
+      compiled = new Compiled(commands);
+      lastCompiled = compiled;
+    } // if
+    return readCommand(pen, eyes, prompt, compiled.table);
+  } // readCommand(PrintWriter, BufferedReader, String, String[])
+
+  /**
+   * Repeatedly prompt for a command from a compiled table until one is
+   * returned. Reading and matching a valid command allocates nothing.
+   *
+   * @param pen
+   *   Where to print the prompt.
+   * @param eyes
+   *   How to read input.
+   * @param prompt
+   *   The prompt to print.
+   * @param table
+   *   The valid commands.
+   *
+   * @return the command entered, as it appears in the table.
+   *
+   * @throws IOException
+   *   If an I/O exception occurs, or the input ends.
    */
   public static String readCommand(PrintWriter pen, BufferedReader eyes,
-      String prompt, String[] commands) {
-    return "";  // STUB
-  } // readCommand(PrintWrtier, BufferedReader, String, String[])
+      String prompt, CommandTable table) throws IOException {
+    StringBuilder line = LINE.get();
+    while (true) {
+      pen.print(prompt);
+      pen.flush();
+      if (!readLine(eyes, line)) {
+        throw new EOFException("Input ended before a command was entered.");
+      } // if
+      int start = 0;
+      int end = line.length();
+      while (start < end && Character.isWhitespace(line.charAt(start))) {
+        start++;
+      } // while
+      while (end > start && Character.isWhitespace(line.charAt(end - 1))) {
+        end--;
+      } // while
+      int index = table.lookup(line, start, end);
+      if (index >= 0) {
+        return table.command(index);
+      } // if
+      String entered = line.substring(start, end);
+      if (index == CommandTable.AMBIGUOUS) {
+        pen.println("Ambiguous command: '" + entered + "'.");
+      } else {
+        pen.println("Invalid command: '" + entered + "'.");
+      } // if/else
+      pen.println("Valid commands: " + table);
+    } // while
+  } // readCommand(PrintWriter, BufferedReader, String, CommandTable)
 } // class IOUtils
@@ -0,0 +1,472 @@
+package edu.grinnell.csc207.util;
+
+import java.util.Arrays;
+
+/**
+ * Two-dimensional matrices of ints, stored unboxed in a single row-major
+ * array. The Matrix methods box and unbox; getInt and setInt do not.
+ */
+public class IntMatrix implements Matrix<Integer> {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The width of the matrix.
+   */
+  private int width;
+
+  /**
+   * The height of the matrix.
+   */
+  private int height;
+
+  /**
+   * The cells, in row-major order.
+   */
+  private int[] data;
+
+  /**
+   * Default value for matrix elements when not set.
+   */
+  private int defaultValue;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new matrix of the specified width and height with the
+   * given value as the default.
+   *
+   * @param width
+   *   The width of the matrix.
+   * @param height
+   *   The height of the matrix.
+   * @param def
+   *   The default value, used to fill all the cells.
+   *
+   * @throws NegativeArraySizeException
+   *   If either the width or height are negative.
+   */
+  public IntMatrix(int width, int height, int def) {
+    if (width < 0 || height < 0) {
+      throw new NegativeArraySizeException("Width and height must be non-negative.");
+    } // if
+    this.width = width;
+    this.height = height;
+    this.defaultValue = def;
+    this.data = new int[width * height];
+    if (def != 0) {
+      Arrays.fill(this.data, def);
+    } // if
+  } // IntMatrix(int, int, int)
+
+  /**
+   * Create a new matrix of the specified width and height with
+   * zero as the default value.
+   *
+   * @param width
+   *   The width of the matrix.
+   * @param height
+   *   The height of the matrix.
+   *
+   * @throws NegativeArraySizeException
+   *   If either the width or height are negative.
+   */
+  public IntMatrix(int width, int height) {
+    this(width, height, 0);
+  } // IntMatrix(int, int)
+
+  // +-----------------+---------------------------------------------
+  // | Unboxed methods |
+  // +-----------------+
+
+  /**
+   * Get the int at the given row and column.
+   *
+   * @param row
+   *   The row of the element.
+   * @param col
+   *   The column of the element.
+   *
+   * @return the value at the specified location.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If either the row or column is out of reasonable bounds.
+   */
+  public int getInt(int row, int col) {
+    checkCell(row, col);
+    return data[row * width + col];
+  } // getInt(int, int)
+
+  /**
+   * Set the int at the given row and column.
+   *
+   * @param row
+   *   The row of the element.
+   * @param col
+   *   The column of the element.
+   * @param val
+   *   The value to set.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If either the row or column is out of reasonable bounds.
+   */
+  public void setInt(int row, int col, int val) {
+    checkCell(row, col);
+    data[row * width + col] = val;
+  } // setInt(int, int, int)
+
+  // +--------------+------------------------------------------------
+  // | Core methods |
+  // +--------------+
+
+  /**
+   * Get the element at the given row and column.
+   *
+   * @param row
+   *   The row of the element.
+   * @param col
+   *   The column of the element.
+   *
+   * @return the value at the specified location.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If either the row or column is out of reasonable bounds.
+   */
+  public Integer get(int row, int col) {
+    return getInt(row, col);
+  } // get(int, int)
+
+  /**
+   * Set the element at the given row and column.
+   *
+   * @param row
+   *   The row of the element.
+   * @param col
+   *   The column of the element.
+   * @param val
+   *   The value to set.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If either the row or column is out of reasonable bounds.
+   * @throws NullPointerException
+   *   If val is null.
+   */
+  public void set(int row, int col, Integer val) {
+    setInt(row, col, val);
+  } // set(int, int, Integer)
+
+  /**
+   * Determine the number of rows in the matrix.
+   *
+   * @return the number of rows.
+   */
+  public int height() {
+    return height;
+  } // height()
+
+  /**
+   * Determine the number of columns in the matrix.
+   *
+   * @return the number of columns.
+   */
+  public int width() {
+    return width;
+  } // width()
+
+  /**
+   * Insert a row filled with the default value.
+   *
+   * @param row
+   *   The number of the row to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than the height.
+   */
+  public void insertRow(int row) {
+    openRow(row);
+    Arrays.fill(data, row * width, (row + 1) * width, defaultValue);
+  } // insertRow(int)
+
+  /**
+   * Insert a row filled with the specified values.
+   *
+   * @param row
+   *   The number of the row to insert.
+   * @param vals
+   *   The values to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than the height.
+   * @throws ArraySizeException
+   *   If the size of vals is not the same as the width of the matrix.
+   */
+  public void insertRow(int row, Integer[] vals) throws ArraySizeException {
+    if (row < 0 || row > height) {
+      throw new IndexOutOfBoundsException("Invalid row index.");
+    } // if
+    if (vals.length != width) {
+      throw new ArraySizeException("Size of values array does not match matrix width.");
+    } // if
+    openRow(row);
+    for (int col = 0; col < width; col++) {
+      data[row * width + col] = vals[col];
+    } // for
+  } // insertRow(int, Integer[])
+
+  /**
+   * Insert a column filled with the default value.
+   *
+   * @param col
+   *   The number of the column to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than the width.
+   */
+  public void insertCol(int col) {
+    openCol(col);
+    for (int row = 0; row < height; row++) {
+      data[row * width + col] = defaultValue;
+    } // for
+  } // insertCol(int)
+
+  /**
+   * Insert a column filled with the specified values.
+   *
+   * @param col
+   *   The number of the column to insert.
+   * @param vals
+   *   The values to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than the width.
+   * @throws ArraySizeException
+   *   If the size of vals is not the same as the height of the matrix.
+   */
+  public void insertCol(int col, Integer[] vals) throws ArraySizeException {
+    if (col < 0 || col > width) {
+      throw new IndexOutOfBoundsException("Invalid column index.");
+    } // if
+    if (vals.length != height) {
+      throw new ArraySizeException("Size of values array does not match matrix height.");
+    } // if
+    openCol(col);
+    for (int row = 0; row < height; row++) {
+      data[row * width + col] = vals[row];
+    } // for
+  } // insertCol(int, Integer[])
+
+  /**
+   * Delete a row.
+   *
+   * @param row
+   *   The number of the row to delete.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than or equal to the height.
+   */
+  public void deleteRow(int row) {
+    if (row < 0 || row >= height) {
+      throw new IndexOutOfBoundsException("Invalid row index.");
+    } // if
+    int[] newData = new int[(height - 1) * width];
+    System.arraycopy(data, 0, newData, 0, row * width);
+    System.arraycopy(data, (row + 1) * width, newData, row * width, (height - row - 1) * width);
+    data = newData;
+    height--;
+  } // deleteRow(int)
+
+  /**
+   * Delete a column.
+   *
+   * @param col
+   *   The number of the column to delete.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than or equal to the width.
+   */
+  public void deleteCol(int col) {
+    if (col < 0 || col >= width) {
+      throw new IndexOutOfBoundsException("Invalid column index.");
+    } // if
+    int newWidth = width - 1;
+    int[] newData = new int[height * newWidth];
+    for (int row = 0; row < height; row++) {
+      System.arraycopy(data, row * width, newData, row * newWidth, col);
+      System.arraycopy(data, row * width + col + 1, newData, row * newWidth + col,
+          newWidth - col);
+    } // for
+    data = newData;
+    width = newWidth;
+  } // deleteCol(int)
+
+  /**
+   * Fill a rectangular region of the matrix.
+   *
+   * @param startRow
+   *   The top edge / row to start with (inclusive).
+   * @param startCol
+   *   The left edge / column to start with (inclusive).
+   * @param endRow
+   *   The bottom edge / row to stop with (exclusive).
+   * @param endCol
+   *   The right edge / column to stop with (exclusive).
+   * @param val
+   *   The value to store.
+   *
+   * @throw IndexOutOfBoundsException
+   *   If the rows or columns are inappropriate.
+   */
+  public void fillRegion(int startRow, int startCol, int endRow, int endCol,
+      Integer val) {
+    if (startRow >= endRow || startCol >= endCol) {
+      return;
+    } // if
+    checkCell(startRow, startCol);
+    checkCell(endRow - 1, endCol - 1);
+    for (int row = startRow; row < endRow; row++) {
+      Arrays.fill(data, row * width + startCol, row * width + endCol, val);
+    } // for
+  } // fillRegion(int, int, int, int, Integer)
+
+  /**
+   * Fill a line (horizontal, vertical, diagonal).
+   *
+   * @param startRow
+   *   The row to start with (inclusive).
+   * @param startCol
+   *   The column to start with (inclusive).
+   * @param deltaRow
+   *   How much to change the row in each step.
+   * @param deltaCol
+   *   How much to change the column in each step.
+   * @param endRow
+   *   The row to stop with (exclusive).
+   * @param endCol
+   *   The column to stop with (exclusive).
+   * @param val
+   *   The value to store.
+   *
+   * @throw IndexOutOfBoundsException
+   *   If the rows or columns are inappropriate.
+   */
+  public void fillLine(int startRow, int startCol, int deltaRow,
+      int deltaCol, int endRow, int endCol, Integer val) {
+    int row = startRow;
+    int col = startCol;
+    while (row < endRow && col < endCol) {
+      setInt(row, col, val);
+      row += deltaRow;
+      col += deltaCol;
+    } // while
+  } // fillLine(int, int, int, int, int, int, Integer)
+
+  /**
+   * Make a copy of the matrix.
+   *
+   * @return a copy of the matrix.
+   */
+  public IntMatrix clone() {
+    IntMatrix result = new IntMatrix(0, 0, defaultValue);
+    result.width = width;
+    result.height = height;
+    result.data = data.clone();
+    return result;
+  } // clone()
+
+  /**
+   * Determine if this object is equal to another object.
+   *
+   * @param other
+   *   The object to compare.
+   *
+   * @return true if the other object is an IntMatrix with the same width,
+   * height, and equal elements; false otherwise.
+   */
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } // if
+    if (!(other instanceof IntMatrix)) {
+      return false;
+    } // if
+    IntMatrix otherMatrix = (IntMatrix) other;
+    return width == otherMatrix.width && height == otherMatrix.height
+        && Arrays.equals(data, otherMatrix.data);
+  } // equals(Object)
+
+  /**
+   * Compute a hash code for this matrix.
+   *
+   * @return the hash code.
+   */
+  public int hashCode() {
+    return (width * 31 + height) * 31 + Arrays.hashCode(data);
+  } // hashCode()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make sure that a cell is in the matrix.
+   *
+   * @param row
+   *   The row of the cell.
+   * @param col
+   *   The column of the cell.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the cell is outside the matrix.
+   */
+  private void checkCell(int row, int col) {
+    if (row < 0 || row >= height || col < 0 || col >= width) {
+      throw new IndexOutOfBoundsException("Row or column is out of bounds.");
+    } // if
+  } // checkCell(int, int)
+
+  /**
+   * Make room for a new row, leaving its contents unspecified.
+   *
+   * @param row
+   *   The number of the row to open.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than the height.
+   */
+  private void openRow(int row) {
+    if (row < 0 || row > height) {
+      throw new IndexOutOfBoundsException("Invalid row index.");
+    } // if
+    int[] newData = new int[(height + 1) * width];
+    System.arraycopy(data, 0, newData, 0, row * width);
+    System.arraycopy(data, row * width, newData, (row + 1) * width, (height - row) * width);
+    data = newData;
+    height++;
+  } // openRow(int)
+
+  /**
+   * Make room for a new column, leaving its contents unspecified.
+   *
+   * @param col
+   *   The number of the column to open.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than the width.
+   */
+  private void openCol(int col) {
+    if (col < 0 || col > width) {
+      throw new IndexOutOfBoundsException("Invalid column index.");
+    } // if
+    int newWidth = width + 1;
+    int[] newData = new int[height * newWidth];
+    for (int row = 0; row < height; row++) {
+      System.arraycopy(data, row * width, newData, row * newWidth, col);
+      System.arraycopy(data, row * width + col, newData, row * newWidth + col + 1, width - col);
+    } // for
+    data = newData;
+    width = newWidth;
+  } // openCol(int)
+} // class IntMatrix
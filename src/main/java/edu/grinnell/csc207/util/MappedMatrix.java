@@ -0,0 +1,1020 @@
+package edu.grinnell.csc207.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Two-dimensional matrices stored off-heap in a memory-mapped file. Every
+ * cell is encoded in a fixed number of bits (1 for booleans, 32 for ints,
+ * and so on), packed into little-endian longs after a small header. The
+ * operating system pages cells in on demand, so the matrix may be much
+ * larger than the heap, and reopening a file just maps it again.
+ *
+ * Inserting or deleting a row or column resizes the file and maps it
+ * again, then moves the cells after the change into place 64 bits at a
+ * time. Rows are contiguous, so inserting or deleting a row moves only the
+ * rows after it; a column touches every row.
+ *
+ * @param <T>
+ *   The type of values stored in the matrix.
+ */
+public class MappedMatrix<T> implements Matrix<T>, AutoCloseable {
+  // +-------+-------------------------------------------------------
+  // | Codec |
+  // +-------+
+
+  /**
+   * A fixed-width encoding of cell values.
+   *
+   * @param <T>
+   *   The type of values encoded.
+   */
+  public interface Codec<T> {
+    /**
+     * Determine how many bits each cell takes. Must be 1, 2, 4, 8, 16,
+     * 32, or 64.
+     *
+     * @return the number of bits.
+     */
+    int bits();
+
+    /**
+     * Encode a value.
+     *
+     * @param val
+     *   The value.
+     *
+     * @return the bits, in the low bits() of the result.
+     */
+    long encode(T val);
+
+    /**
+     * Decode a value.
+     *
+     * @param bits
+     *   The bits, in the low bits() of the argument.
+     *
+     * @return the value.
+     */
+    T decode(long bits);
+  } // interface Codec<T>
+
+  /**
+   * Booleans, one bit per cell.
+   */
+  public static final Codec<Boolean> BOOLEANS = new Codec<Boolean>() {
+    public int bits() {
+      return 1;
+    } // bits()
+
+    public long encode(Boolean val) {
+      return val ? 1 : 0;
+    } // encode(Boolean)
+
+    public Boolean decode(long bits) {
+      return bits != 0;
+    } // decode(long)
+  };
+
+  /**
+   * Ints, 32 bits per cell.
+   */
+  public static final Codec<Integer> INTEGERS = new Codec<Integer>() {
+    public int bits() {
+      return 32;
+    } // bits()
+
+    public long encode(Integer val) {
+      return val & 0xFFFFFFFFL;
+    } // encode(Integer)
+
+    public Integer decode(long bits) {
+      return (int) bits;
+    } // decode(long)
+  };
+
+  /**
+   * Longs, 64 bits per cell.
+   */
+  public static final Codec<Long> LONGS = new Codec<Long>() {
+    public int bits() {
+      return 64;
+    } // bits()
+
+    public long encode(Long val) {
+      return val;
+    } // encode(Long)
+
+    public Long decode(long bits) {
+      return bits;
+    } // decode(long)
+  };
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * Identifies our files ("MMTX").
+   */
+  private static final int MAGIC = 0x4D4D5458;
+
+  /**
+   * The version of the file layout.
+   */
+  private static final int VERSION = 1;
+
+  /**
+   * The size of the header, in bytes. Cell data starts right after.
+   */
+  private static final int HEADER_BYTES = 64;
+
+  /**
+   * log2 of the size of each mapped segment. Segments are a multiple of
+   * 8 bytes, so no long straddles two of them.
+   */
+  private static final int SEGMENT_SHIFT = 30;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The file backing the matrix.
+   */
+  private final Path file;
+
+  /**
+   * The open channel to the file.
+   */
+  private final FileChannel channel;
+
+  /**
+   * The mapped pieces of the file.
+   */
+  private MappedByteBuffer[] segments;
+
+  /**
+   * How cells are encoded.
+   */
+  private final Codec<T> codec;
+
+  /**
+   * The width of the matrix.
+   */
+  private int width;
+
+  /**
+   * The height of the matrix.
+   */
+  private int height;
+
+  /**
+   * The number of bits per cell.
+   */
+  private final int bits;
+
+  /**
+   * The encoded default value.
+   */
+  private final long defaultBits;
+
+  /**
+   * The number of longs of cell data. Any bits in the last one past the
+   * final cell are zero.
+   */
+  private long words;
+
+  /**
+   * Whether the file is a temporary copy to delete on close.
+   */
+  private boolean temporary;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Map an open file whose header has already been checked or written.
+   *
+   * @param file
+   *   The file.
+   * @param channel
+   *   An open read/write channel to the file.
+   * @param codec
+   *   How cells are encoded.
+   * @param width
+   *   The width of the matrix.
+   * @param height
+   *   The height of the matrix.
+   * @param defaultBits
+   *   The encoded default value.
+   *
+   * @throws IOException
+   *   If the file cannot be mapped.
+   */
+  private MappedMatrix(Path file, FileChannel channel, Codec<T> codec, int width,
+      int height, long defaultBits) throws IOException {
+    this.file = file;
+    this.channel = channel;
+    this.codec = codec;
+    this.width = width;
+    this.height = height;
+    this.bits = codec.bits();
+    this.defaultBits = defaultBits;
+    this.words = dataWords(width, height, bits);
+    this.segments = map(channel, HEADER_BYTES + words * Long.BYTES);
+  } // MappedMatrix(Path, FileChannel, Codec<T>, int, int, long)
+
+  /**
+   * Create a new mapped matrix, replacing any existing file.
+   *
+   * @param <T>
+   *   The type of values stored in the matrix.
+   * @param file
+   *   The file to create.
+   * @param width
+   *   The width of the matrix.
+   * @param height
+   *   The height of the matrix.
+   * @param codec
+   *   How cells are encoded.
+   * @param def
+   *   The default value, used to fill all the cells.
+   *
+   * @return the new matrix.
+   *
+   * @throws IOException
+   *   If the file cannot be created or mapped.
+   * @throws NegativeArraySizeException
+   *   If either the width or height are negative.
+   * @throws IllegalArgumentException
+   *   If the cells would not fit in a file.
+   */
+  public static <T> MappedMatrix<T> create(Path file, int width, int height,
+      Codec<T> codec, T def) throws IOException {
+    if (width < 0 || height < 0) {
+      throw new NegativeArraySizeException("Width and height must be non-negative.");
+    } // if
+    checkBits(codec.bits());
+    if (dataWords(width, height, codec.bits()) < 0) {
+      throw new IllegalArgumentException("A " + width + "x" + height + " matrix of "
+          + codec.bits() + "-bit cells is too large to map.");
+    } // if
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    long defaultBits = codec.encode(def);
+    MappedMatrix<T> matrix = new MappedMatrix<>(file, channel, codec, width, height, defaultBits);
+    MappedByteBuffer header = matrix.segments[0];
+    header.putInt(0, MAGIC);
+    header.putInt(4, VERSION);
+    matrix.writeDimensions();
+    header.putInt(16, codec.bits());
+    header.putLong(24, defaultBits);
+    if (defaultBits != 0) {
+      matrix.fillRegion(0, 0, height, width, def);
+    } // if
+    return matrix;
+  } // create(Path, int, int, Codec<T>, T)
+
+  /**
+   * Map an existing matrix file. Nothing is read except the header, which
+   * must describe exactly the cell data that follows it.
+   *
+   * @param <T>
+   *   The type of values stored in the matrix.
+   * @param file
+   *   The file to open.
+   * @param codec
+   *   How cells are encoded; must match the codec it was created with.
+   *
+   * @return the matrix.
+   *
+   * @throws IOException
+   *   If the file cannot be mapped, is not a matrix file for this codec,
+   *   or is not the length its header calls for.
+   */
+  public static <T> MappedMatrix<T> open(Path file, Codec<T> codec) throws IOException {
+    checkBits(codec.bits());
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    try {
+      long length = channel.size();
+      if (length < HEADER_BYTES) {
+        throw new IOException(file + " is not a matrix file.");
+      } // if
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+      header.order(ByteOrder.LITTLE_ENDIAN);
+      if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+        throw new IOException(file + " is not a matrix file.");
+      } // if
+      if (header.getInt(16) != codec.bits()) {
+        throw new IOException(file + " stores " + header.getInt(16) + "-bit cells, not "
+            + codec.bits() + "-bit cells.");
+      } // if
+      int width = header.getInt(8);
+      int height = header.getInt(12);
+      long words = dataWords(width, height, codec.bits());
+      if (width < 0 || height < 0 || words < 0) {
+        throw new IOException(file + " has impossible dimensions " + width + "x" + height
+            + ".");
+      } // if
+      if (length != HEADER_BYTES + words * Long.BYTES) {
+        throw new IOException(file + " holds " + length + " bytes, but a " + width + "x"
+            + height + " matrix takes " + (HEADER_BYTES + words * Long.BYTES) + ".");
+      } // if
+      return new MappedMatrix<>(file, channel, codec, width, height, header.getLong(24));
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    } // try/catch
+  } // open(Path, Codec<T>)
+
+  // +-----------------+---------------------------------------------
+  // | Storage methods |
+  // +-----------------+
+
+  /**
+   * Write any changes through to the file.
+   */
+  public void force() {
+    for (MappedByteBuffer segment : segments) {
+      segment.force();
+    } // for
+  } // force()
+
+  /**
+   * Write any changes through to the file and close it, deleting it if
+   * it is a copy made by clone(). The matrix must not be used afterwards.
+   *
+   * @throws IOException
+   *   If the file cannot be closed or deleted.
+   */
+  public void close() throws IOException {
+    if (temporary) {
+      channel.close();
+      Files.deleteIfExists(file);
+    } else {
+      force();
+      channel.close();
+    } // if/else
+  } // close()
+
+  /**
+   * Determine which file backs this matrix.
+   *
+   * @return the file.
+   */
+  public Path file() {
+    return file;
+  } // file()
+
+  // +--------------+------------------------------------------------
+  // | Core methods |
+  // +--------------+
+
+  /**
+   * Get the element at the given row and column.
+   *
+   * @param row
+   *   The row of the element.
+   * @param col
+   *   The column of the element.
+   *
+   * @return the value at the specified location.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If either the row or column is out of reasonable bounds.
+   */
+  public T get(int row, int col) {
+    checkCell(row, col);
+    long bit = ((long) row * width + col) * bits;
+    return codec.decode((readWord(bit >>> 6) >>> (bit & 63)) & mask());
+  } // get(int, int)
+
+  /**
+   * Set the element at the given row and column. Not atomic with respect
+   * to other threads writing nearby cells.
+   *
+   * @param row
+   *   The row of the element.
+   * @param col
+   *   The column of the element.
+   * @param val
+   *   The value to set.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If either the row or column is out of reasonable bounds.
+   */
+  public void set(int row, int col, T val) {
+    checkCell(row, col);
+    long bit = ((long) row * width + col) * bits;
+    int shift = (int) (bit & 63);
+    long word = readWord(bit >>> 6);
+    word = (word & ~(mask() << shift)) | ((codec.encode(val) & mask()) << shift);
+    writeWord(bit >>> 6, word);
+  } // set(int, int, T)
+
+  /**
+   * Determine the number of rows in the matrix.
+   *
+   * @return the number of rows.
+   */
+  public int height() {
+    return height;
+  } // height()
+
+  /**
+   * Determine the number of columns in the matrix.
+   *
+   * @return the number of columns.
+   */
+  public int width() {
+    return width;
+  } // width()
+
+  /**
+   * Insert a row filled with the default value.
+   *
+   * @param row
+   *   The number of the row to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than the height.
+   * @throws UncheckedIOException
+   *   If the file cannot be resized.
+   */
+  public void insertRow(int row) {
+    if (row < 0 || row > height) {
+      throw new IndexOutOfBoundsException("Invalid row index.");
+    } // if
+    long rowBits = (long) width * bits;
+    remap(dataWords(width, height + 1, bits));
+    moveBits(row * rowBits, (row + 1) * rowBits, (height - row) * rowBits);
+    height++;
+    writeDimensions();
+    if (rowBits > 0) {
+      fillBits(row * rowBits, (row + 1) * rowBits, pattern(defaultBits));
+    } // if
+  } // insertRow(int)
+
+  /**
+   * Insert a row filled with the specified values.
+   *
+   * @param row
+   *   The number of the row to insert.
+   * @param vals
+   *   The values to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than the height.
+   * @throws ArraySizeException
+   *   If the size of vals is not the same as the width of the matrix.
+   * @throws UncheckedIOException
+   *   If the file cannot be resized.
+   */
+  public void insertRow(int row, T[] vals) throws ArraySizeException {
+    if (row < 0 || row > height) {
+      throw new IndexOutOfBoundsException("Invalid row index.");
+    } // if
+    if (vals.length != width) {
+      throw new ArraySizeException("Size of values array does not match matrix width.");
+    } // if
+    insertRow(row);
+    for (int col = 0; col < width; col++) {
+      set(row, col, vals[col]);
+    } // for
+  } // insertRow(int, T[])
+
+  /**
+   * Insert a column filled with the default value.
+   *
+   * @param col
+   *   The number of the column to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than the width.
+   * @throws UncheckedIOException
+   *   If the file cannot be resized.
+   */
+  public void insertCol(int col) {
+    if (col < 0 || col > width) {
+      throw new IndexOutOfBoundsException("Invalid column index.");
+    } // if
+    remap(dataWords(width + 1, height, bits));
+    // Work from the last row back, so each row moves into space that the
+    // rows after it have already left.
+    for (int row = height - 1; row >= 0; row--) {
+      long from = (long) row * width * bits;
+      long to = (long) row * (width + 1) * bits;
+      moveBits(from + (long) col * bits, to + (long) (col + 1) * bits,
+          (long) (width - col) * bits);
+      moveBits(from, to, (long) col * bits);
+      writeBits(to + (long) col * bits, bits, defaultBits);
+    } // for
+    width++;
+    writeDimensions();
+  } // insertCol(int)
+
+  /**
+   * Insert a column filled with the specified values.
+   *
+   * @param col
+   *   The number of the column to insert.
+   * @param vals
+   *   The values to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than the width.
+   * @throws ArraySizeException
+   *   If the size of vals is not the same as the height of the matrix.
+   * @throws UncheckedIOException
+   *   If the file cannot be resized.
+   */
+  public void insertCol(int col, T[] vals) throws ArraySizeException {
+    if (col < 0 || col > width) {
+      throw new IndexOutOfBoundsException("Invalid column index.");
+    } // if
+    if (vals.length != height) {
+      throw new ArraySizeException("Size of values array does not match matrix height.");
+    } // if
+    insertCol(col);
+    for (int row = 0; row < height; row++) {
+      set(row, col, vals[row]);
+    } // for
+  } // insertCol(int, T[])
+
+  /**
+   * Delete a row.
+   *
+   * @param row
+   *   The number of the row to delete.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than or equal to the height.
+   * @throws UncheckedIOException
+   *   If the file cannot be resized.
+   */
+  public void deleteRow(int row) {
+    if (row < 0 || row >= height) {
+      throw new IndexOutOfBoundsException("Invalid row index.");
+    } // if
+    long rowBits = (long) width * bits;
+    moveBits((row + 1) * rowBits, row * rowBits, (height - row - 1) * rowBits);
+    height--;
+    writeDimensions();
+    shrink();
+  } // deleteRow(int)
+
+  /**
+   * Delete a column.
+   *
+   * @param col
+   *   The number of the column to delete.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than or equal to the width.
+   * @throws UncheckedIOException
+   *   If the file cannot be resized.
+   */
+  public void deleteCol(int col) {
+    if (col < 0 || col >= width) {
+      throw new IndexOutOfBoundsException("Invalid column index.");
+    } // if
+    // Work from the first row on, so each row moves into space that the
+    // rows before it have already left.
+    for (int row = 0; row < height; row++) {
+      long from = (long) row * width * bits;
+      long to = (long) row * (width - 1) * bits;
+      moveBits(from, to, (long) col * bits);
+      moveBits(from + (long) (col + 1) * bits, to + (long) col * bits,
+          (long) (width - col - 1) * bits);
+    } // for
+    width--;
+    writeDimensions();
+    shrink();
+  } // deleteCol(int)
+
+  /**
+   * Fill a rectangular region of the matrix.
+   *
+   * @param startRow
+   *   The top edge / row to start with (inclusive).
+   * @param startCol
+   *   The left edge / column to start with (inclusive).
+   * @param endRow
+   *   The bottom edge / row to stop with (exclusive).
+   * @param endCol
+   *   The right edge / column to stop with (exclusive).
+   * @param val
+   *   The value to store.
+   *
+   * @throw IndexOutOfBoundsException
+   *   If the rows or columns are inappropriate.
+   */
+  public void fillRegion(int startRow, int startCol, int endRow, int endCol,
+      T val) {
+    if (startRow >= endRow || startCol >= endCol) {
+      return;
+    } // if
+    checkCell(startRow, startCol);
+    checkCell(endRow - 1, endCol - 1);
+    long pattern = pattern(codec.encode(val));
+    for (int row = startRow; row < endRow; row++) {
+      long rowStart = (long) row * width;
+      fillBits((rowStart + startCol) * bits, (rowStart + endCol) * bits, pattern);
+    } // for
+  } // fillRegion(int, int, int, int, T)
+
+  /**
+   * Fill a line (horizontal, vertical, diagonal).
+   *
+   * @param startRow
+   *   The row to start with (inclusive).
+   * @param startCol
+   *   The column to start with (inclusive).
+   * @param deltaRow
+   *   How much to change the row in each step.
+   * @param deltaCol
+   *   How much to change the column in each step.
+   * @param endRow
+   *   The row to stop with (exclusive).
+   * @param endCol
+   *   The column to stop with (exclusive).
+   * @param val
+   *   The value to store.
+   *
+   * @throw IndexOutOfBoundsException
+   *   If the rows or columns are inappropriate.
+   */
+  public void fillLine(int startRow, int startCol, int deltaRow,
+      int deltaCol, int endRow, int endCol, T val) {
+    int row = startRow;
+    int col = startCol;
+    while (row < endRow && col < endCol) {
+      set(row, col, val);
+      row += deltaRow;
+      col += deltaCol;
+    } // while
+  } // fillLine(int, int, int, int, int, int, T)
+
+  /**
+   * Make a copy of the matrix in a new temporary file, which is deleted
+   * when the copy is closed.
+   *
+   * @return a copy of the matrix.
+   *
+   * @throws UncheckedIOException
+   *   If the copy cannot be written.
+   */
+  public MappedMatrix<T> clone() {
+    try {
+      force();
+      Path copy = Files.createTempFile("matrix", ".bin");
+      try {
+        Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+        MappedMatrix<T> result = open(copy, codec);
+        result.temporary = true;
+        return result;
+      } catch (IOException e) {
+        Files.deleteIfExists(copy);
+        throw e;
+      } // try/catch
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } // try/catch
+  } // clone()
+
+  /**
+   * Determine if this object is equal to another object.
+   *
+   * @param other
+   *   The object to compare.
+   *
+   * @return true if the other object is a MappedMatrix with the same
+   * width, height, cell size, and equal cells; false otherwise.
+   */
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } // if
+    if (!(other instanceof MappedMatrix)) {
+      return false;
+    } // if
+    MappedMatrix<?> otherMatrix = (MappedMatrix<?>) other;
+    if (width != otherMatrix.width || height != otherMatrix.height
+        || bits != otherMatrix.bits) {
+      return false;
+    } // if
+    for (long w = 0; w < words; w++) {
+      if (readWord(w) != otherMatrix.readWord(w)) {
+        return false;
+      } // if
+    } // for
+    return true;
+  } // equals(Object)
+
+  /**
+   * Compute a hash code for this matrix.
+   *
+   * @return the hash code.
+   */
+  public int hashCode() {
+    int code = (width * 31 + height) * 31 + bits;
+    for (long w = 0; w < words; w++) {
+      code = code * 31 + Long.hashCode(readWord(w));
+    } // for
+    return code;
+  } // hashCode()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make sure that a cell width is one we can pack.
+   *
+   * @param bits
+   *   The number of bits per cell.
+   *
+   * @throws IllegalArgumentException
+   *   If the width does not evenly divide 64.
+   */
+  private static void checkBits(int bits) {
+    if (bits <= 0 || bits > 64 || (64 % bits) != 0) {
+      throw new IllegalArgumentException("Cell width must divide 64, not " + bits + ".");
+    } // if
+  } // checkBits(int)
+
+  /**
+   * Determine how many longs hold the cells of a matrix.
+   *
+   * @param width
+   *   The width of the matrix.
+   * @param height
+   *   The height of the matrix.
+   * @param bits
+   *   The number of bits per cell.
+   *
+   * @return the number of longs, or -1 if the file would be too large.
+   */
+  private static long dataWords(int width, int height, int bits) {
+    long cells = (long) width * height;
+    if (cells > (Long.MAX_VALUE - HEADER_BYTES * 8L) / 64) {
+      return -1;
+    } // if
+    return (cells * bits + 63) >>> 6;
+  } // dataWords(int, int, int)
+
+  /**
+   * Map the first part of a file in segments, growing the file if it is
+   * shorter.
+   *
+   * @param channel
+   *   An open read/write channel to the file.
+   * @param length
+   *   The number of bytes to map.
+   *
+   * @return the segments.
+   *
+   * @throws IOException
+   *   If the file cannot be mapped.
+   */
+  private static MappedByteBuffer[] map(FileChannel channel, long length)
+      throws IOException {
+    int count = (int) ((length + (1L << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT);
+    MappedByteBuffer[] segments = new MappedByteBuffer[count];
+    for (int i = 0; i < count; i++) {
+      long start = (long) i << SEGMENT_SHIFT;
+      long size = Math.min(1L << SEGMENT_SHIFT, length - start);
+      segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+      segments[i].order(ByteOrder.LITTLE_ENDIAN);
+    } // for
+    return segments;
+  } // map(FileChannel, long)
+
+  /**
+   * Resize the file to hold a number of longs of cell data, and map it
+   * again. Growing adds zero words; shrinking drops words from the end.
+   *
+   * @param newWords
+   *   The number of longs of cell data.
+   *
+   * @throws UncheckedIOException
+   *   If the file cannot be resized or mapped.
+   */
+  private void remap(long newWords) {
+    if (newWords == words) {
+      return;
+    } // if
+    long length = HEADER_BYTES + newWords * Long.BYTES;
+    try {
+      segments = map(channel, length);
+      if (newWords < words) {
+        channel.truncate(length);
+      } // if
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } // try/catch
+    words = newWords;
+  } // remap(long)
+
+  /**
+   * Clear the bits past the last cell and drop the words that no longer
+   * hold any cells.
+   *
+   * @throws UncheckedIOException
+   *   If the file cannot be resized.
+   */
+  private void shrink() {
+    long end = (long) width * height * bits;
+    if ((end & 63) != 0) {
+      fillBits(end, (end | 63) + 1, 0);
+    } // if
+    remap(dataWords(width, height, bits));
+  } // shrink()
+
+  /**
+   * Record the current dimensions in the header.
+   */
+  private void writeDimensions() {
+    segments[0].putInt(8, width);
+    segments[0].putInt(12, height);
+  } // writeDimensions()
+
+  /**
+   * Repeat an encoded value across a word.
+   *
+   * @param encoded
+   *   The encoded value.
+   *
+   * @return the value in every cell position of a word.
+   */
+  private long pattern(long encoded) {
+    long pattern = encoded & mask();
+    for (int shift = bits; shift < 64; shift <<= 1) {
+      pattern |= pattern << shift;
+    } // for
+    return pattern;
+  } // pattern(long)
+
+  /**
+   * Make sure that a cell is in the matrix.
+   *
+   * @param row
+   *   The row of the cell.
+   * @param col
+   *   The column of the cell.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the cell is outside the matrix.
+   */
+  private void checkCell(int row, int col) {
+    if (row < 0 || row >= height || col < 0 || col >= width) {
+      throw new IndexOutOfBoundsException("Row or column is out of bounds.");
+    } // if
+  } // checkCell(int, int)
+
+  /**
+   * Get the mask for one cell's bits.
+   *
+   * @return the mask.
+   */
+  private long mask() {
+    return (bits == 64) ? -1L : (1L << bits) - 1;
+  } // mask()
+
+  /**
+   * Copy a range of bits from a pattern that repeats every word. Only the
+   * first and last words are read; the rest are overwritten whole.
+   *
+   * @param from
+   *   The first bit to set (inclusive).
+   * @param to
+   *   The last bit to set (exclusive); greater than from.
+   * @param pattern
+   *   The bits to copy, at the same positions within each word.
+   */
+  private void fillBits(long from, long to, long pattern) {
+    long first = from >>> 6;
+    long last = (to - 1) >>> 6;
+    for (long w = first; w <= last; w++) {
+      long mask = -1L;
+      if (w == first) {
+        mask &= -1L << (from & 63);
+      } // if
+      if (w == last) {
+        mask &= -1L >>> (63 - ((to - 1) & 63));
+      } // if
+      if (mask == -1L) {
+        writeWord(w, pattern);
+      } else {
+        writeWord(w, (readWord(w) & ~mask) | (pattern & mask));
+      } // if/else
+    } // for
+  } // fillBits(long, long, long)
+
+  /**
+   * Read up to 64 bits of cell data from any bit position.
+   *
+   * @param pos
+   *   The first bit.
+   * @param count
+   *   The number of bits, from 1 to 64.
+   *
+   * @return the bits, in the low count bits of the result.
+   */
+  private long readBits(long pos, int count) {
+    int shift = (int) (pos & 63);
+    long result = readWord(pos >>> 6) >>> shift;
+    if (shift + count > 64) {
+      result |= readWord((pos >>> 6) + 1) << (64 - shift);
+    } // if
+    return (count == 64) ? result : result & ((1L << count) - 1);
+  } // readBits(long, int)
+
+  /**
+   * Write up to 64 bits of cell data at any bit position.
+   *
+   * @param pos
+   *   The first bit.
+   * @param count
+   *   The number of bits, from 1 to 64.
+   * @param value
+   *   The bits, in the low count bits.
+   */
+  private void writeBits(long pos, int count, long value) {
+    int shift = (int) (pos & 63);
+    if (shift + count <= 64) {
+      fillBits(pos, pos + count, value << shift);
+    } else {
+      long split = (pos | 63) + 1;
+      fillBits(pos, split, value << shift);
+      fillBits(split, pos + count, value >>> (64 - shift));
+    } // if/else
+  } // writeBits(long, int, long)
+
+  /**
+   * Move a range of bits, 64 at a time. The ranges may overlap.
+   *
+   * @param from
+   *   The first bit to move.
+   * @param to
+   *   Where the first bit goes.
+   * @param count
+   *   The number of bits to move.
+   */
+  private void moveBits(long from, long to, long count) {
+    if (from == to) {
+      return;
+    } else if (to < from) {
+      for (long done = 0; done < count; done += 64) {
+        int chunk = (int) Math.min(64, count - done);
+        writeBits(to + done, chunk, readBits(from + done, chunk));
+      } // for
+    } else {
+      long left = count;
+      while (left > 0) {
+        int chunk = (int) Math.min(64, left);
+        left -= chunk;
+        writeBits(to + left, chunk, readBits(from + left, chunk));
+      } // while
+    } // if/else
+  } // moveBits(long, long, long)
+
+  /**
+   * Read a word of cell data.
+   *
+   * @param index
+   *   The index of the word.
+   *
+   * @return the word.
+   */
+  private long readWord(long index) {
+    long pos = HEADER_BYTES + index * Long.BYTES;
+    return segments[(int) (pos >>> SEGMENT_SHIFT)]
+        .getLong((int) (pos & ((1L << SEGMENT_SHIFT) - 1)));
+  } // readWord(long)
+
+  /**
+   * Write a word of cell data.
+   *
+   * @param index
+   *   The index of the word.
+   * @param word
+   *   The new contents.
+   */
+  private void writeWord(long index, long word) {
+    long pos = HEADER_BYTES + index * Long.BYTES;
+    segments[(int) (pos >>> SEGMENT_SHIFT)]
+        .putLong((int) (pos & ((1L << SEGMENT_SHIFT) - 1)), word);
+  } // writeWord(long, long)
+} // class MappedMatrix
@@ -1,5 +1,7 @@
 package edu.grinnell.csc207.util;
 
+import java.util.Arrays;
+
 /**
  * An implementation of two-dimensional matrices.
  *
@@ -25,10 +27,18 @@ public class MatrixV0<T> implements Matrix<T> {
   private int height;
 
   /**
-   * 2D array to store matrix data.
+   * 2D array to store matrix data. Like an ArrayList, the array may have
+   * more rows than the matrix (unused rows are null) and every row array
+   * may have more columns than the matrix (unused cells are null), so that
+   * rows and columns can be inserted without reallocating each time.
    */
   private T[][] data;
 
+  /**
+   * The length of every row array, which is at least the width.
+   */
+  private int colCapacity;
+
   /**
    * Default value for matrix elements when not set.
    */
@@ -60,11 +70,10 @@ public class MatrixV0<T> implements Matrix<T> {
     this.width = width; // Set the width
     this.height = height; // Set the height
     this.defaultValue = def; // Set the default value
+    this.colCapacity = width;
     data = (T[][]) new Object[height][width]; // Create 2D array
     for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        data[i][j] = def; // Fill each cell with default value
-      } // for
+      Arrays.fill(data[i], def); // Fill each cell with default value
     } // for
   } // MatrixV0(int, int, T)
 
@@ -159,19 +168,9 @@ public class MatrixV0<T> implements Matrix<T> {
     if (row < 0 || row > height) {
       throw new IndexOutOfBoundsException("Invalid row index.");
     } // if
-    T[][] newData = (T[][]) new Object[height + 1][width]; // Create new array with additional row
-    for (int i = 0; i < row; i++) {
-      newData[i] = data[i]; // Copy rows up to the insertion point
-    } // for
-    newData[row] = (T[]) new Object[width]; // Insert new row with default values
-    for (int j = 0; j < width; j++) {
-      newData[row][j] = defaultValue; // Fill new row with default values
-    } // for
-    for (int i = row + 1; i <= height; i++) {
-      newData[i] = data[i - 1]; // Copy remaining rows after insertion point
-    } // for
-    data = newData; // Update reference
-    height++; // Increase height
+    T[] newRow = (T[]) new Object[colCapacity];
+    Arrays.fill(newRow, 0, width, defaultValue); // Fill new row with default values
+    openRow(row, newRow);
   } // insertRow(int)
 
   /**
@@ -194,16 +193,9 @@ public class MatrixV0<T> implements Matrix<T> {
     if (vals.length != width) {
       throw new ArraySizeException("Size of values array does not match matrix width.");
     } // if
-    T[][] newData = (T[][]) new Object[height + 1][width]; // Create new array with additional row
-    for (int i = 0; i < row; i++) {
-      newData[i] = data[i]; // Copy rows up to insertion point
-    } // for
-    newData[row] = vals; // Insert new row with provided values
-    for (int i = row + 1; i <= height; i++) {
-      newData[i] = data[i - 1]; // Copy remaining rows after insertion point
-    } // for
-    data = newData; // Update reference
-    height++; // Increase height
+    T[] newRow = (T[]) new Object[colCapacity];
+    System.arraycopy(vals, 0, newRow, 0, width); // Copy the provided values
+    openRow(row, newRow);
   } // insertRow(int, T[])
 
   /**
@@ -219,19 +211,12 @@ public class MatrixV0<T> implements Matrix<T> {
     if (col < 0 || col > width) {
       throw new IndexOutOfBoundsException("Invalid column index.");
     } // if
-    T[][] newData = (T[][]) new Object[height][width + 1];
+    openCol(col);
     for (int i = 0; i < height; i++) {
-      for (int j = 0; j < col; j++) {
-        newData[i][j] = data[i][j]; // Copy columns up to insertion point
-      } // for
-      newData[i][col] = defaultValue; // Insert new column with default values
-      for (int j = col + 1; j <= width; j++) {
-        newData[i][j] = data[i][j - 1]; // Copy remaining columns after insertion point
-      } // for
+      data[i][col] = defaultValue; // Insert new column with default values
     } // for
-    data = newData; // Update reference
-    width++; // Increase width
   } // insertCol(int)
+
   /**
    * Insert a column filled with the specified values.
    *
@@ -252,18 +237,10 @@ public class MatrixV0<T> implements Matrix<T> {
     if (vals.length != height) {
       throw new ArraySizeException("Size of values array does not match matrix height.");
     } // if
-    T[][] newData = (T[][]) new Object[height][width + 1];
+    openCol(col);
     for (int i = 0; i < height; i++) {
-      for (int j = 0; j < col; j++) {
-        newData[i][j] = data[i][j]; // Copy columns up to insertion point
-      } // for
-      newData[i][col] = vals[i]; // Insert new column with provided values
-      for (int j = col + 1; j <= width; j++) {
-        newData[i][j] = data[i][j - 1]; // Copy remaining columns after insertion point
-      } // for
+      data[i][col] = vals[i]; // Insert new column with provided values
     } // for
-    data = newData; // Update reference
-    width++; // Increase width
   } // insertCol(int, T[])
 
   /**
@@ -279,14 +256,8 @@ public class MatrixV0<T> implements Matrix<T> {
     if (row < 0 || row >= height) {
       throw new IndexOutOfBoundsException("Invalid row index.");
     } // if
-    T[][] newData = (T[][]) new Object[height - 1][width]; // Create new array with one less row
-    for (int i = 0; i < row; i++) {
-      newData[i] = data[i]; // Copy rows up to deletion point
-    } // for
-    for (int i = row; i < height - 1; i++) {
-      newData[i] = data[i + 1]; // Copy remaining rows after deletion point
-    } // for
-    data = newData; // Update reference
+    System.arraycopy(data, row + 1, data, row, height - row - 1); // Shift later rows up
+    data[height - 1] = null; // Let the deleted row be collected
     height--; // Decrease height
   } // deleteRow(int)
 
@@ -303,16 +274,10 @@ public class MatrixV0<T> implements Matrix<T> {
     if (col < 0 || col >= width) {
       throw new IndexOutOfBoundsException("Invalid column index.");
     } // if
-    T[][] newData = (T[][]) new Object[height][width - 1]; // Create new array with one less column
     for (int i = 0; i < height; i++) {
-      for (int j = 0; j < col; j++) {
-        newData[i][j] = data[i][j]; // Copy columns up to deletion point
-      } // for
-      for (int j = col; j < width - 1; j++) {
-        newData[i][j] = data[i][j + 1]; // Copy remaining columns after deletion point
-      } // for
+      System.arraycopy(data[i], col + 1, data[i], col, width - col - 1); // Shift later columns left
+      data[i][width - 1] = null; // Let the deleted value be collected
     } // for
-    data = newData; // Update reference
     width--; // Decrease width
   } // deleteCol(int)
 
@@ -334,6 +299,10 @@ public class MatrixV0<T> implements Matrix<T> {
    *   If the rows or columns are inappropriate.
    */
   public void fillRegion(int startRow, int startCol, int endRow, int endCol, T val) {
+    if (startRow < endRow && startCol < endCol
+        && (startRow < 0 || startCol < 0 || endRow > height || endCol > width)) {
+      throw new IndexOutOfBoundsException("Region is out of bounds.");
+    } // if
     for (int i = startRow; i < endRow; i++) {
       for (int j = startCol; j < endCol; j++) {
         data[i][j] = val; // Fill each element in the specified region
@@ -367,12 +336,84 @@ public class MatrixV0<T> implements Matrix<T> {
     int row = startRow;
     int col = startCol;
     while (row < endRow && col < endCol) {
-      data[row][col] = val; // Fill each element in the line
+      set(row, col, val); // Fill each element in the line
       row += deltaRow; // Move to the next row
       col += deltaCol; // Move to the next column
     } // while
   } // fillLine(int, int, int, int, int, int, T)
 
+  /**
+   * Make sure the matrix can grow to at least the given size without
+   * reallocating.
+   *
+   * @param rows
+   *   The number of rows to allow for.
+   * @param cols
+   *   The number of columns to allow for.
+   */
+  public void ensureCapacity(int rows, int cols) {
+    if (rows > data.length) {
+      data = Arrays.copyOf(data, rows); // Add room for more rows
+    } // if
+    if (cols > colCapacity) {
+      for (int i = 0; i < height; i++) {
+        data[i] = Arrays.copyOf(data[i], cols); // Add room for more columns
+      } // for
+      colCapacity = cols;
+    } // if
+  } // ensureCapacity(int, int)
+
+  /**
+   * Release any spare capacity, so that the arrays are exactly the size
+   * of the matrix.
+   */
+  public void trimToSize() {
+    if (data.length > height) {
+      data = Arrays.copyOf(data, height); // Drop unused rows
+    } // if
+    if (colCapacity > width) {
+      for (int i = 0; i < height; i++) {
+        data[i] = Arrays.copyOf(data[i], width); // Drop unused columns
+      } // for
+      colCapacity = width;
+    } // if
+  } // trimToSize()
+
+  /**
+   * Put a prepared row array into the matrix, shifting later rows down.
+   * Grows the row capacity by half when it runs out.
+   *
+   * @param row
+   *   The number of the row to insert.
+   * @param newRow
+   *   The row array, which must have colCapacity cells.
+   */
+  private void openRow(int row, T[] newRow) {
+    if (height == data.length) {
+      ensureCapacity(Math.max(height + (height >> 1), height + 1), colCapacity);
+    } // if
+    System.arraycopy(data, row, data, row + 1, height - row); // Shift later rows down
+    data[row] = newRow;
+    height++; // Increase height
+  } // openRow(int, T[])
+
+  /**
+   * Open a gap at a column in every row, shifting later columns right.
+   * Grows the column capacity by half when it runs out.
+   *
+   * @param col
+   *   The number of the column to open.
+   */
+  private void openCol(int col) {
+    if (width == colCapacity) {
+      ensureCapacity(data.length, Math.max(width + (width >> 1), width + 1));
+    } // if
+    for (int i = 0; i < height; i++) {
+      System.arraycopy(data[i], col, data[i], col + 1, width - col); // Shift later columns right
+    } // for
+    width++; // Increase width
+  } // openCol(int)
+
   /**
    * A make a copy of the matrix. May share references (e.g., if individual
    * elements are mutable, mutating them in one matrix may affect the other
@@ -381,11 +422,13 @@ public class MatrixV0<T> implements Matrix<T> {
    * @return a copy of the matrix.
    */
   public Matrix clone() {
-    MatrixV0<T> cloneMatrix = new MatrixV0<>(width, height, defaultValue);
+    MatrixV0<T> cloneMatrix = new MatrixV0<>(0, 0, defaultValue);
+    cloneMatrix.width = width;
+    cloneMatrix.height = height;
+    cloneMatrix.colCapacity = width;
+    cloneMatrix.data = (T[][]) new Object[height][];
     for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        cloneMatrix.set(i, j, data[i][j]); // Copy each element to the cloned matrix
-      } // for
+      cloneMatrix.data[i] = Arrays.copyOf(data[i], width); // Copy each row in one step
     } // for
     return cloneMatrix; // Return the cloned matrix
   } // clone()
@@ -0,0 +1,792 @@
+package edu.grinnell.csc207.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Two-dimensional matrices that store only the cells that differ from the
+ * default value. Memory and construction time depend on the number of such
+ * cells (plus one int per row and column), not on the area.
+ *
+ * Cells live in an open-addressing hash table keyed by a pair of physical
+ * row and column ids. Logical rows and columns map to physical ids through
+ * small index arrays, so inserting a row or column only shifts an index
+ * array; no cells move. The ids of deleted rows and columns are reused, so
+ * the index arrays never hold more ids than the most rows or columns the
+ * matrix has had at once.
+ *
+ * @param <T>
+ *   The type of values stored in the matrix.
+ */
+public class SparseMatrix<T> implements Matrix<T> {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The key that marks an empty slot. Real keys are never negative.
+   */
+  private static final long EMPTY = -1L;
+
+  /**
+   * The smallest table we allocate.
+   */
+  private static final int MIN_CAPACITY = 16;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The width of the matrix.
+   */
+  private int width;
+
+  /**
+   * The height of the matrix.
+   */
+  private int height;
+
+  /**
+   * Default value for matrix elements when not set.
+   */
+  private T defaultValue;
+
+  /**
+   * The physical id of each logical row.
+   */
+  private int[] rowIds;
+
+  /**
+   * The physical id of each logical column.
+   */
+  private int[] colIds;
+
+  /**
+   * The logical row of each physical row id. A deleted id instead holds
+   * -2 - (the next free id), or -1 if it is the last free id.
+   */
+  private int[] rowOf;
+
+  /**
+   * The logical column of each physical column id, with deleted ids
+   * chained as in rowOf.
+   */
+  private int[] colOf;
+
+  /**
+   * The most recently deleted row id, or -1 if none is free.
+   */
+  private int freeRowId;
+
+  /**
+   * The most recently deleted column id, or -1 if none is free.
+   */
+  private int freeColId;
+
+  /**
+   * The next unused physical row id.
+   */
+  private int nextRowId;
+
+  /**
+   * The next unused physical column id.
+   */
+  private int nextColId;
+
+  /**
+   * The keys of the hash table, (row id << 32 | column id), or EMPTY.
+   */
+  private long[] keys;
+
+  /**
+   * The values of the hash table.
+   */
+  private Object[] vals;
+
+  /**
+   * The number of stored cells.
+   */
+  private int size;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new matrix of the specified width and height with the
+   * given value as the default.
+   *
+   * @param width
+   *   The width of the matrix.
+   * @param height
+   *   The height of the matrix.
+   * @param def
+   *   The default value, which every cell starts with.
+   *
+   * @throws NegativeArraySizeException
+   *   If either the width or height are negative.
+   */
+  public SparseMatrix(int width, int height, T def) {
+    if (width < 0 || height < 0) {
+      throw new NegativeArraySizeException("Width and height must be non-negative.");
+    } // if
+    this.width = width;
+    this.height = height;
+    this.defaultValue = def;
+    this.rowIds = identity(height);
+    this.colIds = identity(width);
+    this.rowOf = identity(height);
+    this.colOf = identity(width);
+    this.nextRowId = height;
+    this.nextColId = width;
+    this.freeRowId = -1;
+    this.freeColId = -1;
+    this.keys = new long[MIN_CAPACITY];
+    Arrays.fill(this.keys, EMPTY);
+    this.vals = new Object[MIN_CAPACITY];
+  } // SparseMatrix(int, int, T)
+
+  /**
+   * Create a new matrix of the specified width and height with
+   * null as the default value.
+   *
+   * @param width
+   *   The width of the matrix.
+   * @param height
+   *   The height of the matrix.
+   *
+   * @throws NegativeArraySizeException
+   *   If either the width or height are negative.
+   */
+  public SparseMatrix(int width, int height) {
+    this(width, height, null);
+  } // SparseMatrix(int, int)
+
+  // +--------------+------------------------------------------------
+  // | Core methods |
+  // +--------------+
+
+  /**
+   * Get the element at the given row and column.
+   *
+   * @param row
+   *   The row of the element.
+   * @param col
+   *   The column of the element.
+   *
+   * @return the value at the specified location.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If either the row or column is out of reasonable bounds.
+   */
+  @SuppressWarnings("unchecked")
+  public T get(int row, int col) {
+    checkCell(row, col);
+    int slot = find(key(rowIds[row], colIds[col]));
+    return (slot < 0) ? defaultValue : (T) vals[slot];
+  } // get(int, int)
+
+  /**
+   * Set the element at the given row and column. Setting a cell to the
+   * default value removes it from storage.
+   *
+   * @param row
+   *   The row of the element.
+   * @param col
+   *   The column of the element.
+   * @param val
+   *   The value to set.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If either the row or column is out of reasonable bounds.
+   */
+  public void set(int row, int col, T val) {
+    checkCell(row, col);
+    long key = key(rowIds[row], colIds[col]);
+    if (Objects.equals(val, defaultValue)) {
+      remove(key);
+    } else {
+      put(key, val);
+    } // if/else
+  } // set(int, int, T)
+
+  /**
+   * Determine the number of rows in the matrix.
+   *
+   * @return the number of rows.
+   */
+  public int height() {
+    return height;
+  } // height()
+
+  /**
+   * Determine the number of columns in the matrix.
+   *
+   * @return the number of columns.
+   */
+  public int width() {
+    return width;
+  } // width()
+
+  /**
+   * Determine how many cells hold something other than the default.
+   *
+   * @return the number of stored cells.
+   */
+  public int populated() {
+    return size;
+  } // populated()
+
+  /**
+   * Insert a row filled with the default value.
+   *
+   * @param row
+   *   The number of the row to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than the height.
+   */
+  public void insertRow(int row) {
+    if (row < 0 || row > height) {
+      throw new IndexOutOfBoundsException("Invalid row index.");
+    } // if
+    int id = freeRowId;
+    if (id >= 0) {
+      freeRowId = -2 - rowOf[id];
+    } else {
+      if (nextRowId == rowOf.length) {
+        rowOf = Arrays.copyOf(rowOf, grow(rowOf.length));
+      } // if
+      id = nextRowId++;
+    } // if/else
+    rowIds = insertId(rowIds, height, row, id);
+    height++;
+    renumber(rowIds, rowOf, row, height);
+  } // insertRow(int)
+
+  /**
+   * Insert a row filled with the specified values.
+   *
+   * @param row
+   *   The number of the row to insert.
+   * @param vals
+   *   The values to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than the height.
+   * @throws ArraySizeException
+   *   If the size of vals is not the same as the width of the matrix.
+   */
+  public void insertRow(int row, T[] vals) throws ArraySizeException {
+    if (row < 0 || row > height) {
+      throw new IndexOutOfBoundsException("Invalid row index.");
+    } // if
+    if (vals.length != width) {
+      throw new ArraySizeException("Size of values array does not match matrix width.");
+    } // if
+    insertRow(row);
+    for (int col = 0; col < width; col++) {
+      set(row, col, vals[col]);
+    } // for
+  } // insertRow(int, T[])
+
+  /**
+   * Insert a column filled with the default value.
+   *
+   * @param col
+   *   The number of the column to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than the width.
+   */
+  public void insertCol(int col) {
+    if (col < 0 || col > width) {
+      throw new IndexOutOfBoundsException("Invalid column index.");
+    } // if
+    int id = freeColId;
+    if (id >= 0) {
+      freeColId = -2 - colOf[id];
+    } else {
+      if (nextColId == colOf.length) {
+        colOf = Arrays.copyOf(colOf, grow(colOf.length));
+      } // if
+      id = nextColId++;
+    } // if/else
+    colIds = insertId(colIds, width, col, id);
+    width++;
+    renumber(colIds, colOf, col, width);
+  } // insertCol(int)
+
+  /**
+   * Insert a column filled with the specified values.
+   *
+   * @param col
+   *   The number of the column to insert.
+   * @param vals
+   *   The values to insert.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than the width.
+   * @throws ArraySizeException
+   *   If the size of vals is not the same as the height of the matrix.
+   */
+  public void insertCol(int col, T[] vals) throws ArraySizeException {
+    if (col < 0 || col > width) {
+      throw new IndexOutOfBoundsException("Invalid column index.");
+    } // if
+    if (vals.length != height) {
+      throw new ArraySizeException("Size of values array does not match matrix height.");
+    } // if
+    insertCol(col);
+    for (int row = 0; row < height; row++) {
+      set(row, col, vals[row]);
+    } // for
+  } // insertCol(int, T[])
+
+  /**
+   * Delete a row.
+   *
+   * @param row
+   *   The number of the row to delete.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the row is negative or greater than or equal to the height.
+   */
+  public void deleteRow(int row) {
+    if (row < 0 || row >= height) {
+      throw new IndexOutOfBoundsException("Invalid row index.");
+    } // if
+    int id = rowIds[row];
+    System.arraycopy(rowIds, row + 1, rowIds, row, height - row - 1);
+    height--;
+    renumber(rowIds, rowOf, row, height);
+    purge(true, id);
+    rowOf[id] = -2 - freeRowId;
+    freeRowId = id;
+  } // deleteRow(int)
+
+  /**
+   * Delete a column.
+   *
+   * @param col
+   *   The number of the column to delete.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the column is negative or greater than or equal to the width.
+   */
+  public void deleteCol(int col) {
+    if (col < 0 || col >= width) {
+      throw new IndexOutOfBoundsException("Invalid column index.");
+    } // if
+    int id = colIds[col];
+    System.arraycopy(colIds, col + 1, colIds, col, width - col - 1);
+    width--;
+    renumber(colIds, colOf, col, width);
+    purge(false, id);
+    colOf[id] = -2 - freeColId;
+    freeColId = id;
+  } // deleteCol(int)
+
+  /**
+   * Fill a rectangular region of the matrix. Filling with the default
+   * value only touches the stored cells, so clearing a huge region is
+   * cheap.
+   *
+   * @param startRow
+   *   The top edge / row to start with (inclusive).
+   * @param startCol
+   *   The left edge / column to start with (inclusive).
+   * @param endRow
+   *   The bottom edge / row to stop with (exclusive).
+   * @param endCol
+   *   The right edge / column to stop with (exclusive).
+   * @param val
+   *   The value to store.
+   *
+   * @throw IndexOutOfBoundsException
+   *   If the rows or columns are inappropriate.
+   */
+  public void fillRegion(int startRow, int startCol, int endRow, int endCol,
+      T val) {
+    if (startRow >= endRow || startCol >= endCol) {
+      return;
+    } // if
+    checkCell(startRow, startCol);
+    checkCell(endRow - 1, endCol - 1);
+    if (Objects.equals(val, defaultValue)) {
+      int slot = 0;
+      while (slot < keys.length) {
+        long key = keys[slot];
+        if (key != EMPTY) {
+          int row = rowOf[(int) (key >>> 32)];
+          int col = colOf[(int) key];
+          if (row >= startRow && row < endRow && col >= startCol && col < endCol) {
+            deleteSlot(slot);
+            continue; // Another entry may have shifted into this slot
+          } // if
+        } // if
+        slot++;
+      } // while
+    } else {
+      for (int row = startRow; row < endRow; row++) {
+        for (int col = startCol; col < endCol; col++) {
+          put(key(rowIds[row], colIds[col]), val);
+        } // for col
+      } // for row
+    } // if/else
+  } // fillRegion(int, int, int, int, T)
+
+  /**
+   * Fill a line (horizontal, vertical, diagonal).
+   *
+   * @param startRow
+   *   The row to start with (inclusive).
+   * @param startCol
+   *   The column to start with (inclusive).
+   * @param deltaRow
+   *   How much to change the row in each step.
+   * @param deltaCol
+   *   How much to change the column in each step.
+   * @param endRow
+   *   The row to stop with (exclusive).
+   * @param endCol
+   *   The column to stop with (exclusive).
+   * @param val
+   *   The value to store.
+   *
+   * @throw IndexOutOfBoundsException
+   *   If the rows or columns are inappropriate.
+   */
+  public void fillLine(int startRow, int startCol, int deltaRow,
+      int deltaCol, int endRow, int endCol, T val) {
+    int row = startRow;
+    int col = startCol;
+    while (row < endRow && col < endCol) {
+      set(row, col, val);
+      row += deltaRow;
+      col += deltaCol;
+    } // while
+  } // fillLine(int, int, int, int, int, int, T)
+
+  /**
+   * Make a copy of the matrix. The copy shares the stored values but
+   * not the structure.
+   *
+   * @return a copy of the matrix.
+   */
+  @SuppressWarnings("unchecked")
+  public SparseMatrix<T> clone() {
+    try {
+      SparseMatrix<T> result = (SparseMatrix<T>) super.clone();
+      result.rowIds = rowIds.clone();
+      result.colIds = colIds.clone();
+      result.rowOf = rowOf.clone();
+      result.colOf = colOf.clone();
+      result.keys = keys.clone();
+      result.vals = vals.clone();
+      return result;
+    } catch (CloneNotSupportedException e) {
+      throw new AssertionError(e);
+    } // try/catch
+  } // clone()
+
+  /**
+   * Determine if this object is equal to another object.
+   *
+   * @param other
+   *   The object to compare.
+   *
+   * @return true if the other object is a SparseMatrix with the same
+   * width, height, default value, and equal elements; false otherwise.
+   */
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } // if
+    if (!(other instanceof SparseMatrix)) {
+      return false;
+    } // if
+    SparseMatrix<?> otherMatrix = (SparseMatrix<?>) other;
+    if (width != otherMatrix.width || height != otherMatrix.height
+        || size != otherMatrix.size
+        || !Objects.equals(defaultValue, otherMatrix.defaultValue)) {
+      return false;
+    } // if
+    for (int slot = 0; slot < keys.length; slot++) {
+      long key = keys[slot];
+      if (key != EMPTY) {
+        int row = rowOf[(int) (key >>> 32)];
+        int col = colOf[(int) key];
+        if (!Objects.equals(vals[slot], otherMatrix.get(row, col))) {
+          return false;
+        } // if
+      } // if
+    } // for
+    return true;
+  } // equals(Object)
+
+  /**
+   * Compute a hash code for this matrix. Stored cells are combined with
+   * addition, so the result does not depend on table order.
+   *
+   * @return the hash code.
+   */
+  public int hashCode() {
+    int code = (width * 7 + height) * 7 + Objects.hashCode(defaultValue);
+    for (int slot = 0; slot < keys.length; slot++) {
+      long key = keys[slot];
+      if (key != EMPTY) {
+        int row = rowOf[(int) (key >>> 32)];
+        int col = colOf[(int) key];
+        code += (row * 31 + col) * 31 + Objects.hashCode(vals[slot]);
+      } // if
+    } // for
+    return code;
+  } // hashCode()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make sure that a cell is in the matrix.
+   *
+   * @param row
+   *   The row of the cell.
+   * @param col
+   *   The column of the cell.
+   *
+   * @throws IndexOutOfBoundsException
+   *   If the cell is outside the matrix.
+   */
+  private void checkCell(int row, int col) {
+    if (row < 0 || row >= height || col < 0 || col >= width) {
+      throw new IndexOutOfBoundsException("Row or column is out of bounds.");
+    } // if
+  } // checkCell(int, int)
+
+  /**
+   * Build the array 0, 1, ..., n-1 (with a little room to grow).
+   *
+   * @param n
+   *   The number of entries.
+   *
+   * @return the array.
+   */
+  private static int[] identity(int n) {
+    int[] result = new int[Math.max(n, 1)];
+    for (int i = 0; i < n; i++) {
+      result[i] = i;
+    } // for
+    return result;
+  } // identity(int)
+
+  /**
+   * Compute a larger capacity for an index array.
+   *
+   * @param capacity
+   *   The current capacity.
+   *
+   * @return the new capacity.
+   */
+  private static int grow(int capacity) {
+    return capacity + (capacity >> 1) + 1;
+  } // grow(int)
+
+  /**
+   * Insert an id into the first count entries of an index array,
+   * growing it if necessary.
+   *
+   * @param ids
+   *   The index array.
+   * @param count
+   *   The number of entries in use.
+   * @param pos
+   *   Where to insert.
+   * @param id
+   *   The id to insert.
+   *
+   * @return the (possibly new) index array.
+   */
+  private static int[] insertId(int[] ids, int count, int pos, int id) {
+    if (count == ids.length) {
+      ids = Arrays.copyOf(ids, grow(ids.length));
+    } // if
+    System.arraycopy(ids, pos, ids, pos + 1, count - pos);
+    ids[pos] = id;
+    return ids;
+  } // insertId(int[], int, int, int)
+
+  /**
+   * Bring the inverse index up to date for the entries from pos on.
+   *
+   * @param ids
+   *   The logical-to-physical index.
+   * @param inverse
+   *   The physical-to-logical index.
+   * @param pos
+   *   The first logical position that moved.
+   * @param count
+   *   The number of logical positions.
+   */
+  private static void renumber(int[] ids, int[] inverse, int pos, int count) {
+    for (int i = pos; i < count; i++) {
+      inverse[ids[i]] = i;
+    } // for
+  } // renumber(int[], int[], int, int)
+
+  /**
+   * Build the table key for a cell.
+   *
+   * @param rowId
+   *   The physical row id.
+   * @param colId
+   *   The physical column id.
+   *
+   * @return the key.
+   */
+  private static long key(int rowId, int colId) {
+    return ((long) rowId << 32) | colId;
+  } // key(int, int)
+
+  /**
+   * Find the home slot of a key.
+   *
+   * @param key
+   *   The key.
+   *
+   * @return the slot where probing starts.
+   */
+  private int home(long key) {
+    long mixed = key * 0x9E3779B97F4A7C15L;
+    return (int) (mixed ^ (mixed >>> 32)) & (keys.length - 1);
+  } // home(long)
+
+  /**
+   * Find the slot that holds a key.
+   *
+   * @param key
+   *   The key.
+   *
+   * @return the slot, or -1 if the key is not stored.
+   */
+  private int find(long key) {
+    int mask = keys.length - 1;
+    for (int slot = home(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        return slot;
+      } // if
+    } // for
+    return -1;
+  } // find(long)
+
+  /**
+   * Store a value under a key, growing the table to keep it at most half full.
+   *
+   * @param key
+   *   The key.
+   * @param val
+   *   The value.
+   */
+  private void put(long key, Object val) {
+    int mask = keys.length - 1;
+    int slot = home(key);
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        vals[slot] = val;
+        return;
+      } // if
+      slot = (slot + 1) & mask;
+    } // while
+    keys[slot] = key;
+    vals[slot] = val;
+    if (++size * 2 > keys.length) {
+      rehash(keys.length * 2);
+    } // if
+  } // put(long, Object)
+
+  /**
+   * Remove a key, if present.
+   *
+   * @param key
+   *   The key.
+   */
+  private void remove(long key) {
+    int slot = find(key);
+    if (slot >= 0) {
+      deleteSlot(slot);
+    } // if
+  } // remove(long)
+
+  /**
+   * Empty a slot, shifting later entries of the probe run back so that
+   * lookups never stop early (no tombstones are needed).
+   *
+   * @param slot
+   *   The slot to empty.
+   */
+  private void deleteSlot(int slot) {
+    int mask = keys.length - 1;
+    int gap = slot;
+    int next = (gap + 1) & mask;
+    while (keys[next] != EMPTY) {
+      int want = home(keys[next]);
+      // Move the entry back if the gap lies between its home and where it is.
+      if (((next - want) & mask) >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        vals[gap] = vals[next];
+        gap = next;
+      } // if
+      next = (next + 1) & mask;
+    } // while
+    keys[gap] = EMPTY;
+    vals[gap] = null;
+    size--;
+  } // deleteSlot(int)
+
+  /**
+   * Drop every stored cell in a deleted row or column.
+   *
+   * @param isRow
+   *   Whether id is a row id (true) or column id (false).
+   * @param id
+   *   The physical id.
+   */
+  private void purge(boolean isRow, int id) {
+    int slot = 0;
+    while (slot < keys.length) {
+      long key = keys[slot];
+      if (key != EMPTY && (isRow ? (int) (key >>> 32) : (int) key) == id) {
+        deleteSlot(slot);
+      } else {
+        slot++;
+      } // if/else
+    } // while
+  } // purge(boolean, int)
+
+  /**
+   * Move every entry into a table of a new capacity.
+   *
+   * @param capacity
+   *   The new capacity (a power of two).
+   */
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    Object[] oldVals = vals;
+    keys = new long[capacity];
+    Arrays.fill(keys, EMPTY);
+    vals = new Object[capacity];
+    int mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        int slot = home(oldKeys[i]);
+        while (keys[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        } // while
+        keys[slot] = oldKeys[i];
+        vals[slot] = oldVals[i];
+      } // if
+    } // for
+  } // rehash(int)
+} // class SparseMatrix
@@ -0,0 +1,207 @@
+package edu.grinnell.csc207.fliptiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks how the byte tokenizer splits and classifies tokens, across buffer
+ * refills and short reads, and that the batch runner reports scripted games
+ * and rejects malformed scripts.
+ */
+public class BatchRunnerTest {
+    /**
+     * A channel over a byte array that hands out at most a few bytes per
+     * read, and nothing at all on every other read.
+     */
+    private static final class Dribble implements ReadableByteChannel {
+        private final byte[] bytes;
+        private final int chunk;
+        private int at;
+        private boolean idle;
+
+        /**
+         * Creates a channel.
+         *
+         * @param text The contents.
+         * @param chunk The most bytes per read.
+         */
+        Dribble(String text, int chunk) {
+            this.bytes = text.getBytes(StandardCharsets.US_ASCII);
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (at == bytes.length) {
+                return -1;
+            }
+            idle = !idle;
+            if (idle) {
+                return 0;
+            }
+            int count = Math.min(Math.min(chunk, dst.remaining()), bytes.length - at);
+            dst.put(bytes, at, count);
+            at += count;
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Classifies numbers, words, numbers too large for an int, and lone
+     * minus signs, and tracks the line of each token.
+     *
+     * @throws IOException Never.
+     */
+    @Test
+    public void classifiesTokens() throws IOException {
+        ByteTokenizer in = new ByteTokenizer(new Dribble(
+                "0 42 -7\n2147483647 2147483648 -2147483647 -2147483648\r\n"
+                + "99999999999999999999 - -x 12ab GAME\t\n\n" + "w".repeat(70), 3));
+        expectNumber(in, 0, 1);
+        expectNumber(in, 42, 1);
+        expectNumber(in, -7, 1);
+        expectNumber(in, Integer.MAX_VALUE, 2);
+        expectWord(in, "2147483648", 2);
+        expectNumber(in, -Integer.MAX_VALUE, 2);
+        expectWord(in, "-2147483648", 2);
+        expectWord(in, "99999999999999999999", 3);
+        expectWord(in, "-", 3);
+        expectWord(in, "-x", 3);
+        expectWord(in, "12ab", 3);
+        expectWord(in, "GAME", 3);
+        assertTrue(in.wordIs("game"));
+        expectWord(in, "w".repeat(64), 5);
+        assertEquals(ByteTokenizer.EOF, in.next());
+        assertEquals(ByteTokenizer.EOF, in.next());
+    }
+
+    /**
+     * Reads more than one buffer's worth of tokens, so that tokens straddle
+     * refills, and checks that none are split or lost.
+     *
+     * @throws IOException Never.
+     */
+    @Test
+    public void readsAcrossRefills() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40000; i++) {
+            text.append(i % 7 == 0 ? "w" + i : Integer.toString(-i))
+                    .append(i % 10 == 9 ? '\n' : ' ');
+        }
+        ByteTokenizer in = new ByteTokenizer(new Dribble(text.toString(), 1 << 20));
+        for (int i = 0; i < 40000; i++) {
+            if (i % 7 == 0) {
+                expectWord(in, "w" + i, i / 10 + 1);
+            } else {
+                expectNumber(in, -i, i / 10 + 1);
+            }
+        }
+        assertEquals(ByteTokenizer.EOF, in.next());
+    }
+
+    /**
+     * Runs a small script and checks the reported results, reading it all at
+     * once and a few bytes at a time.
+     *
+     * @throws IOException Never.
+     */
+    @Test
+    public void reportsEachGame() throws IOException {
+        String script = "game 1 1 plus\n0 0\n5 5\n"
+                + "GAME 2 3 knight-torus 0 0 0 0 -1 2\n"
+                + "game 3 3 classic\n";
+        String expected = "1 1 1 complete\n2 2 1 incomplete\n3 0 0 incomplete\n";
+        assertEquals(expected, run(script, 1 << 16));
+        assertEquals(expected, run(script, 2));
+        assertEquals("", run(" \n ", 1));
+    }
+
+    /**
+     * Checks that malformed scripts are rejected with the line at fault.
+     */
+    @Test
+    public void rejectsMalformedScripts() {
+        expectMalformed("1 1", "line 1: move before the first game");
+        expectMalformed("game 2 2 plus\njump", "line 2: unknown word 'jump'");
+        expectMalformed("game 2 x plus", "line 1: expected the number of columns");
+        expectMalformed("game\n\n", "line 3: expected the number of rows");
+        expectMalformed("game 2 2 7", "line 1: expected a flip rule");
+        expectMalformed("game 2 2 hex", "line 1: Unknown flip rule: hex");
+        expectMalformed("game 0 2 plus", "line 1: board dimensions must be positive");
+        expectMalformed("game 2 2 plus\n0\n", "line 3: expected a column");
+        expectMalformed("game 2 2 plus\n0 -\n", "line 2: expected a column");
+    }
+
+    /**
+     * Scans a token and checks that it is a given number.
+     *
+     * @param in The tokenizer.
+     * @param expected The number.
+     * @param line The line it should be on.
+     * @throws IOException Never.
+     */
+    private static void expectNumber(ByteTokenizer in, int expected, int line)
+            throws IOException {
+        assertEquals(ByteTokenizer.NUMBER, in.next(), "before " + expected);
+        assertEquals(expected, in.number());
+        assertEquals(line, in.line(), "line of " + expected);
+    }
+
+    /**
+     * Scans a token and checks that it is a given word.
+     *
+     * @param in The tokenizer.
+     * @param expected The word.
+     * @param line The line it should be on.
+     * @throws IOException Never.
+     */
+    private static void expectWord(ByteTokenizer in, String expected, int line)
+            throws IOException {
+        assertEquals(ByteTokenizer.WORD, in.next(), "before " + expected);
+        assertEquals(expected, in.text());
+        assertEquals(line, in.line(), "line of " + expected);
+    }
+
+    /**
+     * Runs a script and collects its output.
+     *
+     * @param script The script.
+     * @param chunk The most bytes to read at a time.
+     * @return The output.
+     * @throws IOException Never.
+     */
+    private static String run(String script, int chunk) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BatchRunner(new Dribble(script, chunk), out).run();
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Checks that a script is rejected.
+     *
+     * @param script The script.
+     * @param message The expected message.
+     */
+    private static void expectMalformed(String script, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> run(script, 4));
+        assertEquals(message, e.getMessage());
+    }
+}
@@ -0,0 +1,190 @@
+package edu.grinnell.csc207.fliptiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Plays games against a server over loopback, and checks that idle sessions
+ * are dropped, that the sessions gauge follows them, and that closing the
+ * server closes its connections.
+ */
+public class GameServerTest {
+    private static final GameMetrics METRICS = GameMetrics.shared();
+
+    /**
+     * A connection to a server.
+     */
+    private static final class Client implements AutoCloseable {
+        final Socket socket;
+        final BufferedReader in;
+        final Writer out;
+
+        /**
+         * Connects to a server.
+         *
+         * @param server The server.
+         * @throws IOException If the connection fails.
+         */
+        Client(GameServer server) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+            socket.setSoTimeout(10_000);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII));
+            out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+        }
+
+        /**
+         * Sends a request and waits for the reply.
+         *
+         * @param request The request line.
+         * @return The reply line.
+         * @throws IOException If the connection fails.
+         */
+        String ask(String request) throws IOException {
+            out.write(request + "\n");
+            out.flush();
+            return in.readLine();
+        }
+
+        /**
+         * Closes the connection.
+         *
+         * @throws IOException If the socket cannot be closed.
+         */
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * Starts, plays, inspects and ends games, following hints on a board
+     * small enough to search and on one whose null space is too large to.
+     *
+     * @throws IOException If the connection fails.
+     */
+    @Test
+    public void playsGamesByHint() throws IOException {
+        try (GameServer server = new GameServer(0, 600); Client client = new Client(server)) {
+            long before = METRICS.getActiveSessions();
+            String classic = client.ask("NEW 5").substring(3);
+            String torus = client.ask("NEW 6 6 block-torus").substring(3);
+            assertEquals(2, server.getSessionCount());
+            assertEquals(before + 2, METRICS.getActiveSessions());
+            assertTrue(GameSolver.kernelDimension(FlipKernel.of(FlipRule.BLOCK.toroidal(), 6, 6))
+                    > GameServer.HINT_SEARCH_LIMIT);
+
+            assertEquals("OK 5 5 0 " + "0".repeat(25), client.ask("STATE " + classic));
+            int presses = followHints(client, classic, 25);
+            assertEquals("OK 5 5 " + presses + " " + "1".repeat(25),
+                    client.ask("STATE " + classic));
+            presses = followHints(client, torus, 36);
+            assertEquals("OK 6 6 " + presses + " " + "1".repeat(36),
+                    client.ask("STATE " + torus));
+
+            assertEquals("ERR invalid move", client.ask("MOVE " + classic + " 5 0"));
+            assertEquals("ERR size must be between 1 and " + GameServer.MAX_SIZE,
+                    client.ask("NEW 0"));
+            assertEquals("ERR bad number", client.ask("MOVE " + classic + " x 0"));
+            assertEquals("ERR missing argument", client.ask("HINT"));
+            assertEquals("ERR unknown command", client.ask("JUMP"));
+
+            assertEquals("OK", client.ask("END " + classic));
+            assertEquals("ERR no such session", client.ask("END " + classic));
+            assertEquals("ERR no such session", client.ask("HINT " + classic));
+            assertEquals("OK", client.ask("END " + torus));
+            assertEquals(0, server.getSessionCount());
+            assertEquals(before, METRICS.getActiveSessions());
+            assertEquals("BYE", client.ask("QUIT"));
+            assertNull(client.in.readLine());
+        }
+    }
+
+    /**
+     * Checks that sessions left alone past the idle timeout are dropped
+     * while used ones stay.
+     *
+     * @throws IOException If the connection fails.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    @Test
+    public void evictsIdleSessions() throws IOException, InterruptedException {
+        try (GameServer server = new GameServer(0, 1); Client client = new Client(server)) {
+            long before = METRICS.getActiveSessions();
+            String idle = client.ask("NEW 3").substring(3);
+            String busy = client.ask("NEW 4").substring(3);
+            assertEquals(before + 2, METRICS.getActiveSessions());
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (server.getSessionCount() > 1) {
+                if (System.nanoTime() - deadline > 0) {
+                    fail("idle session was not evicted");
+                }
+                assertTrue(client.ask("STATE " + busy).startsWith("OK 4 4 "));
+                Thread.sleep(100);
+            }
+            assertEquals("ERR no such session", client.ask("STATE " + idle));
+            assertTrue(client.ask("STATE " + busy).startsWith("OK 4 4 "));
+            assertEquals(before + 1, METRICS.getActiveSessions());
+        }
+    }
+
+    /**
+     * Checks that closing the server closes connections that are still open.
+     *
+     * @throws IOException If the connection fails.
+     */
+    @Test
+    public void closesOpenConnections() throws IOException {
+        long before = METRICS.getActiveSessions();
+        GameServer server = new GameServer(0, 600);
+        try (Client client = new Client(server)) {
+            assertTrue(client.ask("NEW 3").startsWith("OK "));
+            server.close();
+            try {
+                assertNull(client.in.readLine());
+            } catch (SocketException e) {
+                // A reset also shows the server closed the connection.
+            }
+        }
+        assertEquals(before, METRICS.getActiveSessions());
+    }
+
+    /**
+     * Presses hinted tiles until the server has no more hints, checking
+     * that the last press completes the game.
+     *
+     * @param client The connection.
+     * @param id The session id.
+     * @param maxPresses The most presses the game may take.
+     * @return The number of presses.
+     * @throws IOException If the connection fails.
+     */
+    private static int followHints(Client client, String id, int maxPresses)
+            throws IOException {
+        String last = null;
+        for (int press = 0; press <= maxPresses; press++) {
+            String hint = client.ask("HINT " + id);
+            if (hint.equals("OK NONE")) {
+                assertTrue(last != null && last.endsWith(" 1"), "last move " + last);
+                return press;
+            }
+            String[] words = hint.split(" ");
+            last = client.ask("MOVE " + id + " " + words[1] + " " + words[2]);
+            assertEquals("OK " + (press + 1), last.substring(0, last.length() - 2));
+        }
+        return fail("hints did not finish session " + id);
+    }
+}
@@ -0,0 +1,224 @@
+package edu.grinnell.csc207.fliptiles;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that snapshots restore exactly the game they were taken of, and
+ * that damaged snapshots are rejected without moving the buffer.
+ */
+public class GameSnapshotTest {
+    private static final FlipRule CUSTOM = FlipRule.custom("zigé",
+            new int[][] {{0, 0}, {1, 1}, {-1, 2}, {0, -3}});
+    private static final FlipRule[] RULES = {FlipRule.PLUS, FlipRule.BLOCK, FlipRule.CROSS,
+        FlipRule.KNIGHT, FlipRule.PLUS.toroidal(), FlipRule.KNIGHT.toroidal(), CUSTOM,
+        CUSTOM.toroidal()};
+    private static final int[][] SIZES = {{1, 1}, {3, 3}, {5, 5}, {8, 8}, {9, 9}, {2, 13},
+        {11, 7}};
+    private static final long ELAPSED = 5000;
+
+    /**
+     * Round-trips games of every rule and several sizes, including ones whose
+     * tiles fill whole words and ones that end partway through a byte.
+     */
+    @Test
+    public void roundTripsGames() {
+        Random random = new Random(23);
+        for (FlipRule rule : RULES) {
+            for (int[] size : SIZES) {
+                GameLogic game = randomGame(size[0], size[1], rule, random);
+                byte[] bytes = GameSnapshot.toBytes(game);
+                assertEquals(GameSnapshot.size(game), bytes.length);
+                ByteBuffer in = ByteBuffer.wrap(bytes);
+                GameLogic copy = GameSnapshot.read(in);
+                assertEquals(bytes.length, in.position());
+                assertSameGame(game, copy, rule.name() + " " + size[0] + "x" + size[1]);
+                assertEquals(GameLogic.DEFAULT_UNDO_CAPACITY, copy.undoCapacity());
+                assertFalse(copy.canUndo());
+            }
+        }
+        assertEquals(36, GameSnapshot.size(new GameLogic(5)));
+    }
+
+    /**
+     * Packs many snapshots into one direct, big-endian buffer at an odd
+     * offset, and reads them back in order.
+     */
+    @Test
+    public void readsPackedSnapshots() {
+        Random random = new Random(230);
+        GameLogic[] games = new GameLogic[RULES.length * SIZES.length];
+        int total = 3;
+        for (int i = 0; i < games.length; i++) {
+            int[] size = SIZES[i % SIZES.length];
+            games[i] = randomGame(size[0], size[1], RULES[i / SIZES.length], random);
+            total += GameSnapshot.size(games[i]);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(total);
+        buffer.position(3);
+        for (GameLogic game : games) {
+            GameSnapshot.write(game, buffer);
+        }
+        assertEquals(total, buffer.position());
+        assertEquals(ByteOrder.BIG_ENDIAN, buffer.order());
+        buffer.position(3);
+        for (GameLogic game : games) {
+            assertSameGame(game, GameSnapshot.read(buffer, 7), "packed");
+        }
+        assertEquals(total, buffer.position());
+        assertEquals(ByteOrder.BIG_ENDIAN, buffer.order());
+    }
+
+    /**
+     * Checks that the undo capacity given to read() is the restored game's.
+     */
+    @Test
+    public void restoresWithTheGivenUndoCapacity() {
+        GameLogic game = randomGame(4, 4, FlipRule.PLUS, new Random(2));
+        GameLogic copy = GameSnapshot.read(ByteBuffer.wrap(GameSnapshot.toBytes(game)), 3);
+        assertEquals(3, copy.undoCapacity());
+        for (int i = 0; i < 5; i++) {
+            copy.makeMove(i % 4, i / 4);
+        }
+        int undone = 0;
+        while (copy.undo()) {
+            undone++;
+        }
+        assertEquals(3, undone);
+    }
+
+    /**
+     * Flips every bit of a snapshot with a custom rule in turn, and checks
+     * that each damaged copy is rejected and leaves the position alone.
+     */
+    @Test
+    public void rejectsEveryFlippedBit() {
+        GameLogic game = randomGame(5, 6, CUSTOM.toroidal(), new Random(3));
+        byte[] bytes = GameSnapshot.toBytes(game);
+        for (int i = 0; i < bytes.length * 8; i++) {
+            byte[] damaged = bytes.clone();
+            damaged[i / 8] ^= (byte) (1 << (i % 8));
+            assertRejected(damaged, "bit " + i);
+        }
+    }
+
+    /**
+     * Checks that custom rules whose name or stencil would not fit a
+     * snapshot's unsigned short counts are refused, and that the largest
+     * name that fits round-trips.
+     */
+    @Test
+    public void limitsCustomRuleSizes() {
+        int[][] stencil = {{0, 0}, {0, 1}};
+        assertThrows(IllegalArgumentException.class,
+                () -> FlipRule.custom("\u00e9".repeat(32768), stencil));
+        int[][] huge = new int[65536][];
+        for (int i = 0; i < huge.length; i++) {
+            huge[i] = new int[] {i >> 8, i & 0xFF};
+        }
+        assertThrows(IllegalArgumentException.class, () -> FlipRule.custom("huge", huge));
+
+        FlipRule rule = FlipRule.custom("\u00e9".repeat(32767) + "a", stencil);
+        GameLogic game = randomGame(3, 4, rule, new Random(5));
+        GameLogic copy = GameSnapshot.read(ByteBuffer.wrap(GameSnapshot.toBytes(game)));
+        assertSameGame(game, copy, "longest name");
+        assertEquals(rule.name(), copy.board().getRule().name());
+    }
+
+    /**
+     * Checks the specific reasons for rejecting a bad magic number, an
+     * unknown version and a checksum mismatch.
+     */
+    @Test
+    public void explainsRejections() {
+        byte[] bytes = GameSnapshot.toBytes(randomGame(5, 5, FlipRule.PLUS, new Random(4)));
+        byte[] magic = bytes.clone();
+        magic[0] ^= 1;
+        assertTrue(assertRejected(magic, "magic").contains("Not a game snapshot"));
+        byte[] version = bytes.clone();
+        version[4] = 2;
+        assertTrue(assertRejected(version, "version").contains("version 2"));
+        byte[] tiles = bytes.clone();
+        tiles[bytes.length - 5] ^= 0x10;
+        assertTrue(assertRejected(tiles, "tiles").contains("checksum"));
+    }
+
+    /**
+     * Checks that every proper prefix of a snapshot is rejected as truncated
+     * or corrupt, and leaves the position alone.
+     */
+    @Test
+    public void rejectsTruncatedSnapshots() {
+        for (FlipRule rule : new FlipRule[] {FlipRule.KNIGHT, CUSTOM}) {
+            byte[] bytes = GameSnapshot.toBytes(randomGame(9, 9, rule, new Random(5)));
+            for (int length = 0; length < bytes.length; length++) {
+                byte[] prefix = Arrays.copyOf(bytes, length);
+                assertRejected(prefix, rule.name() + " cut to " + length);
+            }
+        }
+    }
+
+    /**
+     * Makes a game with some random moves and an elapsed time of ELAPSED
+     * milliseconds.
+     *
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @param rule The flip rule.
+     * @param random Where to get moves.
+     * @return The game.
+     */
+    private static GameLogic randomGame(int rows, int cols, FlipRule rule, Random random) {
+        GameLogic game = new GameLogic(rows, cols, rule);
+        for (int i = random.nextInt(rows * cols + 1); i > 0; i--) {
+            game.makeMove(random.nextInt(rows), random.nextInt(cols));
+        }
+        game.restore(game.getMoveCount(), System.currentTimeMillis() - ELAPSED);
+        return game;
+    }
+
+    /**
+     * Checks that a restored game matches the original.
+     *
+     * @param expected The original.
+     * @param actual The restored game.
+     * @param what What is being checked, for failure messages.
+     */
+    private static void assertSameGame(GameLogic expected, GameLogic actual, String what) {
+        GameBoard board = actual.board();
+        assertEquals(expected.board().getRows(), board.getRows(), what);
+        assertEquals(expected.board().getCols(), board.getCols(), what);
+        assertEquals(expected.board().getRule(), board.getRule(), what);
+        assertArrayEquals(expected.board().tiles(), board.tiles(), what);
+        assertEquals(expected.getMoveCount(), actual.getMoveCount(), what);
+        long elapsed = actual.getElapsedTimeInMillis();
+        assertTrue(elapsed >= ELAPSED && elapsed < ELAPSED + 60_000, what + ": " + elapsed);
+    }
+
+    /**
+     * Checks that a damaged snapshot is rejected and that reading it leaves
+     * the buffer's position where it was.
+     *
+     * @param bytes The damaged snapshot.
+     * @param what What is being checked, for failure messages.
+     * @return The rejection's message.
+     */
+    private static String assertRejected(byte[] bytes, String what) {
+        ByteBuffer in = ByteBuffer.allocate(bytes.length + 2);
+        in.position(2);
+        in.put(bytes).position(2);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> GameSnapshot.read(in), what);
+        assertEquals(2, in.position(), what);
+        return e.getMessage();
+    }
+}
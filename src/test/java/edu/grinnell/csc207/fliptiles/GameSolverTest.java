@@ -0,0 +1,137 @@
+package edu.grinnell.csc207.fliptiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the solver against exhaustive search on boards small enough to try
+ * every set of presses.
+ */
+public class GameSolverTest {
+    private static final FlipRule[] RULES = {
+        FlipRule.PLUS, FlipRule.BLOCK, FlipRule.CROSS, FlipRule.KNIGHT,
+        FlipRule.PLUS.toroidal(), FlipRule.BLOCK.toroidal(), FlipRule.CROSS.toroidal(),
+        FlipRule.KNIGHT.toroidal()};
+
+    private static final int[][] SHAPES = {
+        {1, 1}, {2, 2}, {3, 3}, {1, 6}, {2, 5}, {3, 4}, {4, 3}, {2, 6}};
+
+    /**
+     * Compares solve, solveOptimal and solveAllOptimal with brute force on
+     * every rule and shape, from the empty board and from random boards.
+     */
+    @Test
+    public void matchesExhaustiveSearch() {
+        Random random = new Random(207);
+        for (FlipRule rule : RULES) {
+            for (int[] shape : SHAPES) {
+                FlipKernel kernel = FlipKernel.of(rule, shape[0], shape[1]);
+                for (int trial = 0; trial < 6; trial++) {
+                    long tiles = trial == 0 ? 0 : random.nextLong();
+                    check(new GameBoard(kernel, new long[] {tiles}), rule + " " + shape[0]
+                            + "x" + shape[1] + " tiles " + Long.toHexString(tiles));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that solutions to boards too big for the cache still complete them.
+     */
+    @Test
+    public void solvesLargeBoards() {
+        Random random = new Random(5);
+        GameBoard board = new GameBoard(70, 70, FlipRule.PLUS);
+        for (int i = 0; i < 500; i++) {
+            board.flipTiles(random.nextInt(70), random.nextInt(70));
+        }
+        Solution solution = board.solve();
+        assertNotNull(solution);
+        for (int[] press : solution.getPresses()) {
+            board.flipTiles(press[0], press[1]);
+        }
+        assertTrue(board.allTilesFlipped());
+    }
+
+    /**
+     * Compares the solver's answers for one board with brute force.
+     *
+     * @param board The board.
+     * @param what A description for failure messages.
+     */
+    private static void check(GameBoard board, String what) {
+        int cells = board.getRows() * board.getCols();
+        int best = Integer.MAX_VALUE;
+        Set<Long> optimal = new HashSet<>();
+        for (long presses = 0; presses < (1L << cells); presses++) {
+            if (completes(board, presses)) {
+                int count = Long.bitCount(presses);
+                if (count < best) {
+                    best = count;
+                    optimal.clear();
+                }
+                if (count == best) {
+                    optimal.add(presses);
+                }
+            }
+        }
+        if (optimal.isEmpty()) {
+            assertNull(board.solve(), what);
+            assertNull(board.solveOptimal(), what);
+            assertNull(board.solveAllOptimal(), what);
+            return;
+        }
+        assertTrue(completes(board, mask(board, board.solve())), what);
+        Solution fewest = board.solveOptimal();
+        assertEquals(best, fewest.getPressCount(), what);
+        assertTrue(optimal.contains(mask(board, fewest)), what);
+        List<Solution> all = board.solveAllOptimal();
+        Set<Long> found = new HashSet<>();
+        for (Solution solution : all) {
+            found.add(mask(board, solution));
+        }
+        assertEquals(all.size(), found.size(), what);
+        assertEquals(optimal, found, what);
+    }
+
+    /**
+     * Checks whether pressing a set of cells completes a board, without
+     * changing the board.
+     *
+     * @param board The board.
+     * @param presses The cells to press, one bit each.
+     * @return True if every tile ends up on.
+     */
+    private static boolean completes(GameBoard board, long presses) {
+        GameBoard copy = new GameBoard(board.kernel(), board.tiles());
+        int cols = board.getCols();
+        for (long rest = presses; rest != 0; rest &= rest - 1) {
+            int cell = Long.numberOfTrailingZeros(rest);
+            copy.flipTiles(cell / cols, cell % cols);
+        }
+        return copy.allTilesFlipped();
+    }
+
+    /**
+     * Packs a solution's presses into one bit per cell.
+     *
+     * @param board The board it solves.
+     * @param solution The solution.
+     * @return The presses.
+     */
+    private static long mask(GameBoard board, Solution solution) {
+        long presses = 0;
+        for (int[] press : solution.getPresses()) {
+            presses |= 1L << (press[0] * board.getCols() + press[1]);
+        }
+        return presses;
+    }
+}
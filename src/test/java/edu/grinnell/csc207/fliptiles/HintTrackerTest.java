@@ -0,0 +1,100 @@
+package edu.grinnell.csc207.fliptiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that hints stay optimal and lead to completion as moves are made,
+ * undone and redone.
+ */
+public class HintTrackerTest {
+    private static final FlipRule[] RULES = {
+        FlipRule.PLUS, FlipRule.BLOCK, FlipRule.KNIGHT, FlipRule.PLUS.toroidal()};
+
+    /**
+     * Plays random moves, undos and redos, checking after each that the hints
+     * still need as few presses as the solver finds.
+     */
+    @Test
+    public void staysOptimalThroughMovesUndoAndRedo() {
+        Random random = new Random(11);
+        for (FlipRule rule : RULES) {
+            for (int size = 2; size <= 5; size++) {
+                FlipKernel kernel = FlipKernel.of(rule, size, size + 1);
+                GameLogic game = new GameLogic(
+                        new GameBoard(kernel, new long[] {random.nextLong()}), 64);
+                String what = rule + " " + size + "x" + (size + 1);
+                game.getHint();
+                for (int step = 0; step < 60; step++) {
+                    int choice = random.nextInt(6);
+                    if (choice == 0) {
+                        game.undo();
+                    } else if (choice == 1) {
+                        game.redo();
+                    } else {
+                        game.makeMove(random.nextInt(size), random.nextInt(size + 1));
+                    }
+                    assertEquals(game.getOptimalMoveCount(), game.getPressesRemaining(), what);
+                }
+                followHints(game, what);
+            }
+        }
+    }
+
+    /**
+     * Checks that a fresh game's hints solve it in the optimal number of presses.
+     */
+    @Test
+    public void solvesFreshGames() {
+        for (int size = 1; size <= 7; size++) {
+            GameLogic game = new GameLogic(size);
+            assertEquals(game.getOptimalMoveCount(), game.getPressesRemaining());
+            followHints(game, "size " + size);
+        }
+    }
+
+    /**
+     * Checks that an unsolvable board gives no hints.
+     */
+    @Test
+    public void givesNoHintForUnsolvableBoards() {
+        GameBoard board = new GameBoard(FlipKernel.of(FlipRule.PLUS, 4, 4), new long[] {1});
+        if (board.solve() == null) {
+            GameLogic game = new GameLogic(board, 16);
+            assertNull(game.getHint());
+            assertEquals(-1, game.getPressesRemaining());
+        }
+        GameBoard block = new GameBoard(FlipKernel.of(FlipRule.BLOCK.toroidal(), 3, 3),
+                new long[] {1});
+        assertNull(block.solve());
+        assertNull(new GameLogic(block, 16).getHint());
+    }
+
+    /**
+     * Presses hints until the game is complete, checking that it takes the
+     * promised number of presses.
+     *
+     * @param game The game.
+     * @param what A description for failure messages.
+     */
+    private static void followHints(GameLogic game, String what) {
+        int remaining = game.getPressesRemaining();
+        if (remaining < 0) {
+            assertNull(game.getHint(), what);
+            return;
+        }
+        for (int i = 0; i < remaining; i++) {
+            int[] hint = game.getHint();
+            assertNotNull(hint, what);
+            assertTrue(game.makeMove(hint[0], hint[1]), what);
+        }
+        assertTrue(game.isGameComplete(), what);
+        assertNull(game.getHint(), what);
+        assertEquals(0, game.getPressesRemaining(), what);
+    }
+}
@@ -0,0 +1,258 @@
+package edu.grinnell.csc207.fliptiles;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks leaderboard rankings, and that logged leaderboards replay what was
+ * submitted, drop torn tails and refuse other damage.
+ */
+public class LeaderboardTest {
+    private static final FlipRule[] RULES = {FlipRule.PLUS, FlipRule.KNIGHT.toroidal(),
+        FlipRule.custom("hook", new int[][] {{0, 0}, {0, 1}, {1, 1}}).toroidal()};
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Checks that results rank by moves, then time, then who was first, and
+     * that only a player's best result counts.
+     */
+    @Test
+    public void ranksByMovesThenTime() {
+        Leaderboard.Board board = new Leaderboard().board(3, 3, FlipRule.PLUS);
+        assertEquals(1, board.submit("ann", 9, 5000));
+        assertEquals(1, board.submit("bob", 7, 9000));
+        assertEquals(3, board.submit("cat", 9, 6000));
+        assertEquals(4, board.submit("dan", 9, 6000));
+        assertEquals(3, board.submit("cat", 10, 1000));
+        assertEquals(2, board.submit("dan", 8, 9999));
+        assertEquals(List.of(new Leaderboard.Entry("bob", 7, 9000),
+                new Leaderboard.Entry("dan", 8, 9999), new Leaderboard.Entry("ann", 9, 5000),
+                new Leaderboard.Entry("cat", 9, 6000)), board.top(10));
+        assertEquals(List.of(new Leaderboard.Entry("bob", 7, 9000)), board.top(1));
+        assertEquals(4, board.size());
+        assertEquals(4, board.rank("cat"));
+        assertEquals(0, board.rank("eve"));
+        assertNull(board.best("eve"));
+        assertEquals(0, new Leaderboard().board(3, 3, FlipRule.BLOCK).size());
+        assertThrows(IllegalArgumentException.class, () -> board.submit("", 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> board.submit("x", -1, 1));
+    }
+
+    /**
+     * Submits random results to several boards, reopens the log, and checks
+     * that every board comes back the same.
+     *
+     * @throws IOException If the log cannot be used.
+     */
+    @Test
+    public void replaysAfterReopening() throws IOException {
+        Path file = dir.resolve("board.log");
+        Map<String, List<Leaderboard.Entry>> expected;
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            submitRandom(leaderboard, new Random(24), 2000);
+            expected = snapshot(leaderboard);
+        }
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            assertEquals(expected, snapshot(leaderboard));
+            submitRandom(leaderboard, new Random(240), 500);
+            expected = snapshot(leaderboard);
+        }
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            assertEquals(expected, snapshot(leaderboard));
+        }
+    }
+
+    /**
+     * Submits from many threads at once, and checks that the log holds
+     * exactly what the leaderboard ended up with.
+     *
+     * @throws Exception If the log cannot be used or a thread fails.
+     */
+    @Test
+    public void logsConcurrentSubmissions() throws Exception {
+        Path file = dir.resolve("board.log");
+        Map<String, List<Leaderboard.Entry>> expected;
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            List<Thread> threads = new ArrayList<>();
+            List<Throwable> failures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                Random random = new Random(t);
+                Thread thread = new Thread(() -> submitRandom(leaderboard, random, 1000));
+                thread.setUncaughtExceptionHandler((th, e) -> {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(List.of(), failures);
+            expected = snapshot(leaderboard);
+        }
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            assertEquals(expected, snapshot(leaderboard));
+        }
+    }
+
+    /**
+     * Cuts the log at every offset inside its last record, and checks that
+     * opening it drops just that record and trims the file.
+     *
+     * @throws IOException If the log cannot be used.
+     */
+    @Test
+    public void dropsATornTail() throws IOException {
+        Path file = dir.resolve("board.log");
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            submitRandom(leaderboard, new Random(5), 50);
+        }
+        List<Long> starts = recordStarts(file);
+        long last = starts.get(starts.size() - 1);
+        Map<String, List<Leaderboard.Entry>> expected = openCut(file, last, "whole");
+        for (long cut = last + 1; cut < Files.size(file); cut++) {
+            assertEquals(expected, openCut(file, cut, "cut"), "cut at " + cut);
+            assertEquals(last, Files.size(dir.resolve("cut")));
+        }
+    }
+
+    /**
+     * Checks that zeros after the last record are dropped, as left by a
+     * crash that extended the file without writing it.
+     *
+     * @throws IOException If the log cannot be used.
+     */
+    @Test
+    public void dropsAZeroedTail() throws IOException {
+        Path file = dir.resolve("board.log");
+        Map<String, List<Leaderboard.Entry>> expected;
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            submitRandom(leaderboard, new Random(6), 50);
+            expected = snapshot(leaderboard);
+        }
+        long size = Files.size(file);
+        Files.write(file, new byte[100], StandardOpenOption.APPEND);
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            assertEquals(expected, snapshot(leaderboard));
+        }
+        assertEquals(size, Files.size(file));
+    }
+
+    /**
+     * Damages a record before the last, and checks that opening the log
+     * fails and leaves the file as it was.
+     *
+     * @throws IOException If the log cannot be used.
+     */
+    @Test
+    public void refusesDamageBeforeTheTail() throws IOException {
+        Path file = dir.resolve("board.log");
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            submitRandom(leaderboard, new Random(7), 50);
+        }
+        List<Long> starts = recordStarts(file);
+        int record = starts.get(starts.size() / 2).intValue();
+        for (int at : new int[] {0, 3, 5, 9}) {
+            byte[] damaged = Files.readAllBytes(file);
+            damaged[record + at] ^= 0x20;
+            Files.write(file, damaged);
+            assertThrows(IOException.class, () -> Leaderboard.open(file), "byte " + at);
+            assertArrayEquals(damaged, Files.readAllBytes(file));
+            damaged[record + at] ^= 0x20;
+            Files.write(file, damaged);
+        }
+    }
+
+    /**
+     * Submits random results to a few boards.
+     *
+     * @param leaderboard The leaderboard.
+     * @param random Where to get results.
+     * @param count The number of submissions.
+     */
+    private static void submitRandom(Leaderboard leaderboard, Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            FlipRule rule = RULES[random.nextInt(RULES.length)];
+            int size = 3 + random.nextInt(2);
+            leaderboard.board(size, size, rule).submit("p" + random.nextInt(60),
+                    random.nextInt(30), random.nextInt(100000));
+        }
+    }
+
+    /**
+     * Lists every result on the boards submitRandom() uses.
+     *
+     * @param leaderboard The leaderboard.
+     * @return The results on each board, best first.
+     */
+    private static Map<String, List<Leaderboard.Entry>> snapshot(Leaderboard leaderboard) {
+        Map<String, List<Leaderboard.Entry>> boards = new HashMap<>();
+        for (FlipRule rule : RULES) {
+            for (int size = 3; size < 5; size++) {
+                boards.put(rule.name() + " " + size,
+                        leaderboard.board(size, size, rule).top(Integer.MAX_VALUE));
+            }
+        }
+        return boards;
+    }
+
+    /**
+     * Copies the log, cuts the copy, opens it and lists its results.
+     *
+     * @param file The log.
+     * @param length The length to cut the copy to.
+     * @param name The copy's name.
+     * @return The results in the cut copy.
+     * @throws IOException If the log cannot be used.
+     */
+    private Map<String, List<Leaderboard.Entry>> openCut(Path file, long length, String name)
+            throws IOException {
+        Path copy = dir.resolve(name);
+        Files.deleteIfExists(copy);
+        Files.copy(file, copy);
+        try (FileChannel channel = FileChannel.open(copy, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        }
+        try (Leaderboard leaderboard = Leaderboard.open(copy)) {
+            return snapshot(leaderboard);
+        }
+    }
+
+    /**
+     * Finds where each record in a log starts.
+     *
+     * @param file The log.
+     * @return The offset of each record.
+     * @throws IOException If the log cannot be read.
+     */
+    private static List<Long> recordStarts(Path file) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        List<Long> starts = new ArrayList<>();
+        while (bytes.hasRemaining()) {
+            starts.add((long) bytes.position());
+            int length = bytes.getInt();
+            bytes.position(bytes.position() + Integer.BYTES + length);
+        }
+        return starts;
+    }
+}
@@ -0,0 +1,280 @@
+package edu.grinnell.csc207.fliptiles;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that move logs replay what was recorded and recover from torn or
+ * corrupt tails.
+ */
+public class MoveLogTest {
+    private static final int PRESSES = 300;
+
+    @TempDir
+    Path dir;
+
+    /**
+     * The states of a logged game after each press, and what each press did.
+     */
+    private static final class History {
+        final List<long[]> tiles = new ArrayList<>();
+        final List<Integer> moveCounts = new ArrayList<>();
+        final List<String> presses = new ArrayList<>();
+        final List<Long> ends = new ArrayList<>();
+    }
+
+    /**
+     * Checks that replaying a log rebuilds the game and reports every press.
+     *
+     * @throws IOException If the log cannot be written.
+     */
+    @Test
+    public void replaysEveryPress() throws IOException {
+        Path file = dir.resolve("game.log");
+        History history = play(file, 100);
+        List<String> seen = new ArrayList<>();
+        GameLogic game = MoveLog.replay(file, (kind, row, col, nanos) ->
+                seen.add(kind + " " + row + " " + col));
+        assertEquals(history.presses, seen);
+        assertState(history, PRESSES, game);
+        assertNull(game.getMoveLog());
+    }
+
+    /**
+     * Checks that a log forced on every press replays the same way.
+     *
+     * @throws IOException If the log cannot be written.
+     */
+    @Test
+    public void forcesEveryPressWithZeroInterval() throws IOException {
+        Path file = dir.resolve("game.log");
+        History history = play(file, 0);
+        assertState(history, PRESSES, MoveLog.replay(file, null));
+    }
+
+    /**
+     * Cuts the file partway through the last record, and checks that
+     * resuming drops just that record, trims the file, and carries on
+     * logging from there.
+     *
+     * @throws IOException If the log cannot be written.
+     */
+    @Test
+    public void recoversFromTornTail() throws IOException {
+        Path file = dir.resolve("game.log");
+        History history = play(file, 100);
+        long last = history.ends.get(PRESSES - 1);
+        long good = history.ends.get(PRESSES - 2);
+        for (long cut = good + 1; cut < last; cut++) {
+            Path torn = dir.resolve("torn-" + cut + ".log");
+            Files.copy(file, torn);
+            try (FileChannel channel = FileChannel.open(torn, StandardOpenOption.WRITE)) {
+                channel.truncate(cut);
+            }
+            GameLogic game = MoveLog.resume(torn, 0);
+            assertState(history, PRESSES - 1, game);
+            assertEquals(PRESSES - 1, game.getMoveLog().size());
+            game.getMoveLog().close();
+            assertEquals(good, Files.size(torn));
+        }
+        Path torn = dir.resolve("torn.log");
+        Files.copy(file, torn);
+        try (FileChannel channel = FileChannel.open(torn, StandardOpenOption.WRITE)) {
+            channel.truncate(good + 1);
+        }
+        GameLogic game = MoveLog.resume(torn);
+        game.makeMove(1, 2);
+        game.getMoveLog().close();
+        assertEquals(history.moveCounts.get(PRESSES - 2) + 1, game.getMoveCount());
+        GameLogic replayed = MoveLog.replay(torn, null);
+        assertEquals(game.getMoveCount(), replayed.getMoveCount());
+        assertArrayEquals(game.board().tiles(), replayed.board().tiles());
+    }
+
+    /**
+     * Checks that junk after the last record is ignored and dropped.
+     *
+     * @throws IOException If the log cannot be written.
+     */
+    @Test
+    public void dropsJunkAfterTheLastRecord() throws IOException {
+        Path file = dir.resolve("game.log");
+        History history = play(file, 100);
+        byte[] junk = new byte[40];
+        Arrays.fill(junk, (byte) 0xFF);
+        Files.write(file, junk, StandardOpenOption.APPEND);
+        GameLogic game = MoveLog.resume(file);
+        assertState(history, PRESSES, game);
+        game.getMoveLog().close();
+        assertEquals(history.ends.get(PRESSES - 1), Files.size(file));
+    }
+
+    /**
+     * Damages one record in the middle and checks that replay stops just
+     * before it.
+     *
+     * @throws IOException If the log cannot be written.
+     */
+    @Test
+    public void stopsAtACorruptRecord() throws IOException {
+        Path file = dir.resolve("game.log");
+        History history = play(file, 100);
+        int damaged = PRESSES / 2;
+        long offset = history.ends.get(damaged - 1);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, offset);
+            b.put(0, (byte) (b.get(0) ^ 0x04)).rewind();
+            channel.write(b, offset);
+        }
+        assertState(history, damaged, MoveLog.replay(file, null));
+    }
+
+    /**
+     * Checks that a damaged header is rejected.
+     *
+     * @throws IOException If the log cannot be written.
+     */
+    @Test
+    public void rejectsDamagedHeaders() throws IOException {
+        Path file = dir.resolve("game.log");
+        play(file, 100);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[20] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> MoveLog.replay(file, null));
+        Files.write(file, new byte[] {1, 2, 3});
+        assertThrows(IOException.class, () -> MoveLog.resume(file));
+    }
+
+    /**
+     * Plays random moves, undos and redos on a logged game, recording the
+     * state after each press and where each record ends. One move is made
+     * before the log starts, so the log's first undo may reach back past it.
+     *
+     * @param file The log to write.
+     * @param forceIntervalMillis How often to force the log.
+     * @return What happened.
+     * @throws IOException If the log cannot be written.
+     */
+    private static History play(Path file, long forceIntervalMillis) throws IOException {
+        Random random = new Random(22);
+        GameLogic game = new GameLogic(5, 7, FlipRule.KNIGHT.toroidal());
+        game.makeMove(0, 0);
+        History history = new History();
+        try (MoveLog log = MoveLog.create(file, game, forceIntervalMillis)) {
+            game.setMoveLog(log);
+            long end = headerLength(file);
+            while (history.presses.size() < PRESSES) {
+                long[] before = game.board().tiles().clone();
+                int choice = random.nextInt(5);
+                String kind;
+                if (choice == 0 && game.undo()) {
+                    kind = "UNDO";
+                } else if (choice == 1 && game.redo()) {
+                    kind = "REDO";
+                } else {
+                    game.makeMove(random.nextInt(5), random.nextInt(7));
+                    kind = "MOVE";
+                }
+                int[] cell = changedCell(game, before);
+                history.presses.add(kind + " " + cell[0] + " " + cell[1]);
+                history.tiles.add(game.board().tiles().clone());
+                history.moveCounts.add(game.getMoveCount());
+                end += recordLength(file, end);
+                history.ends.add(end);
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Reads the length of a log's header.
+     *
+     * @param file The log.
+     * @return The offset of the first record.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long headerLength(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer b = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(b, 8);
+            return b.getInt(0);
+        }
+    }
+
+    /**
+     * Finds which cell's press turns one set of tiles into the game's
+     * current tiles.
+     *
+     * @param game The game.
+     * @param before The earlier tiles.
+     * @return The {row, col} of the press.
+     */
+    private static int[] changedCell(GameLogic game, long[] before) {
+        GameBoard board = game.board();
+        for (int row = 0; row < board.getRows(); row++) {
+            for (int col = 0; col < board.getCols(); col++) {
+                GameBoard copy = new GameBoard(board.kernel(), before);
+                copy.flipTiles(row, col);
+                if (Arrays.equals(copy.tiles(), board.tiles())) {
+                    return new int[] {row, col};
+                }
+            }
+        }
+        throw new AssertionError("No single press explains the change.");
+    }
+
+    /**
+     * Measures the record that starts at an offset: two varints and a CRC.
+     *
+     * @param file The log.
+     * @param offset Where the record starts.
+     * @return The record's length in bytes.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long recordLength(Path file, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer b = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(b, offset);
+            int at = 0;
+            for (int varint = 0; varint < 2; varint++) {
+                while (b.get(at++) < 0) {
+                    continue;
+                }
+            }
+            return at + Integer.BYTES;
+        }
+    }
+
+    /**
+     * Checks that a game matches the recorded state after a number of presses.
+     *
+     * @param history The recorded states.
+     * @param presses The number of presses.
+     * @param game The game.
+     */
+    private static void assertState(History history, int presses, GameLogic game) {
+        assertArrayEquals(history.tiles.get(presses - 1), game.board().tiles(),
+                "after " + presses + " presses");
+        assertEquals(history.moveCounts.get(presses - 1), game.getMoveCount(),
+                "after " + presses + " presses");
+    }
+}
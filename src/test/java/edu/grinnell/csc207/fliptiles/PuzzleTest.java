@@ -0,0 +1,51 @@
+package edu.grinnell.csc207.fliptiles;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that puzzles read back exactly what they write, whatever their rule.
+ */
+public class PuzzleTest {
+    private static final FlipRule ODD = FlipRule.custom("odd {rule};1,2",
+            new int[][] {{0, 0}, {-1, 2}, {3, -1}});
+
+    /**
+     * Writes and reads puzzles with built-in and custom rules, with and
+     * without wrapping.
+     */
+    @Test
+    public void roundTripsEveryRule() {
+        FlipRule[] rules = {FlipRule.PLUS, FlipRule.KNIGHT.toroidal(), ODD, ODD.toroidal(),
+            FlipRule.custom("mine", new int[][] {{0, 1}, {0, 0}, {1, 0}, {0, -1}, {-1, 0}})};
+        for (FlipRule rule : rules) {
+            FlipKernel kernel = FlipKernel.of(rule, 3, 7);
+            Puzzle puzzle = new Puzzle(kernel, new long[] {0x15A5A3L}, 4);
+            Puzzle copy = Puzzle.parse(puzzle.toString());
+            assertEquals(rule, copy.getRule(), rule.name());
+            assertEquals(puzzle.toString(), copy.toString(), rule.name());
+            assertEquals(3, copy.getRows());
+            assertEquals(7, copy.getCols());
+            assertEquals(4, copy.getOptimalPressCount());
+            assertArrayEquals(puzzle.toBoard().tiles(), copy.toBoard().tiles(), rule.name());
+        }
+        Puzzle odd = Puzzle.parse(new Puzzle(FlipKernel.of(ODD.toroidal(), 2, 2),
+                new long[] {1}, 1).toString());
+        assertEquals(ODD.name() + "-torus", odd.getRule().name());
+    }
+
+    /**
+     * Checks that malformed rules are rejected.
+     */
+    @Test
+    public void rejectsMalformedRules() {
+        for (String rule : new String[] {"hex", "x{0,0", "x{0,0}-wrap", "x{0;1}", "x{a,0}",
+            "x{0,0;0,0}"}) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> Puzzle.parse("1 1 " + rule + " 1 0"), rule);
+        }
+    }
+}
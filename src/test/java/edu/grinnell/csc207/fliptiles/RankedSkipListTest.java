@@ -0,0 +1,75 @@
+package edu.grinnell.csc207.fliptiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks ranked skip lists against a sorted array list.
+ */
+public class RankedSkipListTest {
+    /**
+     * Adds, removes and ranks random elements, checking every answer
+     * against a sorted list.
+     */
+    @Test
+    public void matchesASortedList() {
+        Random random = new Random(24);
+        RankedSkipList<Integer> list = new RankedSkipList<>(Comparator.naturalOrder());
+        List<Integer> expected = new ArrayList<>();
+        for (int step = 0; step < 20000; step++) {
+            int value = random.nextInt(2000);
+            int at = Collections.binarySearch(expected, value);
+            switch (random.nextInt(3)) {
+                case 0:
+                    if (at < 0) {
+                        expected.add(-at - 1, value);
+                        assertEquals(-at, list.add(value), "add " + value);
+                    }
+                    break;
+                case 1:
+                    assertEquals(at >= 0, list.remove(value), "remove " + value);
+                    if (at >= 0) {
+                        expected.remove(at);
+                    }
+                    break;
+                default:
+                    assertEquals(at >= 0 ? at + 1 : 0, list.rank(value), "rank " + value);
+                    break;
+            }
+            assertEquals(expected.size(), list.size());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i + 1, list.rank(expected.get(i)));
+        }
+        assertEquals(expected, list.first(Integer.MAX_VALUE));
+        assertEquals(expected.subList(0, 10), list.first(10));
+        assertEquals(List.of(), list.first(0));
+    }
+
+    /**
+     * Empties a list and checks that it can be refilled.
+     */
+    @Test
+    public void refillsAfterEmptying() {
+        RankedSkipList<Integer> list = new RankedSkipList<>(Comparator.reverseOrder());
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 500; i++) {
+                list.add(i);
+            }
+            assertEquals(500, list.rank(0));
+            assertEquals(1, list.rank(499));
+            for (int i = 0; i < 500; i++) {
+                list.remove(i);
+            }
+            assertEquals(0, list.size());
+            assertEquals(0, list.rank(7));
+            assertEquals(List.of(), list.first(5));
+        }
+    }
+}
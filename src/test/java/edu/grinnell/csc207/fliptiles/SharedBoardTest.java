@@ -0,0 +1,78 @@
+package edu.grinnell.csc207.fliptiles;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a shared board pressed from many threads ends up as if the
+ * same presses had been made one after another.
+ */
+public class SharedBoardTest {
+    private static final int PLAYERS = 8;
+    private static final int PRESSES = 20000;
+
+    /**
+     * Has every player press random tiles, some of them off the board, at
+     * once, then replays the valid presses on a plain board and compares the
+     * tiles and each player's move count.
+     *
+     * @throws Exception If a player fails.
+     */
+    @Test
+    public void matchesASerialReplay() throws Exception {
+        FlipRule rule = FlipRule.KNIGHT.toroidal();
+        SharedBoard shared = new SharedBoard(13, 11, rule, PLAYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(PLAYERS);
+        List<Future<List<int[]>>> players = new ArrayList<>();
+        for (int p = 0; p < PLAYERS; p++) {
+            int player = p;
+            players.add(pool.submit(() -> {
+                Random random = new Random(player);
+                List<int[]> pressed = new ArrayList<>();
+                start.await();
+                for (int i = 0; i < PRESSES; i++) {
+                    int row = random.nextInt(14);
+                    int col = random.nextInt(12);
+                    boolean valid = row < 13 && col < 11;
+                    assertEquals(valid, shared.press(player, row, col));
+                    if (valid) {
+                        pressed.add(new int[] {row, col});
+                    }
+                }
+                return pressed;
+            }));
+        }
+        start.countDown();
+        GameBoard replay = new GameBoard(13, 11, rule);
+        long total = 0;
+        for (int p = 0; p < PLAYERS; p++) {
+            List<int[]> pressed = players.get(p).get();
+            for (int[] press : pressed) {
+                replay.flipTiles(press[0], press[1]);
+            }
+            assertEquals(pressed.size(), shared.getMoveCount(p), "player " + p);
+            total += pressed.size();
+        }
+        pool.shutdown();
+        assertEquals(total, shared.getTotalMoveCount());
+        assertArrayEquals(replay.tiles(), shared.snapshot());
+        for (int row = 0; row < 13; row++) {
+            for (int col = 0; col < 11; col++) {
+                assertEquals(replay.isFlipped(row, col), shared.isFlipped(row, col));
+            }
+        }
+        assertEquals(replay.allTilesFlipped(), shared.isComplete());
+        assertFalse(shared.press(PLAYERS, 0, 0));
+    }
+}
@@ -0,0 +1,139 @@
+package edu.grinnell.csc207.fliptiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the solver cache's hit and miss counts, its LRU eviction, and that
+ * concurrent misses on one shape build it once.
+ */
+public class SolverCacheTest {
+    private static final FlipKernel A = FlipKernel.of(FlipRule.PLUS, 4, 4);
+    private static final FlipKernel B = FlipKernel.of(FlipRule.BLOCK, 5, 3);
+    private static final FlipKernel C = FlipKernel.of(FlipRule.KNIGHT, 6, 2);
+
+    /**
+     * Checks that the first lookup of a shape misses and later ones hit the
+     * same operator.
+     */
+    @Test
+    public void countsHitsAndMisses() {
+        SolverCache cache = new SolverCache(SolverCache.DEFAULT_MAX_BYTES);
+        SolutionOperator first = cache.operatorFor(A);
+        assertSame(first, cache.operatorFor(A));
+        assertSame(first, cache.operatorFor(FlipKernel.of(FlipRule.PLUS, 4, 4)));
+        cache.operatorFor(B);
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(first.sizeInBytes() + cache.operatorFor(B).sizeInBytes(),
+                cache.getBytesUsed());
+    }
+
+    /**
+     * Checks that going over budget evicts the least recently used operator.
+     */
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        SolverCache sizes = new SolverCache(SolverCache.DEFAULT_MAX_BYTES);
+        long total = sizes.operatorFor(A).sizeInBytes() + sizes.operatorFor(B).sizeInBytes()
+                + sizes.operatorFor(C).sizeInBytes();
+        SolverCache cache = new SolverCache(total - 1);
+        cache.operatorFor(A);
+        cache.operatorFor(B);
+        cache.operatorFor(A);
+        cache.operatorFor(C);
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.getBytesUsed() <= total - 1);
+        long misses = cache.getMisses();
+        cache.operatorFor(A);
+        cache.operatorFor(C);
+        assertEquals(misses, cache.getMisses());
+        cache.operatorFor(B);
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    /**
+     * Checks that operators larger than the whole budget are built but not kept.
+     */
+    @Test
+    public void doesNotKeepOversizedOperators() {
+        SolverCache cache = new SolverCache(1);
+        cache.operatorFor(A);
+        cache.operatorFor(A);
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getBytesUsed());
+    }
+
+    /**
+     * Checks that threads missing on the same shape at once share one build.
+     *
+     * @throws Exception If a thread fails.
+     */
+    @Test
+    public void buildsEachShapeOnce() throws Exception {
+        SolverCache cache = new SolverCache(SolverCache.DEFAULT_MAX_BYTES);
+        FlipKernel big = FlipKernel.of(FlipRule.PLUS, 40, 40);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<SolutionOperator>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(pool.submit(() -> {
+                go.await();
+                return cache.operatorFor(big);
+            }));
+        }
+        go.countDown();
+        SolutionOperator operator = results.get(0).get();
+        for (Future<SolutionOperator> result : results) {
+            assertSame(operator, result.get());
+        }
+        pool.shutdown();
+        assertEquals(1, cache.getMisses());
+        assertEquals(7, cache.getHits());
+    }
+
+    /**
+     * Races threads on a small shape over and over, clearing the cache
+     * between rounds, so some threads look up just as the build finishes.
+     * Every round must still build once.
+     *
+     * @throws Exception If a thread fails.
+     */
+    @Test
+    public void buildsOnceWhenLookupsRaceTheStore() throws Exception {
+        SolverCache cache = new SolverCache(SolverCache.DEFAULT_MAX_BYTES);
+        FlipKernel small = FlipKernel.of(FlipRule.BLOCK, 9, 9);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 300; round++) {
+                cache.clear();
+                assertEquals(0, cache.getHits() + cache.getMisses() + cache.getEvictions());
+                CountDownLatch go = new CountDownLatch(1);
+                List<Future<SolutionOperator>> results = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    results.add(pool.submit(() -> {
+                        go.await();
+                        return cache.operatorFor(small);
+                    }));
+                }
+                go.countDown();
+                for (Future<SolutionOperator> result : results) {
+                    assertSame(results.get(0).get(), result.get());
+                }
+                assertEquals(1, cache.getMisses(), "round " + round);
+                assertEquals(7, cache.getHits(), "round " + round);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package edu.grinnell.csc207.fliptiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the transposition table's replacement policies, and that the puzzle
+ * generator, which remembers grades in one, still grades and deduplicates
+ * correctly.
+ */
+public class TranspositionTableTest {
+    /**
+     * Checks that the newest of two colliding entries wins under the
+     * always-replace policy.
+     */
+    @Test
+    public void alwaysReplaces() {
+        long[] keys = colliding();
+        TranspositionTable table = new TranspositionTable(2,
+                TranspositionTable.Policy.ALWAYS_REPLACE);
+        assertTrue(table.put(keys[0], 10, 5));
+        assertTrue(table.put(keys[1], 11, 0));
+        assertFalse(table.contains(keys[0]));
+        assertEquals(11, table.get(keys[1], -1));
+        assertEquals(1, table.size());
+    }
+
+    /**
+     * Checks that the deeper of two colliding entries wins under the
+     * depth-preferred policy, with ties going to the newest, and that an
+     * entry already present is updated whatever its depth.
+     */
+    @Test
+    public void prefersDepth() {
+        long[] keys = colliding();
+        TranspositionTable table = new TranspositionTable(2,
+                TranspositionTable.Policy.DEPTH_PREFERRED);
+        assertTrue(table.put(keys[0], 10, 5));
+        assertFalse(table.put(keys[1], 11, 4));
+        assertEquals(10, table.get(keys[0], -1));
+        assertEquals(-1, table.get(keys[1], -1));
+        assertTrue(table.put(keys[1], 12, 5));
+        assertEquals(12, table.get(keys[1], -1));
+        assertFalse(table.contains(keys[0]));
+        assertTrue(table.put(keys[1], 13, 0));
+        assertEquals(0, table.depth(keys[1]));
+        assertEquals(1, table.size());
+    }
+
+    /**
+     * Checks that under the two-tier policy a deeper entry takes the home
+     * slot and moves the old one to the other slot, while a shallower one
+     * goes to the other slot directly. A two-slot table is a single pair,
+     * so every key collides.
+     */
+    @Test
+    public void keepsTwoTiers() {
+        TranspositionTable table = new TranspositionTable(2, TranspositionTable.Policy.TWO_TIER);
+        assertTrue(table.put(1, 10, 5));
+        assertTrue(table.put(2, 20, 7));
+        assertEquals(10, table.get(1, -1));
+        assertEquals(20, table.get(2, -1));
+        assertEquals(2, table.size());
+
+        assertTrue(table.put(3, 30, 3));
+        assertEquals(-1, table.get(1, -1));
+        assertEquals(20, table.get(2, -1));
+        assertEquals(30, table.get(3, -1));
+
+        assertTrue(table.put(4, 40, 7));
+        assertEquals(40, table.get(4, -1));
+        assertEquals(20, table.get(2, -1));
+        assertFalse(table.contains(3));
+        assertEquals(7, table.depth(2));
+        assertEquals(2, table.size());
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertFalse(table.contains(4));
+        assertTrue(table.put(5, 50, 0));
+        assertTrue(table.put(6, 60, 0));
+        assertEquals(50, table.get(5, -1));
+        assertEquals(2, table.size());
+    }
+
+    /**
+     * Checks that depths the table cannot store are rejected.
+     */
+    @Test
+    public void rejectsBadDepths() {
+        TranspositionTable table = new TranspositionTable(8, TranspositionTable.Policy.TWO_TIER);
+        assertThrows(IllegalArgumentException.class, () -> table.put(1, 0, -1));
+        assertThrows(IllegalArgumentException.class, () -> table.put(1, 0, Integer.MAX_VALUE));
+        assertTrue(table.put(1, 0, Integer.MAX_VALUE - 1));
+        assertEquals(Integer.MAX_VALUE - 1, table.depth(1));
+        assertTrue(table.put(2, 0, 0));
+        assertEquals(2, table.size());
+    }
+
+    /**
+     * Generates puzzles on a small board, where many candidates repeat and
+     * are graded from the table, and checks that every grade matches the
+     * optimal solver, that no board repeats, and that the output depends
+     * only on the seed.
+     */
+    @Test
+    public void generatorGradesRepeatedBoards() {
+        int[] limits = {3, 6, 9};
+        ForkJoinPool pool = new ForkJoinPool(3);
+        List<List<Puzzle>> bands = new PuzzleGenerator(4, 4, FlipRule.PLUS, 7, pool)
+                .generate(limits, 30);
+        pool.shutdown();
+        Set<String> seen = new HashSet<>();
+        for (int b = 0; b < limits.length; b++) {
+            assertEquals(30, bands.get(b).size());
+            for (Puzzle puzzle : bands.get(b)) {
+                int optimal = GameSolver.solveOptimal(puzzle.toBoard()).getPressCount();
+                assertEquals(optimal, puzzle.getOptimalPressCount(), puzzle.toString());
+                assertTrue(optimal > (b == 0 ? 0 : limits[b - 1]) && optimal <= limits[b]);
+                assertTrue(seen.add(puzzle.toString()), "repeated " + puzzle);
+            }
+        }
+        assertEquals(bands.toString(), new PuzzleGenerator(4, 4, FlipRule.PLUS, 7,
+                ForkJoinPool.commonPool()).generate(limits, 30).toString());
+    }
+
+    /**
+     * Finds two keys that share a slot in a two-slot table.
+     *
+     * @return The keys.
+     */
+    private static long[] colliding() {
+        for (long key = 2; ; key++) {
+            TranspositionTable table = new TranspositionTable(2,
+                    TranspositionTable.Policy.ALWAYS_REPLACE);
+            table.put(1, 0, 0);
+            table.put(key, 0, 0);
+            if (!table.contains(1)) {
+                return new long[] {1, key};
+            }
+        }
+    }
+}
@@ -0,0 +1,575 @@
+package edu.grinnell.csc207.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks each specialized matrix against MatrixV0 by applying the same
+ * random operations to both, including ones that should fail, and
+ * comparing what comes out.
+ */
+public class MatrixDifferentialTest {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of random operations per run.
+   */
+  private static final int STEPS = 4000;
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Compare BitMatrix with MatrixV0.
+   */
+  @Test
+  public void bitMatrixMatchesV0() {
+    Random random = new Random(1);
+    check(new MatrixV0<>(70, 3, false), new BitMatrix(70, 3), random::nextBoolean,
+        Boolean[]::new, random, "BitMatrix");
+  } // bitMatrixMatchesV0()
+
+  /**
+   * Compare IntMatrix with MatrixV0.
+   */
+  @Test
+  public void intMatrixMatchesV0() {
+    Random random = new Random(2);
+    check(new MatrixV0<>(4, 5, 7), new IntMatrix(4, 5, 7), () -> random.nextInt(10),
+        Integer[]::new, random, "IntMatrix");
+  } // intMatrixMatchesV0()
+
+  /**
+   * Compare LongMatrix with MatrixV0.
+   */
+  @Test
+  public void longMatrixMatchesV0() {
+    Random random = new Random(3);
+    check(new MatrixV0<>(5, 4, 0L), new LongMatrix(5, 4), random::nextLong,
+        Long[]::new, random, "LongMatrix");
+  } // longMatrixMatchesV0()
+
+  /**
+   * Compare a MatrixV0 whose capacity is grown and trimmed at random with
+   * one that is left alone.
+   */
+  @Test
+  public void capacityChangesAreInvisible() {
+    Random random = new Random(4);
+    Random sizes = new Random(5);
+    check(new MatrixV0<>(3, 3, ""), new MatrixV0<>(3, 3, ""), () -> "v" + random.nextInt(5),
+        String[]::new, random, "MatrixV0", (m) -> {
+          MatrixV0<String> matrix = (MatrixV0<String>) m;
+          switch (sizes.nextInt(4)) {
+            case 0:
+              matrix.ensureCapacity(m.height() + sizes.nextInt(4), m.width() + sizes.nextInt(4));
+              break;
+            case 1:
+              matrix.trimToSize();
+              break;
+            default:
+              break;
+          } // switch
+        });
+  } // capacityChangesAreInvisible()
+
+  /**
+   * Compare SparseMatrix with MatrixV0, storing the default value often
+   * enough that cells are dropped as well as added, and checking that
+   * only cells that differ from the default are stored.
+   */
+  @Test
+  public void sparseMatrixMatchesV0() {
+    Random random = new Random(6);
+    check(new MatrixV0<>(6, 4, "."), new SparseMatrix<>(6, 4, "."),
+        () -> random.nextBoolean() ? "." : "v" + random.nextInt(3), String[]::new, random,
+        "SparseMatrix", (m) -> {
+          int populated = 0;
+          for (int row = 0; row < m.height(); row++) {
+            for (int col = 0; col < m.width(); col++) {
+              if (!".".equals(m.get(row, col))) {
+                populated++;
+              } // if
+            } // for
+          } // for
+          assertEquals(populated, ((SparseMatrix<String>) m).populated());
+        });
+  } // sparseMatrixMatchesV0()
+
+  /**
+   * Insert and delete rows and columns of a SparseMatrix over and over,
+   * alongside MatrixV0, checking that the contents still match and that
+   * the ids of deleted rows and columns are reused rather than piling up.
+   *
+   * @throws Exception
+   *   If the id arrays cannot be inspected.
+   */
+  @Test
+  public void sparseMatrixReusesIds() throws Exception {
+    Random random = new Random(9);
+    Matrix<String> expected = new MatrixV0<>(5, 4, ".");
+    SparseMatrix<String> actual = new SparseMatrix<>(5, 4, ".");
+    for (int cycle = 0; cycle < 20000; cycle++) {
+      String where = "SparseMatrix cycle " + cycle;
+      String[] row = new String[expected.width()];
+      for (int i = 0; i < row.length; i++) {
+        row[i] = random.nextBoolean() ? "." : "r" + cycle;
+      } // for
+      int at = random.nextInt(expected.height() + 1);
+      expected.insertRow(at, row);
+      actual.insertRow(at, row);
+      String[] col = new String[expected.height()];
+      for (int i = 0; i < col.length; i++) {
+        col[i] = random.nextBoolean() ? "." : "c" + cycle;
+      } // for
+      at = random.nextInt(expected.width() + 1);
+      expected.insertCol(at, col);
+      actual.insertCol(at, col);
+      at = random.nextInt(expected.height());
+      expected.deleteRow(at);
+      actual.deleteRow(at);
+      at = random.nextInt(expected.width());
+      expected.deleteCol(at);
+      actual.deleteCol(at);
+      if (cycle % 500 == 0) {
+        assertSame(expected, actual, where);
+      } // if
+    } // for
+    assertSame(expected, actual, "SparseMatrix after the cycles");
+    for (String ids : new String[] {"rowOf", "colOf"}) {
+      Field field = SparseMatrix.class.getDeclaredField(ids);
+      field.setAccessible(true);
+      assertTrue(((int[]) field.get(actual)).length <= 8, ids + " grew");
+    } // for
+  } // sparseMatrixReusesIds()
+
+  /**
+   * Compare CopyOnWriteMatrix with MatrixV0.
+   */
+  @Test
+  public void copyOnWriteMatrixMatchesV0() {
+    Random random = new Random(7);
+    check(new MatrixV0<>(5, 6, 0), new CopyOnWriteMatrix<>(5, 6, 0),
+        () -> random.nextInt(10), Integer[]::new, random, "CopyOnWriteMatrix");
+  } // copyOnWriteMatrixMatchesV0()
+
+  /**
+   * Change a family of CopyOnWriteMatrix clones at random, alongside
+   * MatrixV0 clones, checking that a change to one never shows up in
+   * another.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void copyOnWriteClonesAreIndependent() {
+    Random random = new Random(8);
+    List<Matrix<Integer>> expected = new ArrayList<>();
+    List<Matrix<Integer>> actual = new ArrayList<>();
+    expected.add(new MatrixV0<>(4, 4, 0));
+    actual.add(new CopyOnWriteMatrix<>(4, 4, 0));
+    for (int step = 0; step < STEPS; step++) {
+      String where = "CopyOnWriteMatrix clones step " + step;
+      int i = random.nextInt(expected.size());
+      if (expected.size() < 8 && random.nextInt(10) == 0) {
+        expected.add(expected.get(i).clone());
+        actual.add(actual.get(i).clone());
+      } else {
+        Op<Integer> op = randomOp(expected.get(i), () -> random.nextInt(10),
+            Integer[]::new, random, true);
+        assertEquals(outcome(op, expected.get(i)), outcome(op, actual.get(i)), where);
+      } // if/else
+      for (int j = 0; j < expected.size(); j++) {
+        assertSame(expected.get(j), actual.get(j), where + " clone " + j);
+      } // for
+    } // for
+  } // copyOnWriteClonesAreIndependent()
+
+  /**
+   * Compare MappedMatrix with MatrixV0 for packed booleans, and check
+   * that clones and reopened files hold the same cells.
+   *
+   * @param dir
+   *   A directory for the matrix files.
+   *
+   * @throws IOException
+   *   If the files cannot be written.
+   */
+  @Test
+  public void mappedBooleanMatrixMatchesV0(@TempDir Path dir) throws IOException {
+    Random random = new Random(9);
+    checkMapped(new MatrixV0<>(70, 5, true), dir.resolve("booleans.bin"),
+        MappedMatrix.BOOLEANS, random::nextBoolean, Boolean[]::new, random);
+  } // mappedBooleanMatrixMatchesV0(Path)
+
+  /**
+   * Compare MappedMatrix with MatrixV0 for ints.
+   *
+   * @param dir
+   *   A directory for the matrix files.
+   *
+   * @throws IOException
+   *   If the files cannot be written.
+   */
+  @Test
+  public void mappedIntMatrixMatchesV0(@TempDir Path dir) throws IOException {
+    Random random = new Random(10);
+    checkMapped(new MatrixV0<>(7, 6, -1), dir.resolve("ints.bin"), MappedMatrix.INTEGERS,
+        random::nextInt, Integer[]::new, random);
+  } // mappedIntMatrixMatchesV0(Path)
+
+  /**
+   * Check that opening a damaged matrix file fails, and that closing a
+   * clone deletes its file.
+   *
+   * @param dir
+   *   A directory for the matrix files.
+   *
+   * @throws IOException
+   *   If the files cannot be written.
+   */
+  @Test
+  public void mappedMatrixRejectsDamagedFiles(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("matrix.bin");
+    Path copyFile;
+    try (MappedMatrix<Integer> matrix = MappedMatrix.create(file, 5, 3, MappedMatrix.INTEGERS,
+        7)) {
+      try (MappedMatrix<Integer> copy = matrix.clone()) {
+        copyFile = copy.file();
+        assertTrue(Files.exists(copyFile));
+      } // try
+      assertFalse(Files.exists(copyFile), "clone's file left behind");
+    } // try
+    byte[] good = Files.readAllBytes(file);
+
+    Files.write(file, Arrays.copyOf(good, good.length - 4));
+    assertThrows(IOException.class, () -> MappedMatrix.open(file, MappedMatrix.INTEGERS));
+    Files.write(file, Arrays.copyOf(good, good.length + 8));
+    assertThrows(IOException.class, () -> MappedMatrix.open(file, MappedMatrix.INTEGERS));
+    Files.write(file, Arrays.copyOf(good, 20));
+    assertThrows(IOException.class, () -> MappedMatrix.open(file, MappedMatrix.INTEGERS));
+    assertEquals(20, Files.size(file), "short file grown by open");
+
+    byte[] negative = good.clone();
+    ByteBuffer.wrap(negative).order(ByteOrder.LITTLE_ENDIAN).putInt(12, -3);
+    Files.write(file, negative);
+    assertThrows(IOException.class, () -> MappedMatrix.open(file, MappedMatrix.INTEGERS));
+    byte[] huge = good.clone();
+    ByteBuffer.wrap(huge).order(ByteOrder.LITTLE_ENDIAN).putInt(8, Integer.MAX_VALUE)
+        .putInt(12, Integer.MAX_VALUE);
+    Files.write(file, huge);
+    assertThrows(IOException.class, () -> MappedMatrix.open(file, MappedMatrix.INTEGERS));
+
+    Files.write(file, good);
+    try (MappedMatrix<Integer> matrix = MappedMatrix.open(file, MappedMatrix.INTEGERS)) {
+      assertEquals(7, matrix.get(2, 4));
+    } // try
+  } // mappedMatrixRejectsDamagedFiles(Path)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * An operation on a matrix.
+   *
+   * @param <T>
+   *   The type of values in the matrix.
+   */
+  private interface Op<T> {
+    /**
+     * Apply the operation.
+     *
+     * @param matrix
+     *   The matrix to change.
+     *
+     * @return the value read, or null if nothing was read.
+     *
+     * @throws Exception
+     *   If the operation fails.
+     */
+    Object apply(Matrix<T> matrix) throws Exception;
+  } // interface Op<T>
+
+  /**
+   * Apply random operations to two matrices that start out the same,
+   * checking after each that both failed the same way or neither did, and
+   * that the matrices still match.
+   *
+   * @param <T>
+   *   The type of values in the matrices.
+   * @param expected
+   *   The reference matrix.
+   * @param actual
+   *   The matrix being tested.
+   * @param values
+   *   Makes values to store.
+   * @param arrays
+   *   Makes arrays of values.
+   * @param random
+   *   Chooses the operations.
+   * @param what
+   *   A description for failure messages.
+   */
+  private static <T> void check(Matrix<T> expected, Matrix<T> actual, Supplier<T> values,
+      IntFunction<T[]> arrays, Random random, String what) {
+    check(expected, actual, values, arrays, random, what, (m) -> { });
+  } // check(Matrix<T>, Matrix<T>, Supplier<T>, IntFunction<T[]>, Random, String)
+
+  /**
+   * Apply random operations to two matrices that start out the same, as
+   * above, and also apply a change to the tested matrix after each
+   * operation that should not affect its contents.
+   *
+   * @param <T>
+   *   The type of values in the matrices.
+   * @param expected
+   *   The reference matrix.
+   * @param actual
+   *   The matrix being tested.
+   * @param values
+   *   Makes values to store.
+   * @param arrays
+   *   Makes arrays of values.
+   * @param random
+   *   Chooses the operations.
+   * @param what
+   *   A description for failure messages.
+   * @param tweak
+   *   The change to apply to the tested matrix.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> void check(Matrix<T> expected, Matrix<T> actual, Supplier<T> values,
+      IntFunction<T[]> arrays, Random random, String what, Consumer<Matrix<T>> tweak) {
+    for (int step = 0; step < STEPS; step++) {
+      Op<T> op = randomOp(expected, values, arrays, random, true);
+      String where = what + " step " + step;
+      assertEquals(outcome(op, expected), outcome(op, actual), where);
+      tweak.accept(actual);
+      assertSame(expected, actual, where);
+      if (random.nextInt(50) == 0) {
+        Matrix<T> expectedCopy = expected.clone();
+        Matrix<T> actualCopy = actual.clone();
+        assertEquals(actual, actualCopy, where);
+        if (actual.height() > 0 && actual.width() > 0) {
+          T val = values.get();
+          expected.set(0, 0, val);
+          actual.set(0, 0, val);
+        } // if
+        assertSame(expectedCopy, actualCopy, where + " after changing the original");
+        expected = expectedCopy;
+        actual = actualCopy;
+      } // if
+    } // for
+  } // check(Matrix<T>, Matrix<T>, Supplier<T>, IntFunction<T[]>, Random, String, Consumer)
+
+  /**
+   * Apply random operations to a MatrixV0 and to a new MappedMatrix of the
+   * same size and default, as check does, then check a clone and the file
+   * reopened.
+   *
+   * @param <T>
+   *   The type of values in the matrices.
+   * @param expected
+   *   The reference matrix, full of its default value.
+   * @param file
+   *   The file for the mapped matrix.
+   * @param codec
+   *   How the mapped matrix encodes cells.
+   * @param values
+   *   Makes values to store.
+   * @param arrays
+   *   Makes arrays of values.
+   * @param random
+   *   Chooses the operations.
+   *
+   * @throws IOException
+   *   If the file cannot be written.
+   */
+  private static <T> void checkMapped(Matrix<T> expected, Path file,
+      MappedMatrix.Codec<T> codec, Supplier<T> values, IntFunction<T[]> arrays,
+      Random random) throws IOException {
+    String what = "MappedMatrix " + codec.bits() + "-bit";
+    try (MappedMatrix<T> actual = MappedMatrix.create(file, expected.width(),
+        expected.height(), codec, expected.get(0, 0))) {
+      assertSame(expected, actual, what);
+      for (int step = 0; step < STEPS; step++) {
+        Op<T> op = randomOp(expected, values, arrays, random, true);
+        String where = what + " step " + step;
+        assertEquals(outcome(op, expected), outcome(op, actual), where);
+        assertSame(expected, actual, where);
+      } // for
+      try (MappedMatrix<T> copy = actual.clone()) {
+        assertEquals(actual, copy, what);
+        assertSame(expected, copy, what + " clone");
+      } // try
+    } // try
+    try (MappedMatrix<T> reopened = MappedMatrix.open(file, codec)) {
+      assertSame(expected, reopened, what + " reopened");
+    } // try
+  } // checkMapped(Matrix<T>, Path, MappedMatrix.Codec<T>, Supplier<T>, IntFunction<T[]>, Random)
+
+  /**
+   * Apply an operation and summarize what happened.
+   *
+   * @param <T>
+   *   The type of values in the matrix.
+   * @param op
+   *   The operation.
+   * @param matrix
+   *   The matrix to apply it to.
+   *
+   * @return the value read, or the class of the exception thrown.
+   */
+  private static <T> Object outcome(Op<T> op, Matrix<T> matrix) {
+    try {
+      return op.apply(matrix);
+    } catch (Exception e) {
+      return e.getClass();
+    } // try/catch
+  } // outcome(Op<T>, Matrix<T>)
+
+  /**
+   * Check that two matrices have the same size and values.
+   *
+   * @param expected
+   *   The reference matrix.
+   * @param actual
+   *   The matrix being tested.
+   * @param where
+   *   A description for failure messages.
+   */
+  private static void assertSame(Matrix<?> expected, Matrix<?> actual, String where) {
+    assertEquals(expected.height(), actual.height(), where);
+    assertEquals(expected.width(), actual.width(), where);
+    for (int row = 0; row < expected.height(); row++) {
+      for (int col = 0; col < expected.width(); col++) {
+        assertEquals(expected.get(row, col), actual.get(row, col),
+            where + " at (" + row + ", " + col + ")");
+      } // for
+    } // for
+  } // assertSame(Matrix<?>, Matrix<?>, String)
+
+  /**
+   * Pick a random operation, sometimes with arguments that are out of
+   * bounds or the wrong size.
+   *
+   * @param <T>
+   *   The type of values in the matrix.
+   * @param matrix
+   *   The matrix whose size guides the arguments.
+   * @param values
+   *   Makes values to store.
+   * @param arrays
+   *   Makes arrays of values.
+   * @param random
+   *   The source of randomness.
+   * @param resizable
+   *   Whether to include operations that insert and delete rows and
+   *   columns.
+   *
+   * @return the operation.
+   */
+  private static <T> Op<T> randomOp(Matrix<T> matrix, Supplier<T> values,
+      IntFunction<T[]> arrays, Random random, boolean resizable) {
+    int height = matrix.height();
+    int width = matrix.width();
+    int row = random.nextInt(height + 3) - 1;
+    int col = random.nextInt(width + 3) - 1;
+    T val = values.get();
+    int kind = random.nextInt(10);
+    if (!resizable && kind >= 2 && kind <= 7) {
+      kind = 8 + kind % 2;
+    } else if (height * width > 400 && kind >= 2 && kind <= 5) {
+      kind += 4;
+    } else if (height * width < 12 && (kind == 6 || kind == 7)) {
+      kind -= 4;
+    } // if/else
+    switch (kind) {
+      case 0:
+        return m -> m.get(row, col);
+      case 1:
+        return m -> {
+          m.set(row, col, val);
+          return null;
+        };
+      case 2:
+        return m -> {
+          m.insertRow(row);
+          return null;
+        };
+      case 3: {
+        T[] vals = arrays.apply(width + (random.nextInt(8) == 0 ? 1 : 0));
+        for (int i = 0; i < vals.length; i++) {
+          vals[i] = values.get();
+        } // for
+        return m -> {
+          m.insertRow(row, vals);
+          return null;
+        };
+      } // case 3
+      case 4:
+        return m -> {
+          m.insertCol(col);
+          return null;
+        };
+      case 5: {
+        T[] vals = arrays.apply(height + (random.nextInt(8) == 0 ? 1 : 0));
+        for (int i = 0; i < vals.length; i++) {
+          vals[i] = values.get();
+        } // for
+        return m -> {
+          m.insertCol(col, vals);
+          return null;
+        };
+      } // case 5
+      case 6:
+        return m -> {
+          m.deleteRow(row);
+          return null;
+        };
+      case 7:
+        return m -> {
+          m.deleteCol(col);
+          return null;
+        };
+      case 8: {
+        int endRow = random.nextInt(height + 3) - 1;
+        int endCol = random.nextInt(width + 3) - 1;
+        return m -> {
+          m.fillRegion(row, col, endRow, endCol, val);
+          return null;
+        };
+      } // case 8
+      default: {
+        int deltaRow = random.nextInt(3) - 1;
+        int deltaCol = deltaRow <= 0 ? 1 + random.nextInt(2) : random.nextInt(3) - 1;
+        int endRow = random.nextInt(height + 3);
+        int endCol = random.nextInt(width + 3);
+        return m -> {
+          m.fillLine(row, col, deltaRow, deltaCol, endRow, endCol, val);
+          return null;
+        };
+      } // default
+    } // switch
+  } // randomOp(Matrix<T>, Supplier<T>, IntFunction<T[]>, Random, boolean)
+} // class MatrixDifferentialTest